@@ -0,0 +1,118 @@
+package benchmarks;
+
+import model.Transaction;
+import model.TransactionPage;
+import model.enums.FeeLevel;
+import model.enums.TransactionStatus;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import repository.EmbeddedStorage;
+import repository.TransactionRepository;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.SplittableRandom;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+// The embedded backend's repository operations, on a store in a temporary directory
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+public class EmbeddedRepositoryBenchmark {
+    private static final int SAMPLE_SIZE = 1 << 12;
+    private static final int WALLETS = 10_000;
+    private static final int BATCH_SIZE = 1_000;
+
+    @Param({"100000", "1000000"})
+    private int size;
+
+    private Path directory;
+    private EmbeddedStorage storage;
+    private TransactionRepository repository;
+    private UUID[] walletIds;
+    private Transaction[] members;
+    private int next;
+
+    @Setup
+    public void setUp() throws IOException {
+        Fixtures.quietLogging();
+        directory = Files.createTempDirectory("embedded-bench");
+        storage = new EmbeddedStorage(directory, 64 * 1024 * 1024, 0.5, Duration.ZERO, false);
+        storage.open();
+        repository = storage.getTransactionRepository();
+        SplittableRandom random = new SplittableRandom(Fixtures.SEED);
+        walletIds = new UUID[WALLETS];
+        for (int i = 0; i < WALLETS; i++) {
+            walletIds[i] = new UUID(random.nextLong(), random.nextLong());
+        }
+        LocalDateTime start = LocalDateTime.of(2026, 1, 1, 0, 0);
+        List<Transaction> batch = new ArrayList<>(BATCH_SIZE);
+        List<Transaction> all = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            Transaction tx = new Transaction(new UUID(random.nextLong(), random.nextLong()),
+                walletIds[random.nextInt(WALLETS)], "source", "destination", 1.0, random.nextDouble(),
+                FeeLevel.STANDARD, TransactionStatus.PENDING, start.plusNanos(i * 1_000L));
+            batch.add(tx);
+            all.add(tx);
+            if (batch.size() == BATCH_SIZE) {
+                repository.saveAll(batch);
+                batch.clear();
+            }
+        }
+        repository.saveAll(batch);
+        members = Fixtures.sample(all, SAMPLE_SIZE, Fixtures.SEED + 1);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        storage.close();
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    private int nextIndex() {
+        next = (next + 1) & (SAMPLE_SIZE - 1);
+        return next;
+    }
+
+    @Benchmark
+    public Optional<Transaction> findById() {
+        return repository.findById(members[nextIndex()].getId());
+    }
+
+    // First history page of a wallet, as opening it in the menu does
+    @Benchmark
+    public TransactionPage findPageByWalletId() {
+        return repository.findPageByWalletId(members[nextIndex()].getWalletId(), null, null, 20);
+    }
+
+    // Rewrites an existing transaction: new log record plus index maintenance
+    @Benchmark
+    public int updateStatus() {
+        Transaction tx = members[nextIndex()];
+        return repository.updateStatusBatch(Collections.singletonList(tx.getId()), TransactionStatus.PENDING);
+    }
+}
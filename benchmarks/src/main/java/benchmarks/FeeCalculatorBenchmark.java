@@ -0,0 +1,66 @@
+package benchmarks;
+
+import model.Transaction;
+import model.enums.FeeLevel;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import service.BitcoinFeeCalculator;
+import service.EthereumFeeCalculator;
+import service.FeeCalculator;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FeeCalculatorBenchmark {
+    private final FeeCalculator bitcoin = new BitcoinFeeCalculator(BitcoinFeeCalculator.DEFAULT_SIZE_BYTES, 0.0002);
+    private final FeeCalculator ethereum = new EthereumFeeCalculator(EthereumFeeCalculator.TRANSFER_GAS_LIMIT, 0.00003);
+    private Transaction bitcoinTx;
+    private Transaction ethereumTx;
+    private FeeLevel feeLevel = FeeLevel.STANDARD;
+
+    @Setup
+    public void setUp() {
+        for (Transaction tx : Fixtures.generate(64, Fixtures.SEED)) {
+            if (tx.getSourceAddress().startsWith("0x")) {
+                ethereumTx = tx;
+            } else {
+                bitcoinTx = tx;
+            }
+        }
+    }
+
+    @Benchmark
+    public double bitcoinFee() {
+        return bitcoin.calculateFee(bitcoinTx);
+    }
+
+    @Benchmark
+    public double ethereumFee() {
+        return ethereum.calculateFee(ethereumTx);
+    }
+
+    // TransactionService builds a fresh calculator for every transaction it creates
+    @Benchmark
+    public double bitcoinFeeWithFactory() {
+        return new BitcoinFeeCalculator(BitcoinFeeCalculator.DEFAULT_SIZE_BYTES, 0.0002 * feeLevel.getMultiplier())
+            .calculateFee(bitcoinTx);
+    }
+
+    @Benchmark
+    public double ethereumFeeWithFactory() {
+        return new EthereumFeeCalculator(EthereumFeeCalculator.TRANSFER_GAS_LIMIT, 0.00003 * feeLevel.getMultiplier())
+            .calculateFee(ethereumTx);
+    }
+}
@@ -0,0 +1,71 @@
+package benchmarks;
+
+import model.Mempool;
+import model.Transaction;
+import model.mempool.IndexedMempoolStore;
+import model.mempool.MempoolLimits;
+import model.mempool.MempoolStore;
+import model.mempool.OffHeapMempoolStore;
+import model.mempool.StripedMempoolStore;
+import service.MempoolService;
+import service.WorkloadGenerator;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+// Deterministic mempools shared by the benchmarks
+final class Fixtures {
+    static final long SEED = 42L;
+    private static final int BATCH_SIZE = 10_000;
+
+    private Fixtures() {
+    }
+
+    // Per-operation info logging would dominate the timings and flood the JMH output
+    static void quietLogging() {
+        Logger.getLogger("").setLevel(Level.WARNING);
+    }
+
+    // Unbounded, so every generated transaction stays in the pool whatever the size
+    static Mempool mempool(String storage) {
+        return new Mempool(store(storage), MempoolLimits.unbounded());
+    }
+
+    static void fill(MempoolService service, int size, long seed) {
+        generator(service, seed).run(size);
+    }
+
+    // Transactions of the same shape that are not in any benchmarked pool
+    static List<Transaction> generate(int count, long seed) {
+        MempoolService scratch = new MempoolService(new Mempool(new IndexedMempoolStore(), MempoolLimits.unbounded()));
+        generator(scratch, seed).run(count);
+        return scratch.getPendingTransactions();
+    }
+
+    static Transaction[] sample(List<Transaction> transactions, int count, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        Transaction[] sample = new Transaction[count];
+        for (int i = 0; i < count; i++) {
+            sample[i] = transactions.get(random.nextInt(transactions.size()));
+        }
+        return sample;
+    }
+
+    private static WorkloadGenerator generator(MempoolService service, long seed) {
+        WorkloadGenerator.Profile profile = new WorkloadGenerator.Profile(0,
+            WorkloadGenerator.FeeDistribution.EXPONENTIAL, 0.0001, 0.002, 10_000, 0.5);
+        return new WorkloadGenerator(service, profile, seed, 1, BATCH_SIZE);
+    }
+
+    private static MempoolStore store(String storage) {
+        switch (storage) {
+            case "concurrent":
+                return new StripedMempoolStore();
+            case "offheap":
+                return new OffHeapMempoolStore();
+            default:
+                return new IndexedMempoolStore();
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package benchmarks;
+
+import model.Mempool;
+import model.Transaction;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import service.MempoolService;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-operation cost of the mempool as it grows. Mutating benchmarks undo their
+ * change in the same invocation so the pool stays at the configured size.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+public class MempoolBenchmark {
+    private static final int SAMPLE_SIZE = 1 << 12;
+
+    @Param({"1000", "10000", "100000", "1000000", "10000000"})
+    private int size;
+
+    @Param({"indexed", "concurrent", "offheap"})
+    private String storage;
+
+    private Mempool mempool;
+    private MempoolService mempoolService;
+    private Transaction[] members;
+    private Transaction[] outsiders;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        Fixtures.quietLogging();
+        mempool = Fixtures.mempool(storage);
+        mempoolService = new MempoolService(mempool);
+        Fixtures.fill(mempoolService, size, Fixtures.SEED);
+        List<Transaction> pending = mempoolService.getPendingTransactions();
+        members = Fixtures.sample(pending, SAMPLE_SIZE, Fixtures.SEED + 1);
+        outsiders = Fixtures.generate(SAMPLE_SIZE, Fixtures.SEED + 2).toArray(new Transaction[0]);
+    }
+
+    private int nextIndex() {
+        next = (next + 1) & (SAMPLE_SIZE - 1);
+        return next;
+    }
+
+    // Insert of a new transaction, followed by its removal
+    @Benchmark
+    public boolean addTransactionIfNotExists() {
+        Transaction tx = outsiders[nextIndex()];
+        boolean added = mempool.addTransactionIfNotExists(tx);
+        mempool.removeTransaction(tx.getId());
+        return added;
+    }
+
+    // Rejection path: the transaction is already in the pool
+    @Benchmark
+    public boolean addTransactionIfNotExistsDuplicate() {
+        return mempool.addTransactionIfNotExists(members[nextIndex()]);
+    }
+
+    @Benchmark
+    public int getPosition() {
+        return mempoolService.getPosition(members[nextIndex()]);
+    }
+
+    @Benchmark
+    public Duration estimateTime() {
+        return mempoolService.estimateTime(members[nextIndex()]);
+    }
+
+    // Re-index after one fee edited in place, as the miner menu does before mining
+    @Benchmark
+    public void sortTransactions() {
+        Transaction tx = members[nextIndex()];
+        tx.setFee(tx.getFee() * (next % 2 == 0 ? 1.01 : 1 / 1.01));
+        mempoolService.sortTransactions();
+    }
+
+    // Removal through the service, followed by re-inserting the transaction
+    @Benchmark
+    public boolean removeTransaction() {
+        Transaction tx = members[nextIndex()];
+        mempoolService.removeTransaction(tx);
+        return mempool.addTransactionIfNotExists(tx);
+    }
+}
@@ -0,0 +1,56 @@
+package benchmarks;
+
+import model.Transaction;
+import model.mempool.MempoolStats;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import service.MempoolService;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Aggregations behind TransactionService.displayMempoolStats
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+public class MempoolStatsBenchmark {
+    @Param({"1000", "10000", "100000", "1000000", "10000000"})
+    private int size;
+
+    @Param({"indexed", "concurrent", "offheap"})
+    private String storage;
+
+    private MempoolService mempoolService;
+    private List<Transaction> pending;
+
+    @Setup
+    public void setUp() {
+        Fixtures.quietLogging();
+        mempoolService = new MempoolService(Fixtures.mempool(storage));
+        Fixtures.fill(mempoolService, size, Fixtures.SEED);
+        pending = mempoolService.getPendingTransactions();
+    }
+
+    // Aggregation alone, over an already materialized pending list
+    @Benchmark
+    public MempoolStats aggregate() {
+        return MempoolStats.of(pending);
+    }
+
+    // What the menu pays: pending snapshot plus aggregation
+    @Benchmark
+    public MempoolStats getStats() {
+        return mempoolService.getStats();
+    }
+}
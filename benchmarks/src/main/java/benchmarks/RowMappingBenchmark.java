@@ -0,0 +1,86 @@
+package benchmarks;
+
+import model.Transaction;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import repository.JdbcTransactionRepository;
+import java.lang.reflect.Proxy;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JdbcTransactionRepository.mapRow over in-memory rows, without a database. The
+ * ResultSet is a dynamic proxy, so its dispatch cost is included; compare
+ * against driver time when reading the numbers.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RowMappingBenchmark {
+    private static final int ROWS = 1 << 10;
+
+    private final ResultSet[] resultSets = new ResultSet[ROWS];
+    private int next;
+
+    @Setup
+    public void setUp() {
+        List<Transaction> transactions = Fixtures.generate(ROWS, Fixtures.SEED);
+        for (int i = 0; i < ROWS; i++) {
+            resultSets[i] = resultSet(row(transactions.get(i)));
+        }
+    }
+
+    @Benchmark
+    public Transaction mapRow() throws SQLException {
+        next = (next + 1) & (ROWS - 1);
+        return JdbcTransactionRepository.mapRow(resultSets[next]);
+    }
+
+    private static Map<String, Object> row(Transaction tx) {
+        Map<String, Object> row = new HashMap<>();
+        row.put("id", tx.getId());
+        row.put("wallet_id", tx.getId());
+        row.put("source_address", tx.getSourceAddress());
+        row.put("destination_address", tx.getDestinationAddress());
+        row.put("amount", tx.getAmount());
+        row.put("fee", tx.getFee());
+        row.put("fee_level", tx.getFeeLevel().name());
+        row.put("status", tx.getStatus().name());
+        row.put("created_at", Timestamp.valueOf(tx.getCreatedAt()));
+        return row;
+    }
+
+    // Answers the column getters mapRow uses from the given row
+    private static ResultSet resultSet(Map<String, Object> row) {
+        return (ResultSet) Proxy.newProxyInstance(ResultSet.class.getClassLoader(), new Class<?>[] {ResultSet.class},
+            (proxy, method, args) -> {
+                Object value = row.get((String) args[0]);
+                switch (method.getName()) {
+                    case "getDouble":
+                        return ((Number) value).doubleValue();
+                    case "getObject":
+                    case "getString":
+                    case "getTimestamp":
+                        return value;
+                    default:
+                        throw new UnsupportedOperationException(method.getName());
+                }
+            });
+    }
+}
@@ -1,5 +1,3 @@
--- Active: 1738622539335@@127.0.0.1@5432@crypto_wallet
-
 CREATE TABLE IF NOT EXISTS wallets (
     id UUID PRIMARY KEY,
     type VARCHAR(20) NOT NULL,              
@@ -19,4 +17,8 @@ CREATE TABLE IF NOT EXISTS transactions (
     fee_level VARCHAR(20) NOT NULL,         
     status VARCHAR(20) NOT NULL,            
     created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
-);
\ No newline at end of file
+);
+
+-- Serves the keyset-paginated wallet history: ORDER BY created_at DESC, id DESC per wallet
+CREATE INDEX IF NOT EXISTS idx_transactions_wallet_history
+    ON transactions (wallet_id, created_at DESC, id DESC);
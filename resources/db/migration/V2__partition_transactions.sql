@@ -0,0 +1,63 @@
+-- Rebuilds transactions as a table range-partitioned by month of created_at, so
+-- old months can be detached or dropped without touching the recent ones.
+-- The primary key of a partitioned table must contain the partition key.
+
+-- Creates the monthly partitions starting at from_month that do not exist yet
+CREATE OR REPLACE FUNCTION create_transaction_partitions(from_month DATE, months INTEGER)
+RETURNS INTEGER AS $$
+DECLARE
+    month_start DATE;
+    partition_name TEXT;
+    created INTEGER := 0;
+BEGIN
+    FOR i IN 0 .. months - 1 LOOP
+        month_start := (date_trunc('month', from_month) + make_interval(months => i))::DATE;
+        partition_name := 'transactions_' || to_char(month_start, 'YYYY_MM');
+        IF to_regclass(partition_name) IS NULL THEN
+            EXECUTE format('CREATE TABLE %I PARTITION OF transactions FOR VALUES FROM (%L) TO (%L)',
+                partition_name, month_start, (month_start + INTERVAL '1 month')::DATE);
+            created := created + 1;
+        END IF;
+    END LOOP;
+    RETURN created;
+END;
+$$ LANGUAGE plpgsql;
+
+ALTER TABLE transactions RENAME TO transactions_unpartitioned;
+ALTER TABLE transactions_unpartitioned RENAME CONSTRAINT transactions_pkey TO transactions_unpartitioned_pkey;
+DROP INDEX IF EXISTS idx_transactions_wallet_history;
+
+CREATE TABLE transactions (
+    id UUID NOT NULL,
+    wallet_id UUID REFERENCES wallets(id) ON DELETE CASCADE,
+    source_address VARCHAR(100) NOT NULL,
+    destination_address VARCHAR(100) NOT NULL,
+    amount DOUBLE PRECISION NOT NULL CHECK (amount > 0),
+    fee DOUBLE PRECISION NOT NULL CHECK (fee >= 0),
+    fee_level VARCHAR(20) NOT NULL,
+    status VARCHAR(20) NOT NULL,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (id, created_at)
+) PARTITION BY RANGE (created_at);
+
+-- Rows outside every monthly partition, e.g. far in the past, land here
+CREATE TABLE transactions_default PARTITION OF transactions DEFAULT;
+
+-- Monthly partitions from the oldest existing row, at most five years back, to three months ahead
+DO $$
+DECLARE
+    first_month DATE := GREATEST(
+        date_trunc('month', COALESCE((SELECT min(created_at) FROM transactions_unpartitioned), CURRENT_TIMESTAMP)),
+        date_trunc('month', CURRENT_DATE) - INTERVAL '5 years')::DATE;
+    span INTERVAL := age(date_trunc('month', CURRENT_DATE), first_month);
+BEGIN
+    PERFORM create_transaction_partitions(first_month,
+        (EXTRACT(YEAR FROM span) * 12 + EXTRACT(MONTH FROM span))::INTEGER + 4);
+END $$;
+
+INSERT INTO transactions (id, wallet_id, source_address, destination_address, amount, fee, fee_level, status, created_at)
+SELECT id, wallet_id, source_address, destination_address, amount, fee, fee_level, status,
+       COALESCE(created_at, CURRENT_TIMESTAMP)
+FROM transactions_unpartitioned;
+
+DROP TABLE transactions_unpartitioned;
@@ -0,0 +1,11 @@
+-- Both indexes carry every selected column so the mempool load and the wallet
+-- history are answered by index-only scans once the visibility map is set.
+
+-- findAllPending / forEachPendingChunk: only PENDING rows, already in mempool order
+CREATE INDEX idx_transactions_pending_fee ON transactions (fee DESC, created_at ASC)
+    INCLUDE (id, wallet_id, source_address, destination_address, amount, fee_level, status)
+    WHERE status = 'PENDING';
+
+-- findByWalletId / findPageByWalletId: keyset order on (created_at, id) per wallet
+CREATE INDEX idx_transactions_wallet_history ON transactions (wallet_id, created_at DESC, id DESC)
+    INCLUDE (source_address, destination_address, amount, fee, fee_level, status);
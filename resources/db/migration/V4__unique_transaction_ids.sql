@@ -0,0 +1,42 @@
+-- The primary key is (id, created_at), so a transaction written again with a
+-- created_at one microsecond off got a second row instead of an update. A
+-- unique index on id in every partition makes such a write fail instead. A
+-- partitioned table cannot enforce this across partitions, but copies of one
+-- transaction are written moments apart and so land in the same month.
+
+-- Same as in V2, plus the unique id index on each partition it creates
+CREATE OR REPLACE FUNCTION create_transaction_partitions(from_month DATE, months INTEGER)
+RETURNS INTEGER AS $$
+DECLARE
+    month_start DATE;
+    partition_name TEXT;
+    created INTEGER := 0;
+BEGIN
+    FOR i IN 0 .. months - 1 LOOP
+        month_start := (date_trunc('month', from_month) + make_interval(months => i))::DATE;
+        partition_name := 'transactions_' || to_char(month_start, 'YYYY_MM');
+        IF to_regclass(partition_name) IS NULL THEN
+            EXECUTE format('CREATE TABLE %I PARTITION OF transactions FOR VALUES FROM (%L) TO (%L)',
+                partition_name, month_start, (month_start + INTERVAL '1 month')::DATE);
+            EXECUTE format('CREATE UNIQUE INDEX %I ON %I (id)', partition_name || '_id_key', partition_name);
+            created := created + 1;
+        END IF;
+    END LOOP;
+    RETURN created;
+END;
+$$ LANGUAGE plpgsql;
+
+DO $$
+DECLARE
+    partition_name TEXT;
+BEGIN
+    IF EXISTS (SELECT 1 FROM transactions GROUP BY id HAVING count(*) > 1) THEN
+        RAISE EXCEPTION 'transactions holds several rows for one id; remove the duplicates before upgrading';
+    END IF;
+    FOR partition_name IN
+        SELECT c.relname FROM pg_inherits i JOIN pg_class c ON c.oid = i.inhrelid
+        WHERE i.inhparent = 'transactions'::regclass
+    LOOP
+        EXECUTE format('CREATE UNIQUE INDEX IF NOT EXISTS %I ON %I (id)', partition_name || '_id_key', partition_name);
+    END LOOP;
+END $$;
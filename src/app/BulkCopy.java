@@ -0,0 +1,57 @@
+package app;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+import repository.BulkCopyRepository;
+import repository.BulkCopyRepository.Table;
+import utils.DBConnection;
+
+/**
+ * Bulk CSV import and export of the wallets and transactions tables with
+ * PostgreSQL COPY, e.g.
+ * java app.BulkCopy export all dump/
+ * java app.BulkCopy import transactions transactions.csv
+ * With "all" the path is a directory holding wallets.csv and transactions.csv.
+ */
+public class BulkCopy {
+
+    public static void main(String[] args) {
+        if (args.length != 3 || !(args[0].equals("import") || args[0].equals("export"))) {
+            System.out.println("Usage: BulkCopy <import|export> <wallets|transactions|all> <fichier ou dossier>");
+            System.exit(2);
+        }
+        boolean importing = args[0].equals("import");
+        Path path = Paths.get(args[2]);
+        List<Table> tables = new ArrayList<>();
+        if (args[1].equals("all")) {
+            tables.add(Table.WALLETS);
+            tables.add(Table.TRANSACTIONS);
+        } else {
+            tables.add(Table.valueOf(args[1].toUpperCase()));
+        }
+
+        BulkCopyRepository repository = new BulkCopyRepository();
+        try {
+            if (tables.size() > 1 && !importing) {
+                Files.createDirectories(path);
+            }
+            for (Table table : tables) {
+                Path file = tables.size() > 1 ? path.resolve(table.getName() + ".csv") : path;
+                long start = System.nanoTime();
+                long rows = importing ? repository.importTable(table, file) : repository.exportTable(table, file);
+                double seconds = (System.nanoTime() - start) / 1e9;
+                System.out.printf("✓ %s %s: %d lignes en %.1f s (%.0f lignes/s)%n",
+                    importing ? "Import" : "Export", table.getName(), rows, seconds, seconds > 0 ? rows / seconds : 0);
+            }
+        } catch (Exception e) {
+            System.out.println("✗ Erreur: " + e.getMessage());
+            System.exit(1);
+        } finally {
+            DBConnection.close();
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package app;
+
+import java.time.Duration;
+
+import model.Mempool;
+import repository.JdbcTransactionRepository;
+import service.BlockProducer;
+import service.BlockTemplateBuilder;
+import service.MempoolService;
+import service.TransactionService;
+import service.WorkloadGenerator;
+import ui.MenuFactory;
+import utils.AppConfig;
+
+/**
+ * Standalone capacity test: floods a mempool built from config.properties with
+ * mock transactions, optionally while a block producer drains it. Settings come
+ * from load.* keys (overridable with -D), e.g.
+ * java -Dload.transactions=1000000 -Dload.ratePerSecond=200000 app.LoadGenerator
+ */
+public class LoadGenerator {
+
+    public static void main(String[] args) {
+        Mempool mempool = MenuFactory.createMempool();
+        MempoolService mempoolService = new MempoolService(mempool);
+
+        WorkloadGenerator.Profile profile = new WorkloadGenerator.Profile(
+            AppConfig.getDouble("load.ratePerSecond", 0),
+            WorkloadGenerator.FeeDistribution.valueOf(AppConfig.getString("load.feeDistribution", "EXPONENTIAL")),
+            AppConfig.getDouble("load.minFee", 0.0001),
+            AppConfig.getDouble("load.meanFee", 0.002),
+            AppConfig.getInt("load.addressPool", 10_000),
+            AppConfig.getDouble("load.ethereumShare", 0.5));
+        WorkloadGenerator generator = new WorkloadGenerator(mempoolService, profile,
+            AppConfig.getLong("load.seed", 42L),
+            AppConfig.getInt("load.threads", Runtime.getRuntime().availableProcessors()),
+            AppConfig.getInt("load.batchSize", 1_000));
+
+        BlockProducer producer = null;
+        if (AppConfig.getBoolean("load.produceBlocks", false)) {
+            BlockTemplateBuilder builder = MenuFactory.createBlockTemplateBuilder();
+            mempoolService.addListener(builder);
+            // Mock transactions are never written, so the repository is not used
+            TransactionService transactionService = new TransactionService(new JdbcTransactionRepository(),
+                mempoolService, null, builder);
+            producer = new BlockProducer(transactionService, mempoolService,
+                Duration.ofMillis(AppConfig.getLong("block.intervalMillis", 1_000L)));
+            producer.start();
+        }
+
+        WorkloadGenerator.Result result = generator.run(AppConfig.getLong("load.transactions", 1_000_000L));
+        System.out.printf("Générées: %d | Insérées: %d | Durée: %d ms | Débit: %.0f tx/s%n",
+            result.getGenerated(), result.getInserted(), result.getElapsed().toMillis(), result.getThroughput());
+        System.out.printf("Mempool: %d transaction(s), ~%d Mo%n",
+            mempoolService.size(), mempool.getEstimatedBytes() / (1024 * 1024));
+
+        if (producer != null) {
+            producer.stop();
+            System.out.printf("Blocs: %d | Confirmées: %d | Débit soutenu: %.0f tx/s%n",
+                producer.getBlocksProduced(), producer.getTotalTransactions(), producer.getSustainedThroughput());
+        }
+    }
+}
@@ -2,64 +2,356 @@ package model;
 
 import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Random;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Collectors;
 
 import model.enums.FeeLevel;
 import model.enums.TransactionStatus;
+import model.mempool.FeeBump;
+import model.mempool.FeeQuote;
+import model.mempool.IndexedMempoolStore;
+import model.mempool.MempoolLimits;
+import model.mempool.MempoolListener;
+import model.mempool.MempoolStore;
 
 public class Mempool {
-    private List<Transaction> pendingTx = new ArrayList<>();
+    // Rough heap footprint of a Transaction without its address strings
+    private static final int TRANSACTION_OVERHEAD_BYTES = 200;
+    // One block every 10 minutes, one transaction per block ahead of us
+    private static final long MINUTES_PER_POSITION = 10;
+    // Smallest fee step shown to users (fees are displayed with 6 decimals)
+    private static final double FEE_UNIT = 0.000001;
+
+    private final MempoolStore store;
+    private final MempoolLimits limits;
+    private final List<MempoolListener> listeners = new CopyOnWriteArrayList<>();
+    // Adders hold the read lock from store.add to onAdded, so adds still run in parallel; removals,
+    // evictions, fee bumps and clear hold the write lock together with their notification. No entry
+    // can then leave the store, and be reported gone, before its onAdded has fired. Listeners only
+    // record events under it; their afterChange, which may wait on I/O, runs once it is released
+    private final ReentrantReadWriteLock events = new ReentrantReadWriteLock();
+    private final AtomicInteger count = new AtomicInteger();
+    private final AtomicLong estimatedBytes = new AtomicLong();
+    private double minimumFee;
+    private long minimumFeeUpdatedAt;
     private Random random = new Random();
 
+    public Mempool() {
+        this(new IndexedMempoolStore());
+    }
+
+    public Mempool(MempoolStore store) {
+        this(store, MempoolLimits.unbounded());
+    }
+
+    public Mempool(MempoolStore store, MempoolLimits limits) {
+        this.store = store;
+        this.limits = limits;
+    }
+
+    public void addListener(MempoolListener listener) {
+        listeners.add(listener);
+    }
+
+    // Returns false for duplicates, fees under the floor, or when the transaction
+    // itself is the cheapest one evicted to make room; listeners then see it added and evicted
     public boolean addTransactionIfNotExists(Transaction transaction) {
-        if (pendingTx.stream().noneMatch(tx -> tx.getId().equals(transaction.getId()))) {
-            pendingTx.add(transaction);
-            sortTransactions();
-            return true;
+        if (transaction.getFee() < getMinimumFee()) {
+            return false;
+        }
+        events.readLock().lock();
+        try {
+            if (!store.add(transaction)) {
+                return false;
+            }
+            count.incrementAndGet();
+            estimatedBytes.addAndGet(estimateSize(transaction));
+            for (MempoolListener listener : listeners) {
+                listener.onAdded(transaction);
+            }
+        } finally {
+            events.readLock().unlock();
         }
-        return false;
+        boolean kept = trimToLimits(Collections.singleton(transaction.getId())).isEmpty();
+        afterChange();
+        return kept;
     }
 
-    public int getPosition(Transaction transaction) {
-        for (int i = 0; i < pendingTx.size(); i++) {
-            if (pendingTx.get(i).getId().equals(transaction.getId())) {
-                return i + 1;
+    // Bulk insert: one store call and one limit check per batch; returns how many were added
+    public int addTransactions(Collection<Transaction> transactions) {
+        double floor = getMinimumFee();
+        List<Transaction> candidates = new ArrayList<>(transactions.size());
+        for (Transaction transaction : transactions) {
+            if (transaction.getFee() >= floor) {
+                candidates.add(transaction);
+            }
+        }
+        boolean[] added = new boolean[candidates.size()];
+        Set<UUID> addedIds = new HashSet<>();
+        List<Transaction> addedTransactions = new ArrayList<>();
+        events.readLock().lock();
+        try {
+            store.addAll(candidates, added);
+            long bytes = 0;
+            for (int i = 0; i < added.length; i++) {
+                if (added[i]) {
+                    addedIds.add(candidates.get(i).getId());
+                    addedTransactions.add(candidates.get(i));
+                    bytes += estimateSize(candidates.get(i));
+                }
+            }
+            count.addAndGet(addedIds.size());
+            estimatedBytes.addAndGet(bytes);
+            if (!addedTransactions.isEmpty()) {
+                for (MempoolListener listener : listeners) {
+                    listener.onAddedBatch(addedTransactions);
+                }
+            }
+        } finally {
+            events.readLock().unlock();
+        }
+        if (addedIds.isEmpty()) {
+            return 0;
+        }
+        int kept = addedIds.size() - trimToLimits(addedIds).size();
+        afterChange();
+        return kept;
+    }
+
+    public boolean removeTransaction(UUID transactionId) {
+        Transaction removed;
+        events.writeLock().lock();
+        try {
+            removed = notifyRemoved(removed(store.remove(transactionId)));
+        } finally {
+            events.writeLock().unlock();
+        }
+        if (removed == null) {
+            return false;
+        }
+        afterChange();
+        return true;
+    }
+
+    // Removes the ids still present under one write lock and one afterChange, e.g. a block; returns those removed
+    public Set<UUID> removeTransactions(Collection<UUID> transactionIds) {
+        Set<UUID> removedIds = new HashSet<>();
+        events.writeLock().lock();
+        try {
+            for (UUID id : transactionIds) {
+                if (notifyRemoved(removed(store.remove(id))) != null) {
+                    removedIds.add(id);
+                }
+            }
+        } finally {
+            events.writeLock().unlock();
+        }
+        if (!removedIds.isEmpty()) {
+            afterChange();
+        }
+        return removedIds;
+    }
+
+    // Same as removeTransaction(UUID), but listeners see the caller's copy and its final status
+    public boolean removeTransaction(Transaction transaction) {
+        events.writeLock().lock();
+        try {
+            if (removed(store.remove(transaction.getId())) == null) {
+                return false;
+            }
+            notifyRemoved(transaction);
+        } finally {
+            events.writeLock().unlock();
+        }
+        afterChange();
+        return true;
+    }
+
+    // Removes and returns the highest-fee transaction, safe for concurrent miners
+    public Transaction pollHighestFee() {
+        Transaction polled;
+        events.writeLock().lock();
+        try {
+            polled = notifyRemoved(removed(store.pollFirst()));
+        } finally {
+            events.writeLock().unlock();
+        }
+        if (polled != null) {
+            afterChange();
+        }
+        return polled;
+    }
+
+    // Fee a new transaction must pay to enter; rises on eviction, then halves every half-life
+    public synchronized double getMinimumFee() {
+        if (minimumFee > 0) {
+            long now = System.currentTimeMillis();
+            long halfLife = limits.getFloorHalfLife().toMillis();
+            if (halfLife > 0 && now > minimumFeeUpdatedAt) {
+                minimumFee *= Math.pow(0.5, (double) (now - minimumFeeUpdatedAt) / halfLife);
+                minimumFeeUpdatedAt = now;
+            }
+            if (minimumFee < limits.getIncrementalFee() / 2) {
+                minimumFee = 0;
             }
         }
-        return -1;
+        return minimumFee;
+    }
+
+    public long getEstimatedBytes() {
+        return estimatedBytes.get();
+    }
+
+    public MempoolLimits getLimits() {
+        return limits;
+    }
+
+    public Transaction getTransaction(UUID transactionId) {
+        return store.get(transactionId);
+    }
+
+    public boolean contains(UUID transactionId) {
+        return store.get(transactionId) != null;
+    }
+
+    public int getPosition(Transaction transaction) {
+        return store.rank(transaction.getId());
     }
 
     public Duration estimateTime(Transaction transaction) {
-        int position = getPosition(transaction);
+        return estimateTimeForPosition(getPosition(transaction));
+    }
+
+    public Duration estimateTimeForPosition(int position) {
         if (position == -1) {
             return Duration.ofMinutes(0);
         }
-        return Duration.ofMinutes(position * 10L);
+        return Duration.ofMinutes(position * MINUTES_PER_POSITION);
+    }
+
+    // Smallest fee that would place a transaction within the first targetPosition entries.
+    // excludeId (may be null) is left out of the competition, like in quoteFees
+    public double minimumFeeForPosition(int targetPosition, UUID excludeId) {
+        if (targetPosition < 1) {
+            throw new IllegalArgumentException("La position cible doit être supérieure ou égale à 1");
+        }
+        int excludedRank = excludeId == null ? -1 : store.rank(excludeId);
+        int competitor = excludedRank > 0 && excludedRank <= targetPosition ? targetPosition + 1 : targetPosition;
+        double competitorFee = store.feeAtPosition(competitor);
+        double fee = 0;
+        if (!Double.isNaN(competitorFee)) {
+            // Ties go behind, so we must pay strictly more than the competitor: the next fee unit
+            // above it, or the next double where fee units are too fine to tell fees apart
+            fee = Math.max(Math.nextUp(competitorFee), (Math.floor(competitorFee / FEE_UNIT) + 1) * FEE_UNIT);
+        }
+        return Math.max(fee, getMinimumFee());
+    }
+
+    public double minimumFeeForWait(Duration maxWait, UUID excludeId) {
+        int targetPosition = (int) Math.max(1, Math.min(Integer.MAX_VALUE, maxWait.toMinutes() / MINUTES_PER_POSITION));
+        return minimumFeeForPosition(targetPosition, excludeId);
+    }
+
+    // What-if positions for candidate fees; never touches the mempool contents.
+    // excludeId (may be null) is left out, so a pending transaction can be re-quoted
+    public List<FeeQuote> quoteFees(double[] fees, UUID excludeId) {
+        int[] counts = store.countAtLeast(fees);
+        Transaction excluded = excludeId == null ? null : store.get(excludeId);
+        List<FeeQuote> quotes = new ArrayList<>(fees.length);
+        for (int i = 0; i < fees.length; i++) {
+            int ahead = counts[i];
+            if (excluded != null && excluded.getFee() >= fees[i]) {
+                ahead--;
+            }
+            // Ties go behind the entries already waiting, as on insertion
+            int position = ahead + 1;
+            quotes.add(new FeeQuote(fees[i], position, estimateTimeForPosition(position)));
+        }
+        return quotes;
+    }
+
+    // Smallest fee accepted to replace a pending transaction currently paying currentFee
+    public double getMinimumReplacementFee(double currentFee) {
+        return currentFee + limits.getIncrementalFee();
+    }
+
+    // Replace-by-fee: moves only this entry in the fee index; null if it is no longer pending.
+    // The store checks the minimum increment and applies the fee in one atomic step
+    public FeeBump replaceByFee(UUID transactionId, double newFee) {
+        FeeBump bump;
+        events.writeLock().lock();
+        try {
+            bump = store.replaceFee(transactionId, newFee, limits.getIncrementalFee());
+            if (bump != null && bump.isAccepted()) {
+                for (MempoolListener listener : listeners) {
+                    listener.onFeeBumped(bump);
+                }
+            }
+        } finally {
+            events.writeLock().unlock();
+        }
+        if (bump != null && !bump.isAccepted()) {
+            throw new IllegalArgumentException(String.format(
+                "Les nouveaux frais doivent être d'au moins %.6f", getMinimumReplacementFee(bump.getOldFee())));
+        }
+        if (bump != null) {
+            afterChange();
+        }
+        return bump;
     }
 
+    // Re-indexes entries whose fee was changed through Transaction.setFee
     public void sortTransactions() {
-        pendingTx.sort((t1, t2) -> Double.compare(t2.getFee(), t1.getFee()));
+        store.reindex();
     }
 
     public List<Transaction> getPendingTx() {
-        return pendingTx.stream()
+        return store.snapshot().stream()
             .filter(tx -> tx.getStatus() == TransactionStatus.PENDING)
-            .collect(java.util.stream.Collectors.toList());
+            .collect(Collectors.toList());
     }
 
     public void cleanupProcessedTransactions() {
-        pendingTx.removeIf(tx -> tx.getStatus() != TransactionStatus.PENDING);
+        for (Transaction tx : store.snapshot()) {
+            if (tx.getStatus() != TransactionStatus.PENDING) {
+                removeTransaction(tx);
+            }
+        }
     }
+
+    // Read-only view in fee order; use removeTransaction to mutate the mempool
     public List<Transaction> getActualPendingList() {
-        return pendingTx; 
+        return Collections.unmodifiableList(store.snapshot());
     }
 
     public void clearMempool() {
-        pendingTx.clear();
+        events.writeLock().lock();
+        try {
+            store.clear();
+            count.set(0);
+            estimatedBytes.set(0);
+            for (MempoolListener listener : listeners) {
+                listener.onCleared();
+            }
+        } finally {
+            events.writeLock().unlock();
+        }
+        afterChange();
     }
 
+    // Added as one batch, so listeners handle them together
     public void generateRandomTransactions(int count) {
+        List<Transaction> generated = new ArrayList<>(count);
         String[] prefixes = {"1", "3", "bc1", "0x"};
         for (int i = 0; i < count; i++) {
             String source = generateRandomAddress(prefixes[random.nextInt(prefixes.length)]);
@@ -71,12 +363,84 @@ public class Mempool {
             Transaction tx = new Transaction(source, destination, amount, feeLevel);
             tx.setFee(fee);
             tx.setMock(true);
-            addTransactionIfNotExists(tx);
+            generated.add(tx);
         }
+        addTransactions(generated);
     }
 
     public int size() {
-        return pendingTx.size();
+        return count.get();
+    }
+
+    // Evicts the lowest-fee entries while over the limits and returns those of addedIds that
+    // were evicted, so their callers report them as not added. Every entry in the store has
+    // had its onAdded by the time the write lock is held, so all evictions are reported.
+    // The calling add runs afterChange once for both
+    private Set<UUID> trimToLimits(Set<UUID> addedIds) {
+        if (!limits.isExceeded(count.get(), estimatedBytes.get())) {
+            return Collections.emptySet();
+        }
+        Set<UUID> addedEvicted = new HashSet<>();
+        List<Transaction> evicted = new ArrayList<>();
+        events.writeLock().lock();
+        try {
+            while (limits.isExceeded(count.get(), estimatedBytes.get())) {
+                Transaction lowest = removed(store.pollLast());
+                if (lowest == null) {
+                    break;
+                }
+                raiseMinimumFee(lowest.getFee());
+                if (addedIds.contains(lowest.getId())) {
+                    addedEvicted.add(lowest.getId());
+                }
+                evicted.add(lowest);
+            }
+            if (!evicted.isEmpty()) {
+                for (MempoolListener listener : listeners) {
+                    listener.onEvictedBatch(evicted);
+                }
+            }
+        } finally {
+            events.writeLock().unlock();
+        }
+        return addedEvicted;
+    }
+
+    private synchronized void raiseMinimumFee(double evictedFee) {
+        double floor = evictedFee + limits.getIncrementalFee();
+        if (floor > getMinimumFee()) {
+            minimumFee = floor;
+            minimumFeeUpdatedAt = System.currentTimeMillis();
+        }
+    }
+
+    private Transaction removed(Transaction transaction) {
+        if (transaction != null) {
+            count.decrementAndGet();
+            estimatedBytes.addAndGet(-estimateSize(transaction));
+        }
+        return transaction;
+    }
+
+    private void afterChange() {
+        for (MempoolListener listener : listeners) {
+            listener.afterChange();
+        }
+    }
+
+    private Transaction notifyRemoved(Transaction transaction) {
+        if (transaction != null) {
+            for (MempoolListener listener : listeners) {
+                listener.onRemoved(transaction);
+            }
+        }
+        return transaction;
+    }
+
+    private static long estimateSize(Transaction transaction) {
+        return TRANSACTION_OVERHEAD_BYTES
+            + 2L * transaction.getSourceAddress().length()
+            + 2L * transaction.getDestinationAddress().length();
     }
 
     private String generateRandomAddress(String prefix) {
@@ -88,4 +452,4 @@ public class Mempool {
         }
         return sb.toString();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,24 @@
+package model;
+
+import java.util.Collections;
+import java.util.List;
+
+// One page of a wallet's history, newest first; the last transaction is the cursor for the next page
+public class TransactionPage {
+    private final List<Transaction> transactions;
+    private final boolean hasMore;
+
+    public TransactionPage(List<Transaction> transactions, boolean hasMore) {
+        this.transactions = Collections.unmodifiableList(transactions);
+        this.hasMore = hasMore;
+    }
+
+    public List<Transaction> getTransactions() { return transactions; }
+    public boolean hasMore() { return hasMore; }
+    public boolean isEmpty() { return transactions.isEmpty(); }
+
+    // Pass as "after" to fetch the following page; null when the page is empty
+    public Transaction getLast() {
+        return transactions.isEmpty() ? null : transactions.get(transactions.size() - 1);
+    }
+}
@@ -58,10 +58,17 @@ public class Wallet {
     public String getPassword(){ return password; }
     public CryptoType getType(){ return type; }
     
+    // Adds amount, which may be negative, unless the balance would go below zero
     public void SetBalance(double amount){
-        if(this.balance < 0) {
+        double newBalance = this.balance + amount;
+        if(Double.isNaN(newBalance) || newBalance < 0) {
             throw new IllegalStateException("Insufficient balance");
         }
-        this.balance += amount;
+        this.balance = newBalance;
+    }
+    
+    // Takes the balance the repository reports after an atomic update
+    public void refreshBalance(double storedBalance){
+        this.balance = storedBalance;
     }
 }
\ No newline at end of file
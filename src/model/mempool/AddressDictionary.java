@@ -0,0 +1,60 @@
+package model.mempool;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Interns addresses to int ids with reference counts so unused ids are recycled. Not thread-safe.
+class AddressDictionary {
+    private final Map<String, Integer> idsByAddress = new HashMap<>();
+    private final List<String> addresses = new ArrayList<>();
+    private int[] refCounts = new int[16];
+    private int[] freeIds = new int[16];
+    private int freeCount;
+
+    int acquire(String address) {
+        Integer id = idsByAddress.get(address);
+        if (id == null) {
+            id = freeCount > 0 ? freeIds[--freeCount] : addresses.size();
+            if (id == addresses.size()) {
+                addresses.add(address);
+            } else {
+                addresses.set(id, address);
+            }
+            if (id >= refCounts.length) {
+                refCounts = Arrays.copyOf(refCounts, refCounts.length * 2);
+            }
+            idsByAddress.put(address, id);
+        }
+        refCounts[id]++;
+        return id;
+    }
+
+    void release(int id) {
+        if (--refCounts[id] == 0) {
+            idsByAddress.remove(addresses.get(id));
+            addresses.set(id, null);
+            if (freeCount == freeIds.length) {
+                freeIds = Arrays.copyOf(freeIds, freeIds.length * 2);
+            }
+            freeIds[freeCount++] = id;
+        }
+    }
+
+    String get(int id) {
+        return addresses.get(id);
+    }
+
+    void clear() {
+        idsByAddress.clear();
+        addresses.clear();
+        Arrays.fill(refCounts, 0);
+        freeCount = 0;
+    }
+
+    int size() {
+        return idsByAddress.size();
+    }
+}
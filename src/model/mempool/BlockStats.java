@@ -0,0 +1,46 @@
+package model.mempool;
+
+import java.time.Duration;
+import java.time.Instant;
+
+// What one produced block contained and how long its transactions had waited
+public class BlockStats {
+    private final long height;
+    private final Instant producedAt;
+    private final int transactionCount;
+    private final double totalFees;
+    private final long usedBytes;
+    private final long usedGas;
+    private final Duration productionTime;
+    private final Duration averageLatency;
+    private final Duration maxLatency;
+    private final int mempoolSizeAfter;
+
+    public BlockStats(long height, Instant producedAt, int transactionCount, double totalFees, long usedBytes,
+                      long usedGas, Duration productionTime, Duration averageLatency, Duration maxLatency,
+                      int mempoolSizeAfter) {
+        this.height = height;
+        this.producedAt = producedAt;
+        this.transactionCount = transactionCount;
+        this.totalFees = totalFees;
+        this.usedBytes = usedBytes;
+        this.usedGas = usedGas;
+        this.productionTime = productionTime;
+        this.averageLatency = averageLatency;
+        this.maxLatency = maxLatency;
+        this.mempoolSizeAfter = mempoolSizeAfter;
+    }
+
+    public long getHeight() { return height; }
+    public Instant getProducedAt() { return producedAt; }
+    public int getTransactionCount() { return transactionCount; }
+    public double getTotalFees() { return totalFees; }
+    public long getUsedBytes() { return usedBytes; }
+    public long getUsedGas() { return usedGas; }
+    // Time spent building the template and confirming its transactions
+    public Duration getProductionTime() { return productionTime; }
+    // Time from creation to confirmation of the included transactions
+    public Duration getAverageLatency() { return averageLatency; }
+    public Duration getMaxLatency() { return maxLatency; }
+    public int getMempoolSizeAfter() { return mempoolSizeAfter; }
+}
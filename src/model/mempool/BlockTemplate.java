@@ -0,0 +1,27 @@
+package model.mempool;
+
+import java.util.Collections;
+import java.util.List;
+
+import model.Transaction;
+
+// Candidate block: the transactions a miner would include, best fee rate first per chain
+public class BlockTemplate {
+    private final List<Transaction> transactions;
+    private final double totalFees;
+    private final long usedBytes;
+    private final long usedGas;
+
+    public BlockTemplate(List<Transaction> transactions, double totalFees, long usedBytes, long usedGas) {
+        this.transactions = Collections.unmodifiableList(transactions);
+        this.totalFees = totalFees;
+        this.usedBytes = usedBytes;
+        this.usedGas = usedGas;
+    }
+
+    public List<Transaction> getTransactions() { return transactions; }
+    public double getTotalFees() { return totalFees; }
+    public long getUsedBytes() { return usedBytes; }
+    public long getUsedGas() { return usedGas; }
+    public boolean isEmpty() { return transactions.isEmpty(); }
+}
@@ -0,0 +1,38 @@
+package model.mempool;
+
+import java.util.UUID;
+
+// Outcome of a replace-by-fee on a pending transaction; a rejected one left the fee unchanged
+public class FeeBump {
+    private final UUID transactionId;
+    private final double oldFee;
+    private final double newFee;
+    private final int oldPosition;
+    private final int newPosition;
+    private final boolean accepted;
+
+    public FeeBump(UUID transactionId, double oldFee, double newFee, int oldPosition, int newPosition) {
+        this(transactionId, oldFee, newFee, oldPosition, newPosition, true);
+    }
+
+    private FeeBump(UUID transactionId, double oldFee, double newFee, int oldPosition, int newPosition, boolean accepted) {
+        this.transactionId = transactionId;
+        this.oldFee = oldFee;
+        this.newFee = newFee;
+        this.oldPosition = oldPosition;
+        this.newPosition = newPosition;
+        this.accepted = accepted;
+    }
+
+    // newFee is the fee that was asked for; the entry keeps oldFee and its position
+    public static FeeBump rejected(UUID transactionId, double currentFee, double requestedFee, int position) {
+        return new FeeBump(transactionId, currentFee, requestedFee, position, position, false);
+    }
+
+    public UUID getTransactionId() { return transactionId; }
+    public double getOldFee() { return oldFee; }
+    public double getNewFee() { return newFee; }
+    public int getOldPosition() { return oldPosition; }
+    public int getNewPosition() { return newPosition; }
+    public boolean isAccepted() { return accepted; }
+}
@@ -0,0 +1,347 @@
+package model.mempool;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.function.IntConsumer;
+import java.util.function.IntPredicate;
+
+/**
+ * Order-statistic treap over integer handles, ordered by score descending then
+ * by sequence ascending (so equal scores keep their arrival order).
+ * Insert, remove, rank and select are O(log n). Nodes live in parallel
+ * primitive arrays so the index itself creates no garbage per entry.
+ * Not thread-safe.
+ */
+public class FeeIndex {
+    private static final int NIL = -1;
+    private static final int INITIAL_CAPACITY = 16;
+
+    private double[] score;
+    private long[] sequence;
+    private int[] left;
+    private int[] right;
+    private int[] size;
+    private int[] priority;
+
+    private int[] freeHandles;
+    private int freeCount;
+    private int nextHandle;
+
+    private int root = NIL;
+    private final Random random = new Random();
+    private final int[] splitResult = new int[2];
+
+    public FeeIndex() {
+        this(INITIAL_CAPACITY);
+    }
+
+    public FeeIndex(int initialCapacity) {
+        int capacity = Math.max(INITIAL_CAPACITY, initialCapacity);
+        score = new double[capacity];
+        sequence = new long[capacity];
+        left = new int[capacity];
+        right = new int[capacity];
+        size = new int[capacity];
+        priority = new int[capacity];
+        freeHandles = new int[capacity];
+    }
+
+    // Inserts a new entry and returns its handle
+    public int insert(double entryScore, long entrySequence) {
+        int h = allocateHandle();
+        score[h] = entryScore;
+        sequence[h] = entrySequence;
+        left[h] = NIL;
+        right[h] = NIL;
+        size[h] = 1;
+        priority[h] = random.nextInt();
+        root = insert(root, h);
+        return h;
+    }
+
+    public boolean remove(int h) {
+        if (!contains(h)) {
+            return false;
+        }
+        root = remove(root, h);
+        size[h] = 0;
+        releaseHandle(h);
+        return true;
+    }
+
+    // Moves an entry to a new score, keeping its handle and sequence
+    public void updateScore(int h, double newScore) {
+        if (!contains(h)) {
+            throw new IllegalArgumentException("Unknown handle " + h);
+        }
+        root = remove(root, h);
+        score[h] = newScore;
+        left[h] = NIL;
+        right[h] = NIL;
+        size[h] = 1;
+        root = insert(root, h);
+    }
+
+    public boolean contains(int h) {
+        return h >= 0 && h < nextHandle && size[h] > 0;
+    }
+
+    public double score(int h) {
+        return score[h];
+    }
+
+    public long sequence(int h) {
+        return sequence[h];
+    }
+
+    public int size() {
+        return sizeOf(root);
+    }
+
+    // Size of the handle space, for callers keeping parallel arrays
+    public int capacity() {
+        return score.length;
+    }
+
+    // 1-based position of the entry, or -1 if absent
+    public int rank(int h) {
+        if (!contains(h)) {
+            return -1;
+        }
+        return countBefore(score[h], sequence[h]) + 1;
+    }
+
+    // Number of entries ordered strictly before (entryScore, entrySequence)
+    public int countBefore(double entryScore, long entrySequence) {
+        int count = 0;
+        int t = root;
+        while (t != NIL) {
+            if (before(score[t], sequence[t], entryScore, entrySequence)) {
+                count += sizeOf(left[t]) + 1;
+                t = right[t];
+            } else {
+                t = left[t];
+            }
+        }
+        return count;
+    }
+
+    // Number of entries whose score is greater than or equal to the given one
+    public int countAtLeast(double minScore) {
+        return countBefore(minScore, Long.MAX_VALUE);
+    }
+
+    // countAtLeast for a batch of scores in one descent of the tree
+    public int[] countAtLeast(double[] minScores) {
+        Integer[] order = new Integer[minScores.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Double.compare(minScores[b], minScores[a]));
+        double[] sorted = new double[minScores.length];
+        for (int i = 0; i < order.length; i++) {
+            sorted[i] = minScores[order[i]];
+        }
+        int[] sortedCounts = new int[sorted.length];
+        countAtLeast(root, sorted, 0, sorted.length, 0, sortedCounts);
+        int[] counts = new int[minScores.length];
+        for (int i = 0; i < order.length; i++) {
+            counts[order[i]] = sortedCounts[i];
+        }
+        return counts;
+    }
+
+    // Handle at the given 1-based position, or -1 if out of range
+    public int select(int position) {
+        if (position < 1 || position > size()) {
+            return NIL;
+        }
+        int t = root;
+        int k = position;
+        while (t != NIL) {
+            int leftSize = sizeOf(left[t]);
+            if (k <= leftSize) {
+                t = left[t];
+            } else if (k == leftSize + 1) {
+                return t;
+            } else {
+                k -= leftSize + 1;
+                t = right[t];
+            }
+        }
+        return NIL;
+    }
+
+    public int first() {
+        return select(1);
+    }
+
+    public int last() {
+        return select(size());
+    }
+
+    // Visits every handle in order
+    public void forEach(IntConsumer action) {
+        forEachWhile(h -> {
+            action.accept(h);
+            return true;
+        });
+    }
+
+    // Visits handles in order until the predicate returns false; costs O(visited + log n)
+    public void forEachWhile(IntPredicate action) {
+        int[] stack = new int[64];
+        int depth = 0;
+        int t = root;
+        while (t != NIL || depth > 0) {
+            while (t != NIL) {
+                if (depth == stack.length) {
+                    stack = Arrays.copyOf(stack, depth * 2);
+                }
+                stack[depth++] = t;
+                t = left[t];
+            }
+            t = stack[--depth];
+            if (!action.test(t)) {
+                return;
+            }
+            t = right[t];
+        }
+    }
+
+    public void clear() {
+        root = NIL;
+        nextHandle = 0;
+        freeCount = 0;
+        Arrays.fill(size, 0);
+    }
+
+    private static boolean before(double s1, long q1, double s2, long q2) {
+        int cmp = Double.compare(s2, s1);
+        return cmp < 0 || (cmp == 0 && q1 < q2);
+    }
+
+    private boolean before(int a, int b) {
+        return before(score[a], sequence[a], score[b], sequence[b]);
+    }
+
+    private int sizeOf(int t) {
+        return t == NIL ? 0 : size[t];
+    }
+
+    private void update(int t) {
+        size[t] = sizeOf(left[t]) + sizeOf(right[t]) + 1;
+    }
+
+    // Scores in [from, to) are sorted descending; counts receives, for each, the entries >= it
+    private void countAtLeast(int t, double[] scores, int from, int to, int base, int[] counts) {
+        if (from == to) {
+            return;
+        }
+        if (t == NIL) {
+            Arrays.fill(counts, from, to, base);
+            return;
+        }
+        int split = from;
+        while (split < to && scores[split] > score[t]) {
+            split++;
+        }
+        countAtLeast(left[t], scores, from, split, base, counts);
+        countAtLeast(right[t], scores, split, to, base + sizeOf(left[t]) + 1, counts);
+    }
+
+    private int insert(int t, int h) {
+        if (t == NIL) {
+            return h;
+        }
+        if (priority[h] > priority[t]) {
+            split(t, h);
+            left[h] = splitResult[0];
+            right[h] = splitResult[1];
+            update(h);
+            return h;
+        }
+        if (before(h, t)) {
+            left[t] = insert(left[t], h);
+        } else {
+            right[t] = insert(right[t], h);
+        }
+        update(t);
+        return t;
+    }
+
+    private int remove(int t, int h) {
+        if (t == h) {
+            return merge(left[t], right[t]);
+        }
+        if (before(h, t)) {
+            left[t] = remove(left[t], h);
+        } else {
+            right[t] = remove(right[t], h);
+        }
+        update(t);
+        return t;
+    }
+
+    // Splits t into entries before h (splitResult[0]) and after h (splitResult[1])
+    private void split(int t, int h) {
+        if (t == NIL) {
+            splitResult[0] = NIL;
+            splitResult[1] = NIL;
+            return;
+        }
+        if (before(t, h)) {
+            split(right[t], h);
+            right[t] = splitResult[0];
+            update(t);
+            splitResult[0] = t;
+        } else {
+            split(left[t], h);
+            left[t] = splitResult[1];
+            update(t);
+            splitResult[1] = t;
+        }
+    }
+
+    private int merge(int a, int b) {
+        if (a == NIL) {
+            return b;
+        }
+        if (b == NIL) {
+            return a;
+        }
+        if (priority[a] > priority[b]) {
+            right[a] = merge(right[a], b);
+            update(a);
+            return a;
+        }
+        left[b] = merge(a, left[b]);
+        update(b);
+        return b;
+    }
+
+    private int allocateHandle() {
+        if (freeCount > 0) {
+            return freeHandles[--freeCount];
+        }
+        if (nextHandle == score.length) {
+            grow();
+        }
+        return nextHandle++;
+    }
+
+    private void releaseHandle(int h) {
+        freeHandles[freeCount++] = h;
+    }
+
+    private void grow() {
+        int capacity = score.length * 2;
+        score = Arrays.copyOf(score, capacity);
+        sequence = Arrays.copyOf(sequence, capacity);
+        left = Arrays.copyOf(left, capacity);
+        right = Arrays.copyOf(right, capacity);
+        size = Arrays.copyOf(size, capacity);
+        priority = Arrays.copyOf(priority, capacity);
+        freeHandles = Arrays.copyOf(freeHandles, capacity);
+    }
+}
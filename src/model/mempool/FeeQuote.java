@@ -0,0 +1,20 @@
+package model.mempool;
+
+import java.time.Duration;
+
+// Position and wait a transaction would get with a given fee, without entering the mempool
+public class FeeQuote {
+    private final double fee;
+    private final int position;
+    private final Duration estimatedTime;
+
+    public FeeQuote(double fee, int position, Duration estimatedTime) {
+        this.fee = fee;
+        this.position = position;
+        this.estimatedTime = estimatedTime;
+    }
+
+    public double getFee() { return fee; }
+    public int getPosition() { return position; }
+    public Duration getEstimatedTime() { return estimatedTime; }
+}
@@ -0,0 +1,106 @@
+package model.mempool;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import model.Transaction;
+
+// Default store: one fee-indexed table behind a single monitor
+public class IndexedMempoolStore implements MempoolStore {
+    private final TransactionTable table = new TransactionTable();
+    private long nextSequence;
+
+    @Override
+    public synchronized boolean add(Transaction transaction) {
+        if (table.add(transaction, nextSequence)) {
+            nextSequence++;
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public synchronized void addAll(List<Transaction> transactions, boolean[] added) {
+        for (int i = 0; i < transactions.size(); i++) {
+            added[i] = add(transactions.get(i));
+        }
+    }
+
+    @Override
+    public synchronized Transaction remove(UUID transactionId) {
+        return table.remove(transactionId);
+    }
+
+    @Override
+    public synchronized Transaction get(UUID transactionId) {
+        int handle = table.handle(transactionId);
+        return handle < 0 ? null : table.at(handle);
+    }
+
+    @Override
+    public synchronized int rank(UUID transactionId) {
+        int handle = table.handle(transactionId);
+        return handle < 0 ? -1 : table.rank(handle);
+    }
+
+    @Override
+    public synchronized int[] countAtLeast(double[] fees) {
+        return table.countAtLeast(fees);
+    }
+
+    @Override
+    public synchronized double feeAtPosition(int position) {
+        int handle = table.select(position);
+        return handle < 0 ? Double.NaN : table.fee(handle);
+    }
+
+    @Override
+    public synchronized Transaction pollFirst() {
+        int handle = table.first();
+        return handle < 0 ? null : table.removeHandle(handle);
+    }
+
+    @Override
+    public synchronized Transaction pollLast() {
+        int handle = table.last();
+        return handle < 0 ? null : table.removeHandle(handle);
+    }
+
+    @Override
+    public synchronized FeeBump replaceFee(UUID transactionId, double newFee, double incrementalFee) {
+        int handle = table.handle(transactionId);
+        if (handle < 0) {
+            return null;
+        }
+        double oldFee = table.fee(handle);
+        int oldPosition = table.rank(handle);
+        if (!MempoolStore.isValidReplacement(oldFee, newFee, incrementalFee)) {
+            return FeeBump.rejected(transactionId, oldFee, newFee, oldPosition);
+        }
+        table.updateFee(handle, newFee);
+        return new FeeBump(transactionId, oldFee, newFee, oldPosition, table.rank(handle));
+    }
+
+    @Override
+    public synchronized void reindex() {
+        table.reindex();
+    }
+
+    @Override
+    public synchronized List<Transaction> snapshot() {
+        List<Transaction> result = new ArrayList<>(table.size());
+        table.forEach(result::add);
+        return result;
+    }
+
+    @Override
+    public synchronized void clear() {
+        table.clear();
+    }
+
+    @Override
+    public synchronized int size() {
+        return table.size();
+    }
+}
@@ -0,0 +1,36 @@
+package model.mempool;
+
+import java.time.Duration;
+
+// Size caps of the mempool and the fee floor policy applied once they are hit
+public class MempoolLimits {
+    private final int maxTransactions;
+    private final long maxBytes;
+    private final double incrementalFee;
+    private final Duration floorHalfLife;
+
+    // 0 disables the corresponding cap
+    public MempoolLimits(int maxTransactions, long maxBytes, double incrementalFee, Duration floorHalfLife) {
+        if (maxTransactions < 0 || maxBytes < 0 || incrementalFee < 0 || floorHalfLife.isNegative()) {
+            throw new IllegalArgumentException("Limites du mempool invalides");
+        }
+        this.maxTransactions = maxTransactions;
+        this.maxBytes = maxBytes;
+        this.incrementalFee = incrementalFee;
+        this.floorHalfLife = floorHalfLife;
+    }
+
+    public static MempoolLimits unbounded() {
+        return new MempoolLimits(0, 0, 0, Duration.ZERO);
+    }
+
+    public int getMaxTransactions() { return maxTransactions; }
+    public long getMaxBytes() { return maxBytes; }
+    public double getIncrementalFee() { return incrementalFee; }
+    public Duration getFloorHalfLife() { return floorHalfLife; }
+
+    public boolean isExceeded(int transactions, long bytes) {
+        return (maxTransactions > 0 && transactions > maxTransactions)
+            || (maxBytes > 0 && bytes > maxBytes);
+    }
+}
@@ -0,0 +1,41 @@
+package model.mempool;
+
+import model.Transaction;
+import java.util.List;
+
+/**
+ * Callbacks fired by model.Mempool after its contents change. The event
+ * callbacks run under the mempool's lock, in the order of the changes, and
+ * should only record what happened; anything that waits, such as disk or
+ * database I/O, belongs in afterChange.
+ */
+public interface MempoolListener {
+    default void onAdded(Transaction transaction) {}
+
+    // All transactions added by one bulk insert, in order; override to handle them together
+    default void onAddedBatch(List<Transaction> transactions) {
+        for (Transaction transaction : transactions) {
+            onAdded(transaction);
+        }
+    }
+
+    // The transaction carries its final status (CONFIRMED, REJECTED) when the caller set one
+    default void onRemoved(Transaction transaction) {}
+
+    default void onFeeBumped(FeeBump bump) {}
+
+    default void onCleared() {}
+
+    // A pending transaction was dropped to keep the mempool under its limits
+    default void onEvicted(Transaction transaction) {}
+
+    // All transactions evicted by one insertion; override to handle them together
+    default void onEvictedBatch(List<Transaction> transactions) {
+        for (Transaction transaction : transactions) {
+            onEvicted(transaction);
+        }
+    }
+
+    // Called once per change by the thread that made it, after its event callbacks, holding no mempool lock
+    default void afterChange() {}
+}
@@ -0,0 +1,70 @@
+package model.mempool;
+
+import model.Transaction;
+import java.util.List;
+
+// Fee aggregates shown in the mempool statistics screen
+public class MempoolStats {
+    private final int count;
+    private final double totalFees;
+    private final double minFee;
+    private final double maxFee;
+    private final int lowFeeCount;
+    private final int mediumFeeCount;
+    private final int highFeeCount;
+
+    public MempoolStats(int count, double totalFees, double minFee, double maxFee,
+                        int lowFeeCount, int mediumFeeCount, int highFeeCount) {
+        this.count = count;
+        this.totalFees = totalFees;
+        this.minFee = minFee;
+        this.maxFee = maxFee;
+        this.lowFeeCount = lowFeeCount;
+        this.mediumFeeCount = mediumFeeCount;
+        this.highFeeCount = highFeeCount;
+    }
+
+    /**
+     * Low fees are below half the average, high fees at or above one and a half
+     * times it. One pass gathers the fees and totals, a second buckets them.
+     */
+    public static MempoolStats of(List<Transaction> transactions) {
+        int count = transactions.size();
+        if (count == 0) {
+            return new MempoolStats(0, 0, 0, 0, 0, 0, 0);
+        }
+        double[] fees = new double[count];
+        double total = 0;
+        double min = Double.POSITIVE_INFINITY;
+        double max = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < count; i++) {
+            double fee = transactions.get(i).getFee();
+            fees[i] = fee;
+            total += fee;
+            min = Math.min(min, fee);
+            max = Math.max(max, fee);
+        }
+        double average = total / count;
+        double lowBound = average * 0.5;
+        double highBound = average * 1.5;
+        int low = 0;
+        int high = 0;
+        for (double fee : fees) {
+            if (fee < lowBound) {
+                low++;
+            } else if (fee >= highBound) {
+                high++;
+            }
+        }
+        return new MempoolStats(count, total, min, max, low, count - low - high, high);
+    }
+
+    public int getCount() { return count; }
+    public double getTotalFees() { return totalFees; }
+    public double getAverageFee() { return count > 0 ? totalFees / count : 0; }
+    public double getMinFee() { return minFee; }
+    public double getMaxFee() { return maxFee; }
+    public int getLowFeeCount() { return lowFeeCount; }
+    public int getMediumFeeCount() { return mediumFeeCount; }
+    public int getHighFeeCount() { return highFeeCount; }
+}
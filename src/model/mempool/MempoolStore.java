@@ -0,0 +1,60 @@
+package model.mempool;
+
+import java.util.List;
+import java.util.UUID;
+
+import model.Transaction;
+
+// Storage strategy behind model.Mempool; implementations must be thread-safe
+public interface MempoolStore {
+    boolean add(Transaction transaction);
+
+    // Bulk insert; added[i] tells whether transactions.get(i) was new. Stores override
+    // this to take their lock once per batch instead of once per transaction
+    default void addAll(List<Transaction> transactions, boolean[] added) {
+        for (int i = 0; i < transactions.size(); i++) {
+            added[i] = add(transactions.get(i));
+        }
+    }
+
+    Transaction remove(UUID transactionId);
+
+    Transaction get(UUID transactionId);
+
+    // 1-based position in fee order, or -1 if absent
+    int rank(UUID transactionId);
+
+    // For each fee, how many entries pay at least that much (read-only)
+    int[] countAtLeast(double[] fees);
+
+    // Fee of the entry at the given 1-based position, or NaN if out of range
+    double feeAtPosition(int position);
+
+    // Removes and returns the highest-fee transaction, or null if empty
+    Transaction pollFirst();
+
+    // Removes and returns the lowest-fee transaction, or null if empty
+    Transaction pollLast();
+
+    /**
+     * Atomically checks and applies a replace-by-fee: the entry takes newFee and
+     * is repositioned only if newFee beats its current fee by at least
+     * incrementalFee, otherwise the returned bump is rejected. Null if absent.
+     */
+    FeeBump replaceFee(UUID transactionId, double newFee, double incrementalFee);
+
+    // The replacement rule replaceFee applies under the store's lock
+    static boolean isValidReplacement(double currentFee, double newFee, double incrementalFee) {
+        return newFee > currentFee && newFee >= currentFee + incrementalFee;
+    }
+
+    // Re-indexes entries whose fee was changed in place
+    void reindex();
+
+    // Point-in-time copy of the contents in fee order
+    List<Transaction> snapshot();
+
+    void clear();
+
+    int size();
+}
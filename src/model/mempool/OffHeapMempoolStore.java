@@ -0,0 +1,340 @@
+package model.mempool;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+import model.Transaction;
+import model.enums.FeeLevel;
+import model.enums.TransactionStatus;
+
+/**
+ * Columnar store for very large mempools. The hot fields of each pending
+ * transaction live in direct (off-heap) buffers, one column per field,
+ * indexed by the fee index handle; addresses are interned in a dictionary.
+ * Per transaction, the Java heap only holds primitive index arrays, so GC
+ * cost no longer grows with the mempool. The dictionary does keep each
+ * distinct address as a heap String, once, however many transactions use it.
+ *
+ * Transactions handed out are detached views: changing them does not
+ * change the stored entry.
+ */
+public class OffHeapMempoolStore implements MempoolStore {
+    private static final FeeLevel[] FEE_LEVELS = FeeLevel.values();
+    private static final TransactionStatus[] STATUSES = TransactionStatus.values();
+    private static final byte FLAG_MOCK = 1;
+    private static final byte FLAG_HAS_WALLET = 2;
+    private static final int EMPTY = 0;
+
+    private final FeeIndex feeIndex;
+    private final AddressDictionary addresses = new AddressDictionary();
+    private int capacity;
+
+    // Columns, addressed by slot (= fee index handle)
+    private ByteBuffer fees;
+    private ByteBuffer amounts;
+    private ByteBuffer idHigh;
+    private ByteBuffer idLow;
+    private ByteBuffer walletHigh;
+    private ByteBuffer walletLow;
+    private ByteBuffer createdAtMicros;
+    private ByteBuffer feeLevels;
+    private ByteBuffer statuses;
+    private ByteBuffer flags;
+    private ByteBuffer sources;
+    private ByteBuffer destinations;
+
+    // Open-addressing UUID index holding slot + 1 (0 = empty)
+    private int[] idTable;
+    private int size;
+    private long nextSequence;
+
+    public OffHeapMempoolStore() {
+        this(1024);
+    }
+
+    public OffHeapMempoolStore(int initialCapacity) {
+        feeIndex = new FeeIndex(initialCapacity);
+        capacity = feeIndex.capacity();
+        fees = allocate(capacity * 8);
+        amounts = allocate(capacity * 8);
+        idHigh = allocate(capacity * 8);
+        idLow = allocate(capacity * 8);
+        walletHigh = allocate(capacity * 8);
+        walletLow = allocate(capacity * 8);
+        createdAtMicros = allocate(capacity * 8);
+        feeLevels = allocate(capacity);
+        statuses = allocate(capacity);
+        flags = allocate(capacity);
+        sources = allocate(capacity * 4);
+        destinations = allocate(capacity * 4);
+        idTable = new int[tableSizeFor(capacity)];
+    }
+
+    @Override
+    public synchronized boolean add(Transaction transaction) {
+        UUID id = transaction.getId();
+        if (findSlot(id.getMostSignificantBits(), id.getLeastSignificantBits()) >= 0) {
+            return false;
+        }
+        int slot = feeIndex.insert(transaction.getFee(), nextSequence++);
+        if (slot >= capacity) {
+            growColumns(feeIndex.capacity());
+        }
+        write(slot, transaction);
+        size++;
+        if (size * 2 > idTable.length) {
+            rehash(idTable.length * 2);
+        }
+        insertId(slot);
+        return true;
+    }
+
+    @Override
+    public synchronized void addAll(List<Transaction> transactions, boolean[] added) {
+        for (int i = 0; i < transactions.size(); i++) {
+            added[i] = add(transactions.get(i));
+        }
+    }
+
+    @Override
+    public synchronized Transaction remove(UUID transactionId) {
+        int slot = findSlot(transactionId.getMostSignificantBits(), transactionId.getLeastSignificantBits());
+        return slot < 0 ? null : removeSlot(slot);
+    }
+
+    @Override
+    public synchronized Transaction get(UUID transactionId) {
+        int slot = findSlot(transactionId.getMostSignificantBits(), transactionId.getLeastSignificantBits());
+        return slot < 0 ? null : materialize(slot);
+    }
+
+    @Override
+    public synchronized int rank(UUID transactionId) {
+        int slot = findSlot(transactionId.getMostSignificantBits(), transactionId.getLeastSignificantBits());
+        return slot < 0 ? -1 : feeIndex.rank(slot);
+    }
+
+    @Override
+    public synchronized int[] countAtLeast(double[] fees) {
+        return feeIndex.countAtLeast(fees);
+    }
+
+    @Override
+    public synchronized double feeAtPosition(int position) {
+        int slot = feeIndex.select(position);
+        return slot < 0 ? Double.NaN : feeIndex.score(slot);
+    }
+
+    @Override
+    public synchronized Transaction pollFirst() {
+        int slot = feeIndex.first();
+        return slot < 0 ? null : removeSlot(slot);
+    }
+
+    @Override
+    public synchronized Transaction pollLast() {
+        int slot = feeIndex.last();
+        return slot < 0 ? null : removeSlot(slot);
+    }
+
+    @Override
+    public synchronized FeeBump replaceFee(UUID transactionId, double newFee, double incrementalFee) {
+        int slot = findSlot(transactionId.getMostSignificantBits(), transactionId.getLeastSignificantBits());
+        if (slot < 0) {
+            return null;
+        }
+        double oldFee = fees.getDouble(slot * 8);
+        int oldPosition = feeIndex.rank(slot);
+        if (!MempoolStore.isValidReplacement(oldFee, newFee, incrementalFee)) {
+            return FeeBump.rejected(transactionId, oldFee, newFee, oldPosition);
+        }
+        feeIndex.updateScore(slot, newFee);
+        fees.putDouble(slot * 8, newFee);
+        return new FeeBump(transactionId, oldFee, newFee, oldPosition, feeIndex.rank(slot));
+    }
+
+    // Views are detached, so there is never an in-place fee change to pick up
+    @Override
+    public void reindex() {
+    }
+
+    @Override
+    public synchronized List<Transaction> snapshot() {
+        List<Transaction> result = new ArrayList<>(size);
+        feeIndex.forEach(slot -> result.add(materialize(slot)));
+        return result;
+    }
+
+    @Override
+    public synchronized void clear() {
+        feeIndex.clear();
+        addresses.clear();
+        Arrays.fill(idTable, EMPTY);
+        size = 0;
+    }
+
+    @Override
+    public synchronized int size() {
+        return size;
+    }
+
+    private void write(int slot, Transaction tx) {
+        int offset = slot * 8;
+        fees.putDouble(offset, tx.getFee());
+        amounts.putDouble(offset, tx.getAmount());
+        idHigh.putLong(offset, tx.getId().getMostSignificantBits());
+        idLow.putLong(offset, tx.getId().getLeastSignificantBits());
+        byte flag = tx.isMock() ? FLAG_MOCK : 0;
+        if (tx.getWalletId() != null) {
+            flag |= FLAG_HAS_WALLET;
+            walletHigh.putLong(offset, tx.getWalletId().getMostSignificantBits());
+            walletLow.putLong(offset, tx.getWalletId().getLeastSignificantBits());
+        }
+        createdAtMicros.putLong(offset, toMicros(tx.getCreatedAt()));
+        feeLevels.put(slot, (byte) tx.getFeeLevel().ordinal());
+        statuses.put(slot, (byte) tx.getStatus().ordinal());
+        flags.put(slot, flag);
+        sources.putInt(slot * 4, addresses.acquire(tx.getSourceAddress()));
+        destinations.putInt(slot * 4, addresses.acquire(tx.getDestinationAddress()));
+    }
+
+    private Transaction materialize(int slot) {
+        int offset = slot * 8;
+        byte flag = flags.get(slot);
+        UUID walletId = (flag & FLAG_HAS_WALLET) != 0
+            ? new UUID(walletHigh.getLong(offset), walletLow.getLong(offset))
+            : null;
+        Transaction tx = new Transaction(
+            new UUID(idHigh.getLong(offset), idLow.getLong(offset)),
+            walletId,
+            addresses.get(sources.getInt(slot * 4)),
+            addresses.get(destinations.getInt(slot * 4)),
+            amounts.getDouble(offset),
+            fees.getDouble(offset),
+            FEE_LEVELS[feeLevels.get(slot)],
+            STATUSES[statuses.get(slot)],
+            fromMicros(createdAtMicros.getLong(offset))
+        );
+        tx.setMock((flag & FLAG_MOCK) != 0);
+        return tx;
+    }
+
+    private Transaction removeSlot(int slot) {
+        Transaction tx = materialize(slot);
+        deleteId(slot);
+        addresses.release(sources.getInt(slot * 4));
+        addresses.release(destinations.getInt(slot * 4));
+        feeIndex.remove(slot);
+        size--;
+        return tx;
+    }
+
+    private int findSlot(long high, long low) {
+        int mask = idTable.length - 1;
+        for (int i = hash(high, low) & mask; ; i = (i + 1) & mask) {
+            int entry = idTable[i];
+            if (entry == EMPTY) {
+                return -1;
+            }
+            int slot = entry - 1;
+            if (idHigh.getLong(slot * 8) == high && idLow.getLong(slot * 8) == low) {
+                return slot;
+            }
+        }
+    }
+
+    private void insertId(int slot) {
+        int mask = idTable.length - 1;
+        int i = hash(idHigh.getLong(slot * 8), idLow.getLong(slot * 8)) & mask;
+        while (idTable[i] != EMPTY) {
+            i = (i + 1) & mask;
+        }
+        idTable[i] = slot + 1;
+    }
+
+    // Linear-probing delete with backward shift, so lookups never need tombstones
+    private void deleteId(int slot) {
+        int mask = idTable.length - 1;
+        int i = hash(idHigh.getLong(slot * 8), idLow.getLong(slot * 8)) & mask;
+        while (idTable[i] != slot + 1) {
+            i = (i + 1) & mask;
+        }
+        int hole = i;
+        for (int j = (hole + 1) & mask; idTable[j] != EMPTY; j = (j + 1) & mask) {
+            int other = idTable[j] - 1;
+            int home = hash(idHigh.getLong(other * 8), idLow.getLong(other * 8)) & mask;
+            if (((j - home) & mask) >= ((j - hole) & mask)) {
+                idTable[hole] = idTable[j];
+                hole = j;
+            }
+        }
+        idTable[hole] = EMPTY;
+    }
+
+    private void rehash(int newLength) {
+        int[] old = idTable;
+        idTable = new int[newLength];
+        for (int entry : old) {
+            if (entry != EMPTY) {
+                insertId(entry - 1);
+            }
+        }
+    }
+
+    private void growColumns(int newCapacity) {
+        fees = grow(fees, newCapacity * 8);
+        amounts = grow(amounts, newCapacity * 8);
+        idHigh = grow(idHigh, newCapacity * 8);
+        idLow = grow(idLow, newCapacity * 8);
+        walletHigh = grow(walletHigh, newCapacity * 8);
+        walletLow = grow(walletLow, newCapacity * 8);
+        createdAtMicros = grow(createdAtMicros, newCapacity * 8);
+        feeLevels = grow(feeLevels, newCapacity);
+        statuses = grow(statuses, newCapacity);
+        flags = grow(flags, newCapacity);
+        sources = grow(sources, newCapacity * 4);
+        destinations = grow(destinations, newCapacity * 4);
+        capacity = newCapacity;
+    }
+
+    private static ByteBuffer allocate(int bytes) {
+        return ByteBuffer.allocateDirect(bytes).order(ByteOrder.nativeOrder());
+    }
+
+    private static ByteBuffer grow(ByteBuffer old, int bytes) {
+        ByteBuffer grown = allocate(bytes);
+        ByteBuffer source = old.duplicate();
+        source.clear();
+        grown.put(source);
+        grown.clear();
+        return grown;
+    }
+
+    private static int hash(long high, long low) {
+        long h = high ^ low;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        return (int) h;
+    }
+
+    private static int tableSizeFor(int entries) {
+        return Integer.highestOneBit(Math.max(16, entries * 2 - 1)) << 1;
+    }
+
+    private static long toMicros(LocalDateTime time) {
+        return time.toEpochSecond(ZoneOffset.UTC) * 1_000_000L + time.getNano() / 1_000;
+    }
+
+    private static LocalDateTime fromMicros(long micros) {
+        long seconds = Math.floorDiv(micros, 1_000_000L);
+        int nanos = (int) Math.floorMod(micros, 1_000_000L) * 1_000;
+        return LocalDateTime.ofEpochSecond(seconds, nanos, ZoneOffset.UTC);
+    }
+}
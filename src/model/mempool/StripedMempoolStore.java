@@ -0,0 +1,359 @@
+package model.mempool;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+import model.Transaction;
+
+/**
+ * Lock-striped store for parallel submitters and miners. Transactions are
+ * spread over independent fee-indexed tables by UUID hash, so inserts and
+ * removals only contend on one stripe. A global sequence keeps arrival order
+ * across stripes; ranks and snapshots combine the stripes and are weakly
+ * consistent while writers are active.
+ */
+public class StripedMempoolStore implements MempoolStore {
+    private final TransactionTable[] tables;
+    private final ReentrantLock[] locks;
+    private final AtomicLong nextSequence = new AtomicLong();
+
+    public StripedMempoolStore() {
+        this(Runtime.getRuntime().availableProcessors() * 4);
+    }
+
+    public StripedMempoolStore(int stripes) {
+        int count = stripes <= 1 ? 1 : Integer.highestOneBit(stripes - 1) << 1;
+        tables = new TransactionTable[count];
+        locks = new ReentrantLock[count];
+        for (int i = 0; i < count; i++) {
+            tables[i] = new TransactionTable();
+            locks[i] = new ReentrantLock();
+        }
+    }
+
+    @Override
+    public boolean add(Transaction transaction) {
+        int stripe = stripeOf(transaction.getId());
+        locks[stripe].lock();
+        try {
+            return tables[stripe].add(transaction, nextSequence.getAndIncrement());
+        } finally {
+            locks[stripe].unlock();
+        }
+    }
+
+    // Groups the batch by stripe so each stripe lock is taken once
+    @Override
+    public void addAll(List<Transaction> transactions, boolean[] added) {
+        int[] stripeOf = new int[transactions.size()];
+        int[] counts = new int[tables.length + 1];
+        for (int i = 0; i < stripeOf.length; i++) {
+            stripeOf[i] = stripeOf(transactions.get(i).getId());
+            counts[stripeOf[i] + 1]++;
+        }
+        for (int s = 0; s < tables.length; s++) {
+            counts[s + 1] += counts[s];
+        }
+        int[] order = new int[stripeOf.length];
+        int[] next = Arrays.copyOf(counts, tables.length);
+        for (int i = 0; i < stripeOf.length; i++) {
+            order[next[stripeOf[i]]++] = i;
+        }
+        for (int s = 0; s < tables.length; s++) {
+            if (counts[s] == counts[s + 1]) {
+                continue;
+            }
+            locks[s].lock();
+            try {
+                for (int k = counts[s]; k < counts[s + 1]; k++) {
+                    int i = order[k];
+                    added[i] = tables[s].add(transactions.get(i), nextSequence.getAndIncrement());
+                }
+            } finally {
+                locks[s].unlock();
+            }
+        }
+    }
+
+    @Override
+    public Transaction remove(UUID transactionId) {
+        int stripe = stripeOf(transactionId);
+        locks[stripe].lock();
+        try {
+            return tables[stripe].remove(transactionId);
+        } finally {
+            locks[stripe].unlock();
+        }
+    }
+
+    @Override
+    public Transaction get(UUID transactionId) {
+        int stripe = stripeOf(transactionId);
+        locks[stripe].lock();
+        try {
+            int handle = tables[stripe].handle(transactionId);
+            return handle < 0 ? null : tables[stripe].at(handle);
+        } finally {
+            locks[stripe].unlock();
+        }
+    }
+
+    @Override
+    public int rank(UUID transactionId) {
+        int stripe = stripeOf(transactionId);
+        double fee;
+        long sequence;
+        locks[stripe].lock();
+        try {
+            int handle = tables[stripe].handle(transactionId);
+            if (handle < 0) {
+                return -1;
+            }
+            fee = tables[stripe].fee(handle);
+            sequence = tables[stripe].sequence(handle);
+        } finally {
+            locks[stripe].unlock();
+        }
+        return countBefore(fee, sequence) + 1;
+    }
+
+    @Override
+    public int[] countAtLeast(double[] fees) {
+        int[] counts = new int[fees.length];
+        for (int i = 0; i < tables.length; i++) {
+            int[] stripeCounts;
+            locks[i].lock();
+            try {
+                stripeCounts = tables[i].countAtLeast(fees);
+            } finally {
+                locks[i].unlock();
+            }
+            for (int j = 0; j < counts.length; j++) {
+                counts[j] += stripeCounts[j];
+            }
+        }
+        return counts;
+    }
+
+    // Selection across stripes: binary search for the largest fee that at least
+    // `position` entries pay, over the bit patterns of non-negative doubles
+    @Override
+    public double feeAtPosition(int position) {
+        if (position < 1 || countAtLeast(new double[] {0.0})[0] < position) {
+            return Double.NaN;
+        }
+        long low = Double.doubleToLongBits(0.0);
+        long high = Double.doubleToLongBits(Double.MAX_VALUE);
+        while (low < high) {
+            long mid = low + (high - low + 1) / 2;
+            if (countAtLeast(new double[] {Double.longBitsToDouble(mid)})[0] >= position) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return Double.longBitsToDouble(low);
+    }
+
+    @Override
+    public Transaction pollFirst() {
+        return pollEdge(true);
+    }
+
+    @Override
+    public Transaction pollLast() {
+        return pollEdge(false);
+    }
+
+    // The update is atomic within its stripe; the reported positions are
+    // computed around it and may include concurrent changes in other stripes
+    @Override
+    public FeeBump replaceFee(UUID transactionId, double newFee, double incrementalFee) {
+        int stripe = stripeOf(transactionId);
+        double oldFee;
+        long sequence;
+        boolean accepted;
+        locks[stripe].lock();
+        try {
+            int handle = tables[stripe].handle(transactionId);
+            if (handle < 0) {
+                return null;
+            }
+            oldFee = tables[stripe].fee(handle);
+            sequence = tables[stripe].sequence(handle);
+            // Checked under the stripe lock, so a concurrent lower bump cannot overwrite a higher one
+            accepted = MempoolStore.isValidReplacement(oldFee, newFee, incrementalFee);
+            if (accepted) {
+                tables[stripe].updateFee(handle, newFee);
+            }
+        } finally {
+            locks[stripe].unlock();
+        }
+        if (!accepted) {
+            return FeeBump.rejected(transactionId, oldFee, newFee, countBefore(oldFee, sequence) + 1);
+        }
+        int oldPosition = countBefore(oldFee, sequence) + 1;
+        int newPosition = countBefore(newFee, sequence) + 1;
+        // countBefore(oldFee) now sees the moved entry ahead of its old key when the fee went up
+        if (newFee > oldFee) {
+            oldPosition--;
+        }
+        return new FeeBump(transactionId, oldFee, newFee, oldPosition, newPosition);
+    }
+
+    @Override
+    public void reindex() {
+        for (int i = 0; i < tables.length; i++) {
+            locks[i].lock();
+            try {
+                tables[i].reindex();
+            } finally {
+                locks[i].unlock();
+            }
+        }
+    }
+
+    @Override
+    public List<Transaction> snapshot() {
+        PriorityQueue<Run> runs = new PriorityQueue<>((a, b) ->
+            before(a.fees[a.position], a.sequences[a.position], b.fees[b.position], b.sequences[b.position]) ? -1 : 1);
+        int total = 0;
+        for (int i = 0; i < tables.length; i++) {
+            locks[i].lock();
+            try {
+                Run run = new Run(tables[i]);
+                if (run.transactions.length > 0) {
+                    runs.add(run);
+                    total += run.transactions.length;
+                }
+            } finally {
+                locks[i].unlock();
+            }
+        }
+        List<Transaction> result = new ArrayList<>(total);
+        while (!runs.isEmpty()) {
+            Run run = runs.poll();
+            result.add(run.transactions[run.position++]);
+            if (run.position < run.transactions.length) {
+                runs.add(run);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public void clear() {
+        for (int i = 0; i < tables.length; i++) {
+            locks[i].lock();
+            try {
+                tables[i].clear();
+            } finally {
+                locks[i].unlock();
+            }
+        }
+    }
+
+    @Override
+    public int size() {
+        int size = 0;
+        for (int i = 0; i < tables.length; i++) {
+            locks[i].lock();
+            try {
+                size += tables[i].size();
+            } finally {
+                locks[i].unlock();
+            }
+        }
+        return size;
+    }
+
+    // Removes the best (first) or worst (last) head across all stripes
+    private Transaction pollEdge(boolean first) {
+        while (true) {
+            int bestStripe = -1;
+            double bestFee = 0;
+            long bestSequence = 0;
+            for (int i = 0; i < tables.length; i++) {
+                locks[i].lock();
+                try {
+                    int handle = first ? tables[i].first() : tables[i].last();
+                    if (handle < 0) {
+                        continue;
+                    }
+                    double fee = tables[i].fee(handle);
+                    long sequence = tables[i].sequence(handle);
+                    if (bestStripe < 0 || before(fee, sequence, bestFee, bestSequence) == first) {
+                        bestStripe = i;
+                        bestFee = fee;
+                        bestSequence = sequence;
+                    }
+                } finally {
+                    locks[i].unlock();
+                }
+            }
+            if (bestStripe < 0) {
+                return null;
+            }
+            locks[bestStripe].lock();
+            try {
+                // Another thread may have taken that entry in the meantime: retry
+                int handle = first ? tables[bestStripe].first() : tables[bestStripe].last();
+                if (handle >= 0 && tables[bestStripe].sequence(handle) == bestSequence) {
+                    return tables[bestStripe].removeHandle(handle);
+                }
+            } finally {
+                locks[bestStripe].unlock();
+            }
+        }
+    }
+
+    private int countBefore(double fee, long sequence) {
+        int count = 0;
+        for (int i = 0; i < tables.length; i++) {
+            locks[i].lock();
+            try {
+                count += tables[i].countBefore(fee, sequence);
+            } finally {
+                locks[i].unlock();
+            }
+        }
+        return count;
+    }
+
+    private int stripeOf(UUID transactionId) {
+        int h = transactionId.hashCode();
+        return (h ^ (h >>> 16)) & (tables.length - 1);
+    }
+
+    private static boolean before(double fee1, long sequence1, double fee2, long sequence2) {
+        int cmp = Double.compare(fee2, fee1);
+        return cmp < 0 || (cmp == 0 && sequence1 < sequence2);
+    }
+
+    // Ordered copy of one stripe, consumed by the k-way merge in snapshot()
+    private static class Run {
+        final Transaction[] transactions;
+        final double[] fees;
+        final long[] sequences;
+        int position;
+
+        Run(TransactionTable table) {
+            int size = table.size();
+            transactions = new Transaction[size];
+            fees = new double[size];
+            sequences = new long[size];
+            int[] i = {0};
+            table.forEachHandle(handle -> {
+                transactions[i[0]] = table.at(handle);
+                fees[i[0]] = table.fee(handle);
+                sequences[i[0]] = table.sequence(handle);
+                i[0]++;
+            });
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package model.mempool;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+
+import model.Transaction;
+
+// Single-threaded core shared by the mempool stores: UUID index + fee index
+class TransactionTable {
+    private static final int NONE = -1;
+
+    private final Map<UUID, Integer> handlesById = new HashMap<>();
+    private final FeeIndex feeIndex = new FeeIndex();
+    private Transaction[] transactions = new Transaction[feeIndex.capacity()];
+
+    boolean add(Transaction transaction, long sequence) {
+        if (handlesById.containsKey(transaction.getId())) {
+            return false;
+        }
+        int handle = feeIndex.insert(transaction.getFee(), sequence);
+        if (handle >= transactions.length) {
+            transactions = Arrays.copyOf(transactions, feeIndex.capacity());
+        }
+        transactions[handle] = transaction;
+        handlesById.put(transaction.getId(), handle);
+        return true;
+    }
+
+    Transaction remove(UUID transactionId) {
+        Integer handle = handlesById.remove(transactionId);
+        if (handle == null) {
+            return null;
+        }
+        return removeHandle(handle);
+    }
+
+    Transaction removeHandle(int handle) {
+        Transaction transaction = transactions[handle];
+        handlesById.remove(transaction.getId());
+        feeIndex.remove(handle);
+        transactions[handle] = null;
+        return transaction;
+    }
+
+    int handle(UUID transactionId) {
+        Integer handle = handlesById.get(transactionId);
+        return handle == null ? NONE : handle;
+    }
+
+    Transaction at(int handle) {
+        return transactions[handle];
+    }
+
+    double fee(int handle) {
+        return feeIndex.score(handle);
+    }
+
+    long sequence(int handle) {
+        return feeIndex.sequence(handle);
+    }
+
+    int rank(int handle) {
+        return feeIndex.rank(handle);
+    }
+
+    int countBefore(double fee, long sequence) {
+        return feeIndex.countBefore(fee, sequence);
+    }
+
+    int[] countAtLeast(double[] fees) {
+        return feeIndex.countAtLeast(fees);
+    }
+
+    int select(int position) {
+        return feeIndex.select(position);
+    }
+
+    int first() {
+        return feeIndex.first();
+    }
+
+    int last() {
+        return feeIndex.last();
+    }
+
+    // Moves one entry in the fee index and keeps the stored transaction in sync
+    void updateFee(int handle, double fee) {
+        feeIndex.updateScore(handle, fee);
+        transactions[handle].setFee(fee);
+    }
+
+    // Re-indexes entries whose fee was changed through Transaction.setFee
+    void reindex() {
+        for (Integer handle : handlesById.values()) {
+            double fee = transactions[handle].getFee();
+            if (Double.compare(fee, feeIndex.score(handle)) != 0) {
+                feeIndex.updateScore(handle, fee);
+            }
+        }
+    }
+
+    void forEach(Consumer<Transaction> action) {
+        feeIndex.forEach(handle -> action.accept(transactions[handle]));
+    }
+
+    void forEachHandle(IntConsumer action) {
+        feeIndex.forEach(action);
+    }
+
+    void clear() {
+        handlesById.clear();
+        feeIndex.clear();
+        Arrays.fill(transactions, null);
+    }
+
+    int size() {
+        return handlesById.size();
+    }
+}
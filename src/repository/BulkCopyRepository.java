@@ -0,0 +1,172 @@
+package repository;
+
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.postgresql.copy.CopyManager;
+import org.postgresql.copy.CopyOut;
+import utils.DBConnection;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * Bulk CSV import and export of whole tables with PostgreSQL COPY. Data is
+ * streamed between a file channel and the COPY protocol through one fixed
+ * buffer, so memory use does not depend on the table size.
+ */
+public class BulkCopyRepository {
+    private static final Logger logger = Logger.getLogger(BulkCopyRepository.class.getName());
+    private static final int BUFFER_BYTES = 1 << 20;
+    private static final long PROGRESS_ROWS = 1_000_000;
+
+    // Wallets must be imported before the transactions that reference them
+    public enum Table {
+        WALLETS("wallets", "id, type, address, password, balance"),
+        TRANSACTIONS("transactions",
+            "id, wallet_id, source_address, destination_address, amount, fee, fee_level, status, created_at");
+
+        private final String name;
+        private final String columns;
+
+        Table(String name, String columns) {
+            this.name = name;
+            this.columns = columns;
+        }
+
+        public String getName() { return name; }
+    }
+
+    public static class BulkCopyException extends RuntimeException {
+        public BulkCopyException(String message, Throwable cause) {
+            super(message, cause);
+        }
+    }
+
+    // Writes the table as CSV with a header line; the file is replaced only once the export completed
+    public long exportTable(Table table, Path file) {
+        String sql = String.format("COPY (SELECT %s FROM %s) TO STDOUT WITH (FORMAT csv, HEADER true)",
+            table.columns, table.name);
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        long start = System.nanoTime();
+        long rows = 0;
+        try (Connection conn = DBConnection.getConnection();
+             FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                 StandardOpenOption.TRUNCATE_EXISTING)) {
+            CopyOut copyOut = copyManager(conn).copyOut(sql);
+            try {
+                ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_BYTES);
+                byte[] row;
+                while ((row = copyOut.readFromCopy()) != null) {
+                    if (row.length > buffer.remaining()) {
+                        drain(buffer, channel);
+                    }
+                    if (row.length > buffer.capacity()) {
+                        ByteBuffer large = ByteBuffer.wrap(row);
+                        while (large.hasRemaining()) {
+                            channel.write(large);
+                        }
+                    } else {
+                        buffer.put(row);
+                    }
+                    if (++rows % PROGRESS_ROWS == 0) {
+                        logProgress("Exported", table, rows, start);
+                    }
+                }
+                drain(buffer, channel);
+            } finally {
+                if (copyOut.isActive()) {
+                    copyOut.cancelCopy();
+                }
+            }
+            channel.force(false);
+        } catch (SQLException | IOException e) {
+            deleteQuietly(temp);
+            String errorMsg = String.format("Failed to export %s to %s: %s", table.name, file, e.getMessage());
+            logger.severe(errorMsg);
+            throw new BulkCopyException(errorMsg, e);
+        }
+        try {
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new BulkCopyException("Failed to move export into place at " + file, e);
+        }
+        // The header line is not a row
+        rows = Math.max(0, rows - 1);
+        logDone("Exported", table, rows, start);
+        return rows;
+    }
+
+    // Appends the rows of a CSV file with a header line; the whole file is loaded or, on error, none of it
+    public long importTable(Table table, Path file) {
+        String sql = String.format("COPY %s (%s) FROM STDIN WITH (FORMAT csv, HEADER true)",
+            table.name, table.columns);
+        long start = System.nanoTime();
+        long rows;
+        try (Connection conn = DBConnection.getConnection();
+             FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            CopyIn copyIn = copyManager(conn).copyIn(sql);
+            try {
+                ByteBuffer buffer = ByteBuffer.allocate(BUFFER_BYTES);
+                while (channel.read(buffer) != -1) {
+                    copyIn.writeToCopy(buffer.array(), 0, buffer.position());
+                    buffer.clear();
+                }
+                rows = copyIn.endCopy();
+            } finally {
+                if (copyIn.isActive()) {
+                    copyIn.cancelCopy();
+                }
+            }
+        } catch (SQLException | IOException e) {
+            String errorMsg = String.format("Failed to import %s from %s: %s", table.name, file, e.getMessage());
+            logger.severe(errorMsg);
+            throw new BulkCopyException(errorMsg, e);
+        }
+        logDone("Imported", table, rows, start);
+        return rows;
+    }
+
+    private static CopyManager copyManager(Connection conn) throws SQLException {
+        return conn.unwrap(PGConnection.class).getCopyAPI();
+    }
+
+    private static void drain(ByteBuffer buffer, FileChannel channel) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    private static void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            logger.warning("Failed to delete " + path + ": " + e.getMessage());
+        }
+    }
+
+    private static double rowsPerSecond(long rows, long elapsedNanos) {
+        return elapsedNanos > 0 ? rows * 1e9 / elapsedNanos : 0;
+    }
+
+    private static void logProgress(String action, Table table, long rows, long start) {
+        logger.info(String.format("%s %d %s rows so far (%.0f rows/s)",
+            action, rows, table.name, rowsPerSecond(rows, System.nanoTime() - start)));
+    }
+
+    private static void logDone(String action, Table table, long rows, long start) {
+        long elapsed = System.nanoTime() - start;
+        logger.info(String.format("%s %d %s rows in %d ms (%.0f rows/s)",
+            action, rows, table.name, TimeUnit.NANOSECONDS.toMillis(elapsed), rowsPerSecond(rows, elapsed)));
+    }
+}
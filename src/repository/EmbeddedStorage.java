@@ -0,0 +1,45 @@
+package repository;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+// Wallets and transactions in two log-structured stores under one directory, no database server needed
+public class EmbeddedStorage implements StorageBackend {
+    private final Path directory;
+    private final LogStructuredStore transactionStore;
+    private final LogStructuredStore walletStore;
+    private final EmbeddedTransactionRepository transactionRepository;
+    private final EmbeddedWalletRepository walletRepository;
+
+    public EmbeddedStorage(Path directory, int segmentBytes, double compactionThreshold,
+                           Duration compactionInterval, boolean syncWrites) {
+        this.directory = directory;
+        this.transactionStore = new LogStructuredStore(directory.resolve("transactions"), segmentBytes,
+            compactionThreshold, compactionInterval, syncWrites);
+        this.walletStore = new LogStructuredStore(directory.resolve("wallets"), segmentBytes,
+            compactionThreshold, compactionInterval, syncWrites);
+        this.walletRepository = new EmbeddedWalletRepository(walletStore);
+        this.transactionRepository = new EmbeddedTransactionRepository(transactionStore, walletRepository);
+    }
+
+    @Override
+    public void open() {
+        walletRepository.open();
+        transactionRepository.open();
+    }
+
+    @Override
+    public TransactionRepository getTransactionRepository() { return transactionRepository; }
+
+    @Override
+    public WalletRepository getWalletRepository() { return walletRepository; }
+
+    @Override
+    public String getName() { return "stockage embarqué " + directory; }
+
+    @Override
+    public void close() {
+        transactionStore.close();
+        walletStore.close();
+    }
+}
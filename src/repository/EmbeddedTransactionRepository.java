@@ -0,0 +1,405 @@
+package repository;
+
+import model.Transaction;
+import model.TransactionPage;
+import model.enums.TransactionStatus;
+
+import java.nio.ByteBuffer;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Optional;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.logging.Logger;
+
+/**
+ * Transactions in a LogStructuredStore, encoded with TransactionRecordCodec.
+ * Two in-memory indexes replace the SQL ones: each wallet's history in
+ * (created_at, id) descending order, and the pending transactions in mempool
+ * order. Both are rebuilt from the store by open(). Settlement credits the
+ * wallets of the companion wallet repository.
+ */
+public class EmbeddedTransactionRepository implements TransactionRepository {
+    private static final Logger logger = Logger.getLogger(EmbeddedTransactionRepository.class.getName());
+
+    private final LogStructuredStore store;
+    private final EmbeddedWalletRepository walletRepository;
+    // Guards the secondary indexes together with the store writes they mirror
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<UUID, NavigableSet<HistoryKey>> history = new HashMap<>();
+    private final NavigableSet<PendingKey> pending = new TreeSet<>();
+    private final ByteBuffer scratch = ByteBuffer.allocate(TransactionRecordCodec.MAX_BYTES);
+
+    public EmbeddedTransactionRepository(LogStructuredStore store, EmbeddedWalletRepository walletRepository) {
+        this.store = store;
+        this.walletRepository = walletRepository;
+    }
+
+    // Opens the store and rebuilds the secondary indexes from it
+    public void open() {
+        long start = System.nanoTime();
+        lock.writeLock().lock();
+        try {
+            store.open();
+            history.clear();
+            pending.clear();
+            store.forEach((id, value) -> index(TransactionRecordCodec.read(value)));
+        } finally {
+            lock.writeLock().unlock();
+        }
+        logger.info(String.format("Indexed %d transactions (%d pending) in %d ms", store.size(), pending.size(),
+            TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)));
+    }
+
+    @Override
+    public void save(Transaction tx) {
+        saveAll(Collections.singletonList(tx));
+    }
+
+    // Every transaction is encoded before the first is written, so invalid data writes nothing
+    @Override
+    public void saveAll(List<Transaction> transactions) {
+        if (transactions.isEmpty()) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            Map<UUID, Transaction> rows = new LinkedHashMap<>();
+            for (Transaction tx : transactions) {
+                validate(tx);
+                rows.put(tx.getId(), tx);
+            }
+            write(rows);
+        } catch (IllegalArgumentException e) {
+            String errorMsg = "Validation error saving transactions: " + e.getMessage();
+            logger.severe(errorMsg);
+            throw new TransactionRepositoryException(errorMsg, e);
+        } catch (LogStructuredStore.LogStoreException e) {
+            throw new TransactionRepositoryException("Failed to save " + transactions.size() + " transactions", e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * The two stores cannot share a transaction, so the transactions are
+     * written first: a crash in between leaves a credit missing rather than
+     * confirmed transactions that would be credited again when re-mined.
+     */
+    @Override
+    public Map<UUID, Double> settle(List<Transaction> confirmed) {
+        if (confirmed.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        lock.writeLock().lock();
+        try {
+            Map<UUID, Transaction> rows = new LinkedHashMap<>();
+            for (Transaction tx : confirmed) {
+                validate(tx);
+                rows.put(tx.getId(), tx);
+            }
+            // Only transactions not stored as confirmed yet are credited
+            List<Transaction> moved = new ArrayList<>(rows.size());
+            for (Transaction tx : rows.values()) {
+                ByteBuffer value = store.get(tx.getId());
+                if (value == null || TransactionRecordCodec.read(value).getStatus() != TransactionStatus.CONFIRMED) {
+                    moved.add(tx);
+                }
+            }
+            Map<UUID, Double> credits = Settlement.creditsByWallet(moved,
+                walletRepository.findIdsByAddress(Settlement.destinations(moved)));
+            write(rows);
+            walletRepository.creditAll(credits);
+            return credits;
+        } catch (IllegalArgumentException e) {
+            String errorMsg = "Validation error settling transactions: " + e.getMessage();
+            logger.severe(errorMsg);
+            throw new TransactionRepositoryException(errorMsg, e);
+        } catch (LogStructuredStore.LogStoreException e) {
+            throw new TransactionRepositoryException("Failed to settle " + confirmed.size() + " transactions", e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Written in the same order as settle: the statuses first, then the refunds
+    @Override
+    public Map<UUID, Double> reject(List<Transaction> rejected) {
+        if (rejected.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        lock.writeLock().lock();
+        try {
+            Map<UUID, Transaction> rows = new LinkedHashMap<>();
+            for (Transaction tx : rejected) {
+                ByteBuffer value = store.get(tx.getId());
+                if (value == null || rows.containsKey(tx.getId())) {
+                    continue;
+                }
+                Transaction stored = TransactionRecordCodec.read(value);
+                if (stored.getStatus() == TransactionStatus.PENDING) {
+                    stored.setStatus(TransactionStatus.REJECTED);
+                    rows.put(tx.getId(), stored);
+                }
+            }
+            List<Transaction> moved = new ArrayList<>(rows.size());
+            for (Transaction tx : rejected) {
+                if (rows.containsKey(tx.getId())) {
+                    moved.add(tx);
+                }
+            }
+            Map<UUID, Double> refunds = Settlement.refundsByWallet(moved);
+            write(rows);
+            walletRepository.creditAll(refunds);
+            return refunds;
+        } catch (LogStructuredStore.LogStoreException e) {
+            throw new TransactionRepositoryException("Failed to reject " + rejected.size() + " transactions", e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public int updateStatusBatch(Collection<UUID> transactionIds, TransactionStatus status) {
+        if (transactionIds.isEmpty()) {
+            return 0;
+        }
+        lock.writeLock().lock();
+        try {
+            Map<UUID, Transaction> rows = new LinkedHashMap<>();
+            for (UUID id : transactionIds) {
+                ByteBuffer value = store.get(id);
+                if (value != null) {
+                    Transaction tx = TransactionRecordCodec.read(value);
+                    tx.setStatus(status);
+                    rows.put(id, tx);
+                }
+            }
+            write(rows);
+            return rows.size();
+        } catch (LogStructuredStore.LogStoreException e) {
+            throw new TransactionRepositoryException(
+                "Failed to update " + transactionIds.size() + " transactions to " + status, e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Transaction> findByWalletId(UUID walletId) {
+        lock.readLock().lock();
+        try {
+            List<Transaction> result = new ArrayList<>();
+            NavigableSet<HistoryKey> keys = history.get(walletId);
+            if (keys != null) {
+                for (HistoryKey key : keys) {
+                    result.add(read(key.id));
+                }
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // The status filter is applied while walking the wallet's history index
+    @Override
+    public TransactionPage findPageByWalletId(UUID walletId, TransactionStatus status, Transaction after, int limit) {
+        if (limit < 1) {
+            throw new IllegalArgumentException("Page limit must be positive: " + limit);
+        }
+        lock.readLock().lock();
+        try {
+            List<Transaction> result = new ArrayList<>(limit);
+            NavigableSet<HistoryKey> keys = history.get(walletId);
+            if (keys == null) {
+                return new TransactionPage(result, false);
+            }
+            if (after != null) {
+                keys = keys.tailSet(new HistoryKey(micros(after.getCreatedAt()), after.getId()), false);
+            }
+            for (HistoryKey key : keys) {
+                Transaction tx = read(key.id);
+                if (status != null && tx.getStatus() != status) {
+                    continue;
+                }
+                if (result.size() == limit) {
+                    return new TransactionPage(result, true);
+                }
+                result.add(tx);
+            }
+            return new TransactionPage(result, false);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Optional<Transaction> findById(UUID transactionId) {
+        ByteBuffer value = store.get(transactionId);
+        return value == null ? Optional.empty() : Optional.of(TransactionRecordCodec.read(value));
+    }
+
+    @Override
+    public List<Transaction> findAllPending() {
+        lock.readLock().lock();
+        try {
+            List<Transaction> result = new ArrayList<>(pending.size());
+            for (PendingKey key : pending) {
+                result.add(read(key.id));
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Reads chunkSize pending transactions at a time and resumes after the
+     * last one handed out, so the consumer runs without the lock held and may
+     * write to this repository.
+     */
+    @Override
+    public long forEachPendingChunk(int chunkSize, Consumer<List<Transaction>> consumer) {
+        long count = 0;
+        PendingKey last = null;
+        while (true) {
+            List<Transaction> chunk = new ArrayList<>(chunkSize);
+            lock.readLock().lock();
+            try {
+                Iterator<PendingKey> it = (last == null ? pending : pending.tailSet(last, false)).iterator();
+                while (chunk.size() < chunkSize && it.hasNext()) {
+                    last = it.next();
+                    chunk.add(read(last.id));
+                }
+            } finally {
+                lock.readLock().unlock();
+            }
+            if (chunk.isEmpty()) {
+                return count;
+            }
+            consumer.accept(chunk);
+            count += chunk.size();
+        }
+    }
+
+    // Caller holds the write lock; the indexes follow the store only once every record is written
+    private void write(Map<UUID, Transaction> rows) {
+        Map<UUID, ByteBuffer> records = new LinkedHashMap<>();
+        List<Transaction> previous = new ArrayList<>(rows.size());
+        for (Transaction tx : rows.values()) {
+            records.put(tx.getId(), encode(tx));
+            ByteBuffer value = store.get(tx.getId());
+            if (value != null) {
+                previous.add(TransactionRecordCodec.read(value));
+            }
+        }
+        store.putAll(records);
+        for (Transaction old : previous) {
+            unindex(old);
+        }
+        for (Transaction tx : rows.values()) {
+            index(tx);
+        }
+    }
+
+    private void index(Transaction tx) {
+        history.computeIfAbsent(tx.getWalletId(), k -> new TreeSet<>())
+            .add(new HistoryKey(micros(tx.getCreatedAt()), tx.getId()));
+        if (tx.getStatus() == TransactionStatus.PENDING) {
+            pending.add(new PendingKey(tx.getFee(), micros(tx.getCreatedAt()), tx.getId()));
+        }
+    }
+
+    private void unindex(Transaction tx) {
+        NavigableSet<HistoryKey> keys = history.get(tx.getWalletId());
+        if (keys != null) {
+            keys.remove(new HistoryKey(micros(tx.getCreatedAt()), tx.getId()));
+            if (keys.isEmpty()) {
+                history.remove(tx.getWalletId());
+            }
+        }
+        if (tx.getStatus() == TransactionStatus.PENDING) {
+            pending.remove(new PendingKey(tx.getFee(), micros(tx.getCreatedAt()), tx.getId()));
+        }
+    }
+
+    private Transaction read(UUID id) {
+        return TransactionRecordCodec.read(store.get(id));
+    }
+
+    // Caller holds the write lock, which also guards the scratch buffer
+    private ByteBuffer encode(Transaction tx) {
+        scratch.clear();
+        TransactionRecordCodec.write(scratch, tx);
+        scratch.flip();
+        ByteBuffer record = ByteBuffer.allocate(scratch.remaining());
+        record.put(scratch).flip();
+        return record;
+    }
+
+    private static void validate(Transaction tx) {
+        if (tx.getId() == null) {
+            throw new IllegalArgumentException("Transaction ID cannot be null");
+        }
+        if (tx.getWalletId() == null) {
+            throw new IllegalArgumentException("Wallet ID cannot be null");
+        }
+    }
+
+    // The codec stores microseconds, so keys are built from the same truncated value
+    private static long micros(LocalDateTime createdAt) {
+        return createdAt.toEpochSecond(ZoneOffset.UTC) * 1_000_000L + createdAt.getNano() / 1_000;
+    }
+
+    // Newest first, ties broken by id descending, as ORDER BY created_at DESC, id DESC
+    private static final class HistoryKey implements Comparable<HistoryKey> {
+        private final long createdAtMicros;
+        private final UUID id;
+
+        HistoryKey(long createdAtMicros, UUID id) {
+            this.createdAtMicros = createdAtMicros;
+            this.id = id;
+        }
+
+        @Override
+        public int compareTo(HistoryKey other) {
+            int cmp = Long.compare(other.createdAtMicros, createdAtMicros);
+            return cmp != 0 ? cmp : LogStructuredStore.compareKeys(other.id, id);
+        }
+    }
+
+    // Highest fee first, then oldest, as ORDER BY fee DESC, created_at ASC
+    private static final class PendingKey implements Comparable<PendingKey> {
+        private final double fee;
+        private final long createdAtMicros;
+        private final UUID id;
+
+        PendingKey(double fee, long createdAtMicros, UUID id) {
+            this.fee = fee;
+            this.createdAtMicros = createdAtMicros;
+            this.id = id;
+        }
+
+        @Override
+        public int compareTo(PendingKey other) {
+            int cmp = Double.compare(other.fee, fee);
+            if (cmp == 0) {
+                cmp = Long.compare(createdAtMicros, other.createdAtMicros);
+            }
+            return cmp != 0 ? cmp : LogStructuredStore.compareKeys(id, other.id);
+        }
+    }
+}
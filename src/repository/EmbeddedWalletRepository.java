@@ -0,0 +1,165 @@
+package repository;
+
+import model.Wallet;
+import model.enums.CryptoType;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.OptionalDouble;
+import java.util.UUID;
+import java.util.logging.Logger;
+
+// Wallets in a LogStructuredStore; an address index enforces the unique address the SQL schema has
+public class EmbeddedWalletRepository implements WalletRepository {
+    private static final Logger logger = Logger.getLogger(EmbeddedWalletRepository.class.getName());
+    private static final CryptoType[] TYPES = CryptoType.values();
+
+    private final LogStructuredStore store;
+    private final Map<String, UUID> addresses = new HashMap<>();
+
+    public EmbeddedWalletRepository(LogStructuredStore store) {
+        this.store = store;
+    }
+
+    // Opens the store and rebuilds the address index from it
+    public synchronized void open() {
+        store.open();
+        addresses.clear();
+        store.forEach((id, value) -> addresses.put(decode(value).getAddress(), id));
+    }
+
+    @Override
+    public synchronized void save(Wallet wallet) {
+        UUID owner = addresses.get(wallet.getAddress());
+        if (owner != null && !owner.equals(wallet.getId())) {
+            logger.severe("Error saving wallet : address already used by wallet " + owner);
+            throw new RuntimeException("Failed to save wallet", new IllegalArgumentException(
+                "Duplicate wallet address " + wallet.getAddress()));
+        }
+        ByteBuffer value = store.get(wallet.getId());
+        String previousAddress = value == null ? null : decode(value).getAddress();
+        try {
+            store.put(wallet.getId(), encode(wallet));
+        } catch (RuntimeException e) {
+            logger.severe("Error saving wallet : " + e.getMessage());
+            throw new RuntimeException("Failed to save wallet", e);
+        }
+        if (previousAddress != null) {
+            addresses.remove(previousAddress);
+        }
+        addresses.put(wallet.getAddress(), wallet.getId());
+    }
+
+    @Override
+    public synchronized OptionalDouble credit(UUID id, double amount) {
+        return addToBalance(id, amount);
+    }
+
+    @Override
+    public synchronized OptionalDouble debit(UUID id, double amount) {
+        ByteBuffer value = store.get(id);
+        if (value == null || decode(value).getBalance() < amount) {
+            return OptionalDouble.empty();
+        }
+        return addToBalance(id, -amount);
+    }
+
+    @Override
+    public Optional<Wallet> findById(UUID id) {
+        ByteBuffer value = store.get(id);
+        return value == null ? Optional.empty() : Optional.of(decode(value));
+    }
+
+    @Override
+    public Optional<Wallet> findByAddress(String address) {
+        UUID id;
+        synchronized (this) {
+            id = addresses.get(address);
+        }
+        return id == null ? Optional.empty() : findById(id);
+    }
+
+    @Override
+    public List<Wallet> findAll() {
+        List<Wallet> wallets = new ArrayList<>(store.size());
+        store.forEach((id, value) -> wallets.add(decode(value)));
+        wallets.sort((a, b) -> LogStructuredStore.compareKeys(a.getId(), b.getId()));
+        return wallets;
+    }
+
+    // Owner of each address that belongs to a stored wallet, from the address index
+    synchronized Map<String, UUID> findIdsByAddress(Collection<String> addresses) {
+        Map<String, UUID> owners = new HashMap<>();
+        for (String address : addresses) {
+            UUID id = this.addresses.get(address);
+            if (id != null) {
+                owners.put(address, id);
+            }
+        }
+        return owners;
+    }
+
+    // Adds each amount to the stored balance; the new records are written with one putAll
+    synchronized void creditAll(Map<UUID, Double> credits) {
+        Map<UUID, ByteBuffer> records = new LinkedHashMap<>();
+        for (Map.Entry<UUID, Double> credit : credits.entrySet()) {
+            ByteBuffer value = store.get(credit.getKey());
+            if (value == null) {
+                continue;
+            }
+            records.put(credit.getKey(), encode(withBalanceAdded(decode(value), credit.getValue())));
+        }
+        store.putAll(records);
+    }
+
+    // Caller holds the monitor, so the read and the write cannot interleave with another change
+    private OptionalDouble addToBalance(UUID id, double amount) {
+        ByteBuffer value = store.get(id);
+        if (value == null) {
+            return OptionalDouble.empty();
+        }
+        Wallet wallet = withBalanceAdded(decode(value), amount);
+        try {
+            store.put(id, encode(wallet));
+        } catch (RuntimeException e) {
+            logger.severe("Error updating wallet balance : " + e.getMessage());
+            throw new RuntimeException("Failed to update wallet balance", e);
+        }
+        return OptionalDouble.of(wallet.getBalance());
+    }
+
+    private static Wallet withBalanceAdded(Wallet wallet, double amount) {
+        return new Wallet(wallet.getId(), wallet.getAddress(), wallet.getPassword(), wallet.getType(),
+            wallet.getBalance() + amount);
+    }
+
+    private static ByteBuffer encode(Wallet wallet) {
+        byte[] address = wallet.getAddress().getBytes(StandardCharsets.UTF_8);
+        byte[] password = wallet.getPassword().getBytes(StandardCharsets.UTF_8);
+        ByteBuffer buffer = ByteBuffer.allocate(16 + 1 + 8 + 2 + address.length + 2 + password.length);
+        TransactionRecordCodec.putUuid(buffer, wallet.getId());
+        buffer.put((byte) wallet.getType().ordinal());
+        buffer.putDouble(wallet.getBalance());
+        TransactionRecordCodec.putString(buffer, wallet.getAddress());
+        TransactionRecordCodec.putString(buffer, wallet.getPassword());
+        buffer.flip();
+        return buffer;
+    }
+
+    private static Wallet decode(ByteBuffer value) {
+        ByteBuffer buffer = value.duplicate();
+        UUID id = TransactionRecordCodec.getUuid(buffer);
+        CryptoType type = TYPES[buffer.get()];
+        double balance = buffer.getDouble();
+        String address = TransactionRecordCodec.getString(buffer);
+        String password = TransactionRecordCodec.getString(buffer);
+        return new Wallet(id, address, password, type, balance);
+    }
+}
@@ -0,0 +1,48 @@
+package repository;
+
+import utils.DBConnection;
+
+// PostgreSQL through the shared connection pool, optionally behind a write-behind queue
+public class JdbcStorage implements StorageBackend {
+    private final WriteBehindQueue writeBehindQueue;
+    private final TransactionRepository transactionRepository;
+    private final WalletRepository walletRepository;
+
+    // writeBehindQueue may be null: writes then go straight to the database
+    public JdbcStorage(WriteBehindQueue writeBehindQueue) {
+        this.writeBehindQueue = writeBehindQueue;
+        JdbcTransactionRepository transactions = new JdbcTransactionRepository();
+        JdbcWalletRepository wallets = new JdbcWalletRepository();
+        if (writeBehindQueue == null) {
+            this.transactionRepository = transactions;
+            this.walletRepository = wallets;
+            return;
+        }
+        WriteBehindWalletRepository queuedWallets = new WriteBehindWalletRepository(writeBehindQueue, wallets);
+        this.transactionRepository = new WriteBehindTransactionRepository(writeBehindQueue, transactions, queuedWallets);
+        this.walletRepository = queuedWallets;
+    }
+
+    @Override
+    public void open() {
+        DBConnection.getPool();
+    }
+
+    @Override
+    public TransactionRepository getTransactionRepository() { return transactionRepository; }
+
+    @Override
+    public WalletRepository getWalletRepository() { return walletRepository; }
+
+    @Override
+    public String getName() { return "PostgreSQL"; }
+
+    // Queued writes need the pool, so they are flushed before it closes
+    @Override
+    public void close() {
+        if (writeBehindQueue != null) {
+            writeBehindQueue.close();
+        }
+        DBConnection.close();
+    }
+}
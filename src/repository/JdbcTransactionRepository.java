@@ -0,0 +1,592 @@
+package repository;
+
+import model.Transaction;
+import model.TransactionPage;
+import model.enums.FeeLevel;
+import model.enums.TransactionStatus;
+import utils.DBConnection;
+
+import java.sql.*;
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.logging.Logger;
+
+public class JdbcTransactionRepository implements TransactionRepository {
+    private static final Logger logger = Logger.getLogger(JdbcTransactionRepository.class.getName());
+    
+    // Constants for column names
+    private static final String ID_COLUMN = "id";
+    private static final String WALLET_ID_COLUMN = "wallet_id";
+    private static final String SOURCE_ADDRESS_COLUMN = "source_address";
+    private static final String DESTINATION_ADDRESS_COLUMN = "destination_address";
+    private static final String AMOUNT_COLUMN = "amount";
+    private static final String FEE_COLUMN = "fee";
+    private static final String FEE_LEVEL_COLUMN = "fee_level";
+    private static final String STATUS_COLUMN = "status";
+    private static final String CREATED_AT_COLUMN = "created_at";
+
+    // SQL is built once; the column constants never change at runtime
+    private static final String SELECT_COLUMNS = String.format("SELECT %s, %s, %s, %s, %s, %s, %s, %s, %s FROM transactions",
+        ID_COLUMN, WALLET_ID_COLUMN, SOURCE_ADDRESS_COLUMN, DESTINATION_ADDRESS_COLUMN,
+        AMOUNT_COLUMN, FEE_COLUMN, FEE_LEVEL_COLUMN, STATUS_COLUMN, CREATED_AT_COLUMN);
+    private static final String UPSERT_SQL = String.format(
+        "INSERT INTO transactions (%s, %s, %s, %s, %s, %s, %s, %s, %s) " +
+        "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?) " +
+        "ON CONFLICT (%s, %s) DO UPDATE SET " +
+        "%s = EXCLUDED.%s, " +
+        "%s = EXCLUDED.%s, " +
+        "%s = EXCLUDED.%s, " +
+        "%s = EXCLUDED.%s, " +
+        "%s = EXCLUDED.%s, " +
+        "%s = EXCLUDED.%s, " +
+        "%s = EXCLUDED.%s",
+        ID_COLUMN, WALLET_ID_COLUMN, SOURCE_ADDRESS_COLUMN, DESTINATION_ADDRESS_COLUMN,
+        AMOUNT_COLUMN, FEE_COLUMN, FEE_LEVEL_COLUMN, STATUS_COLUMN, CREATED_AT_COLUMN,
+        // The partitioned table's key includes the partition column
+        ID_COLUMN, CREATED_AT_COLUMN,
+        WALLET_ID_COLUMN, WALLET_ID_COLUMN,
+        SOURCE_ADDRESS_COLUMN, SOURCE_ADDRESS_COLUMN,
+        DESTINATION_ADDRESS_COLUMN, DESTINATION_ADDRESS_COLUMN,
+        AMOUNT_COLUMN, AMOUNT_COLUMN,
+        FEE_COLUMN, FEE_COLUMN,
+        FEE_LEVEL_COLUMN, FEE_LEVEL_COLUMN,
+        STATUS_COLUMN, STATUS_COLUMN
+    );
+    private static final String INSERT_IF_ABSENT_SQL = String.format(
+        "INSERT INTO transactions (%s, %s, %s, %s, %s, %s, %s, %s, %s) " +
+        "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?) ON CONFLICT (%s, %s) DO NOTHING",
+        ID_COLUMN, WALLET_ID_COLUMN, SOURCE_ADDRESS_COLUMN, DESTINATION_ADDRESS_COLUMN,
+        AMOUNT_COLUMN, FEE_COLUMN, FEE_LEVEL_COLUMN, STATUS_COLUMN, CREATED_AT_COLUMN,
+        ID_COLUMN, CREATED_AT_COLUMN);
+    // Rewrites a stored row found by id alone, whatever its created_at
+    private static final String UPDATE_SQL = String.format(
+        "UPDATE transactions SET %s = ?, %s = ?, %s = ?, %s = ?, %s = ?, %s = ?, %s = ? WHERE %s = ?",
+        WALLET_ID_COLUMN, SOURCE_ADDRESS_COLUMN, DESTINATION_ADDRESS_COLUMN, AMOUNT_COLUMN,
+        FEE_COLUMN, FEE_LEVEL_COLUMN, STATUS_COLUMN, ID_COLUMN);
+    // Locks the rows it moves: a concurrent settlement of the same ids waits, then finds them confirmed
+    private static final String CONFIRM_SQL = String.format(
+        "UPDATE transactions SET %s = 'CONFIRMED' WHERE %s = ANY(?) AND %s <> 'CONFIRMED' RETURNING %s",
+        STATUS_COLUMN, ID_COLUMN, STATUS_COLUMN, ID_COLUMN);
+    // Only pending rows move, so a transaction rejected twice is refunded once
+    private static final String REJECT_SQL = String.format(
+        "UPDATE transactions SET %s = 'REJECTED' WHERE %s = ANY(?) AND %s = 'PENDING' RETURNING %s",
+        STATUS_COLUMN, ID_COLUMN, STATUS_COLUMN, ID_COLUMN);
+    private static final String FIND_EXISTING_IDS_SQL = String.format(
+        "SELECT %s FROM transactions WHERE %s = ANY(?)", ID_COLUMN, ID_COLUMN);
+    private static final String UPDATE_STATUS_SQL = String.format(
+        "UPDATE transactions SET %s = ? WHERE %s = ?", STATUS_COLUMN, ID_COLUMN);
+    private static final String FIND_BY_WALLET_SQL = String.format(
+        "%s WHERE %s = ? ORDER BY %s DESC", SELECT_COLUMNS, WALLET_ID_COLUMN, CREATED_AT_COLUMN);
+    // Keyset pages on (created_at, id): the row comparison seeks past the previous page instead of skipping rows
+    private static final String HISTORY_ORDER = String.format(
+        " ORDER BY %s DESC, %s DESC LIMIT ?", CREATED_AT_COLUMN, ID_COLUMN);
+    private static final String HISTORY_FILTER_STATUS = String.format(" AND %s = ?", STATUS_COLUMN);
+    private static final String HISTORY_AFTER = String.format(
+        " AND (%s, %s) < (?, ?)", CREATED_AT_COLUMN, ID_COLUMN);
+    private static final String FIND_PAGE_BY_WALLET_SQL = String.format(
+        "%s WHERE %s = ?", SELECT_COLUMNS, WALLET_ID_COLUMN);
+    private static final String FIND_BY_ID_SQL = String.format(
+        "%s WHERE %s = ?", SELECT_COLUMNS, ID_COLUMN);
+    private static final String FIND_ALL_PENDING_SQL = String.format(
+        "%s WHERE %s = 'PENDING' ORDER BY %s DESC, %s ASC", SELECT_COLUMNS, STATUS_COLUMN, FEE_COLUMN, CREATED_AT_COLUMN);
+
+    // Rows sent per executeBatch; the driver rewrites each batch into multi-row statements
+    private static final int BATCH_SIZE = 1000;
+
+    @Override
+    public void save(Transaction tx) {
+        try (Connection conn = DBConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(UPSERT_SQL)) {
+            bindUpsert(stmt, tx);
+            stmt.executeUpdate();
+        } catch (SQLException e) {
+            String errorMsg = String.format("SQL error saving transaction %s: %s (SQL State: %s, Error Code: %d)",
+                tx.getId(), e.getMessage(), e.getSQLState(), e.getErrorCode());
+            logger.severe(errorMsg);
+            throw new TransactionRepositoryException(errorMsg, e);
+        } catch (IllegalArgumentException e) {
+            String errorMsg = String.format("Validation error saving transaction %s: %s",
+                tx.getId(), e.getMessage());
+            logger.severe(errorMsg);
+            throw new TransactionRepositoryException(errorMsg, e);
+        }
+    }
+
+    /**
+     * Upserts all transactions in one database transaction, sent as JDBC batches.
+     * Either every row is written or, on error, none is.
+     */
+    @Override
+    public void saveAll(List<Transaction> transactions) {
+        if (transactions.isEmpty()) {
+            return;
+        }
+        try (Connection conn = DBConnection.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                upsertBatch(conn, transactions);
+                conn.commit();
+            } catch (SQLException | RuntimeException e) {
+                conn.rollback();
+                throw e;
+            }
+        } catch (SQLException e) {
+            String errorMsg = String.format("SQL error saving %d transactions: %s (SQL State: %s, Error Code: %d)",
+                transactions.size(), batchMessage(e), e.getSQLState(), e.getErrorCode());
+            logger.severe(errorMsg);
+            throw new TransactionRepositoryException(errorMsg, e);
+        } catch (IllegalArgumentException e) {
+            String errorMsg = "Validation error saving transactions: " + e.getMessage();
+            logger.severe(errorMsg);
+            throw new TransactionRepositoryException(errorMsg, e);
+        }
+    }
+
+    /**
+     * Moves the transactions to CONFIRMED, resolves the destinations of those
+     * whose status actually changed against the wallets' address index and
+     * applies the summed credits, all in one database transaction.
+     */
+    @Override
+    public Map<UUID, Double> settle(List<Transaction> confirmed) {
+        if (confirmed.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        try (Connection conn = DBConnection.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                Map<UUID, Double> credits = settle(conn, confirmed);
+                conn.commit();
+                return credits;
+            } catch (SQLException | RuntimeException e) {
+                conn.rollback();
+                throw e;
+            }
+        } catch (SQLException e) {
+            String errorMsg = String.format("SQL error settling %d transactions: %s (SQL State: %s, Error Code: %d)",
+                confirmed.size(), batchMessage(e), e.getSQLState(), e.getErrorCode());
+            logger.severe(errorMsg);
+            throw new TransactionRepositoryException(errorMsg, e);
+        } catch (IllegalArgumentException e) {
+            String errorMsg = "Validation error settling transactions: " + e.getMessage();
+            logger.severe(errorMsg);
+            throw new TransactionRepositoryException(errorMsg, e);
+        }
+    }
+
+    // The settlement on the caller's connection, which owns the transaction
+    Map<UUID, Double> settle(Connection conn, List<Transaction> confirmed) throws SQLException {
+        List<Transaction> moved = confirm(conn, confirmed);
+        Map<String, UUID> owners = JdbcWalletRepository.findIdsByAddress(conn, Settlement.destinations(moved));
+        Map<UUID, Double> credits = Settlement.creditsByWallet(moved, owners);
+        JdbcWalletRepository.creditBatch(conn, credits);
+        return credits;
+    }
+
+    // Rejects and refunds in one database transaction
+    @Override
+    public Map<UUID, Double> reject(List<Transaction> rejected) {
+        if (rejected.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        try (Connection conn = DBConnection.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                Map<UUID, Double> refunds = reject(conn, rejected);
+                conn.commit();
+                return refunds;
+            } catch (SQLException | RuntimeException e) {
+                conn.rollback();
+                throw e;
+            }
+        } catch (SQLException e) {
+            String errorMsg = String.format("SQL error rejecting %d transactions: %s (SQL State: %s, Error Code: %d)",
+                rejected.size(), batchMessage(e), e.getSQLState(), e.getErrorCode());
+            logger.severe(errorMsg);
+            throw new TransactionRepositoryException(errorMsg, e);
+        }
+    }
+
+    // The rejection on the caller's connection, which owns the transaction
+    Map<UUID, Double> reject(Connection conn, List<Transaction> rejected) throws SQLException {
+        Set<UUID> ids = new HashSet<>();
+        for (Transaction tx : rejected) {
+            ids.add(tx.getId());
+        }
+        Set<UUID> movedIds = new HashSet<>();
+        try (PreparedStatement stmt = conn.prepareStatement(REJECT_SQL)) {
+            stmt.setArray(1, conn.createArrayOf("uuid", ids.toArray()));
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    movedIds.add((UUID) rs.getObject(ID_COLUMN));
+                }
+            }
+        }
+        List<Transaction> moved = new ArrayList<>(movedIds.size());
+        for (Transaction tx : rejected) {
+            if (movedIds.contains(tx.getId())) {
+                moved.add(tx);
+            }
+        }
+        Map<UUID, Double> refunds = Settlement.refundsByWallet(moved);
+        JdbcWalletRepository.creditBatch(conn, refunds);
+        return refunds;
+    }
+
+    /**
+     * Saves the transactions as confirmed on the caller's connection and
+     * returns those that were not confirmed yet: stored rows whose status
+     * changed, and rows this call inserted.
+     */
+    private List<Transaction> confirm(Connection conn, List<Transaction> confirmed) throws SQLException {
+        Map<UUID, Transaction> byId = new LinkedHashMap<>();
+        for (Transaction tx : confirmed) {
+            if (tx.getId() == null) {
+                throw new IllegalArgumentException("Transaction ID cannot be null");
+            }
+            byId.put(tx.getId(), tx);
+        }
+        Array ids = conn.createArrayOf("uuid", byId.keySet().toArray());
+        Set<UUID> movedIds = new HashSet<>();
+        try (PreparedStatement stmt = conn.prepareStatement(CONFIRM_SQL)) {
+            stmt.setArray(1, ids);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    movedIds.add((UUID) rs.getObject(ID_COLUMN));
+                }
+            }
+        }
+        Set<UUID> existingIds = new HashSet<>();
+        try (PreparedStatement stmt = conn.prepareStatement(FIND_EXISTING_IDS_SQL)) {
+            stmt.setArray(1, ids);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    existingIds.add((UUID) rs.getObject(ID_COLUMN));
+                }
+            }
+        }
+        List<Transaction> existing = new ArrayList<>(existingIds.size());
+        for (Transaction tx : byId.values()) {
+            if (existingIds.contains(tx.getId())) {
+                existing.add(tx);
+            } else {
+                // Never saved, e.g. the write was lost; rare, so inserted one by one to see which row won
+                try (PreparedStatement stmt = conn.prepareStatement(INSERT_IF_ABSENT_SQL)) {
+                    bindUpsert(stmt, tx);
+                    if (stmt.executeUpdate() == 1) {
+                        movedIds.add(tx.getId());
+                    }
+                }
+            }
+        }
+        // Brings the other columns of stored rows up to date, e.g. a fee changed by replace-by-fee.
+        // Matched on id only: an upsert on (id, created_at) would insert a second row
+        // if the in-memory created_at differed from the stored one
+        updateBatch(conn, existing);
+
+        List<Transaction> moved = new ArrayList<>(movedIds.size());
+        for (Transaction tx : byId.values()) {
+            if (movedIds.contains(tx.getId())) {
+                moved.add(tx);
+            }
+        }
+        return moved;
+    }
+
+    // Sets the status of existing rows in one database transaction; returns how many rows were updated
+    @Override
+    public int updateStatusBatch(Collection<UUID> transactionIds, TransactionStatus status) {
+        if (transactionIds.isEmpty()) {
+            return 0;
+        }
+        try (Connection conn = DBConnection.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                int updated = updateStatusBatch(conn, transactionIds, status);
+                conn.commit();
+                return updated;
+            } catch (SQLException | RuntimeException e) {
+                conn.rollback();
+                throw e;
+            }
+        } catch (SQLException e) {
+            String errorMsg = String.format("SQL error updating %d transactions to %s: %s (SQL State: %s, Error Code: %d)",
+                transactionIds.size(), status, batchMessage(e), e.getSQLState(), e.getErrorCode());
+            logger.severe(errorMsg);
+            throw new TransactionRepositoryException(errorMsg, e);
+        }
+    }
+
+    // Batched upsert on the caller's connection, which owns the transaction
+    void upsertBatch(Connection conn, Collection<Transaction> transactions) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(UPSERT_SQL)) {
+            int pending = 0;
+            for (Transaction tx : transactions) {
+                bindUpsert(stmt, tx);
+                stmt.addBatch();
+                if (++pending == BATCH_SIZE) {
+                    stmt.executeBatch();
+                    pending = 0;
+                }
+            }
+            if (pending > 0) {
+                stmt.executeBatch();
+            }
+        }
+    }
+
+    private void updateBatch(Connection conn, Collection<Transaction> transactions) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(UPDATE_SQL)) {
+            int pending = 0;
+            for (Transaction tx : transactions) {
+                if (tx.getWalletId() == null) {
+                    throw new IllegalArgumentException("Wallet ID cannot be null");
+                }
+                stmt.setObject(1, tx.getWalletId());
+                stmt.setString(2, tx.getSourceAddress());
+                stmt.setString(3, tx.getDestinationAddress());
+                stmt.setDouble(4, tx.getAmount());
+                stmt.setDouble(5, tx.getFee());
+                stmt.setString(6, tx.getFeeLevel() != null ? tx.getFeeLevel().name() : FeeLevel.STANDARD.name());
+                stmt.setString(7, tx.getStatus().name());
+                stmt.setObject(8, tx.getId());
+                stmt.addBatch();
+                if (++pending == BATCH_SIZE) {
+                    stmt.executeBatch();
+                    pending = 0;
+                }
+            }
+            if (pending > 0) {
+                stmt.executeBatch();
+            }
+        }
+    }
+
+    int updateStatusBatch(Connection conn, Collection<UUID> transactionIds, TransactionStatus status) throws SQLException {
+        int updated = 0;
+        try (PreparedStatement stmt = conn.prepareStatement(UPDATE_STATUS_SQL)) {
+            int pending = 0;
+            for (UUID id : transactionIds) {
+                stmt.setString(1, status.name());
+                stmt.setObject(2, id);
+                stmt.addBatch();
+                if (++pending == BATCH_SIZE) {
+                    updated += countUpdated(stmt.executeBatch());
+                    pending = 0;
+                }
+            }
+            if (pending > 0) {
+                updated += countUpdated(stmt.executeBatch());
+            }
+        }
+        return updated;
+    }
+
+    @Override
+    public List<Transaction> findByWalletId(UUID walletId) {
+        List<Transaction> result = new ArrayList<>();
+
+        try (Connection conn = DBConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(FIND_BY_WALLET_SQL)) {
+            stmt.setObject(1, walletId);
+            
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    Transaction tx = mapRow(rs);
+                    result.add(tx);
+                }
+            }
+        } catch (SQLException e) {
+            String errorMsg = String.format("Error retrieving transactions for wallet %s: %s",
+                walletId, e.getMessage());
+            logger.severe(errorMsg);
+            throw new TransactionRepositoryException(errorMsg, e);
+        }
+        return result;
+    }
+    
+    /**
+     * Returns up to limit transactions of a wallet, newest first, optionally
+     * restricted to one status. Pass null as after for the first page, then the
+     * last transaction of the previous page: each page costs the same however
+     * deep into the history it is.
+     */
+    @Override
+    public TransactionPage findPageByWalletId(UUID walletId, TransactionStatus status, Transaction after, int limit) {
+        if (limit < 1) {
+            throw new IllegalArgumentException("Page limit must be positive: " + limit);
+        }
+        StringBuilder sql = new StringBuilder(FIND_PAGE_BY_WALLET_SQL);
+        if (status != null) {
+            sql.append(HISTORY_FILTER_STATUS);
+        }
+        if (after != null) {
+            sql.append(HISTORY_AFTER);
+        }
+        sql.append(HISTORY_ORDER);
+
+        List<Transaction> result = new ArrayList<>(limit + 1);
+        try (Connection conn = DBConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql.toString())) {
+            int index = 1;
+            stmt.setObject(index++, walletId);
+            if (status != null) {
+                stmt.setString(index++, status.name());
+            }
+            if (after != null) {
+                stmt.setTimestamp(index++, Timestamp.valueOf(after.getCreatedAt()));
+                stmt.setObject(index++, after.getId());
+            }
+            // One extra row tells whether another page follows
+            stmt.setInt(index, limit + 1);
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    result.add(mapRow(rs));
+                }
+            }
+        } catch (SQLException e) {
+            String errorMsg = String.format("Error retrieving transaction page for wallet %s: %s",
+                walletId, e.getMessage());
+            logger.severe(errorMsg);
+            throw new TransactionRepositoryException(errorMsg, e);
+        }
+        boolean hasMore = result.size() > limit;
+        if (hasMore) {
+            result.remove(limit);
+        }
+        return new TransactionPage(result, hasMore);
+    }
+
+    @Override
+    public Optional<Transaction> findById(UUID transactionId) {
+        try (Connection conn = DBConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(FIND_BY_ID_SQL)) {
+            stmt.setObject(1, transactionId);
+            
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (rs.next()) {
+                    Transaction tx = mapRow(rs);
+                    return Optional.of(tx);
+                }
+            }
+        } catch (SQLException e) {
+            String errorMsg = String.format("Error finding transaction %s: %s",
+                transactionId, e.getMessage());
+            logger.severe(errorMsg);
+            throw new TransactionRepositoryException(errorMsg, e);
+        }
+        return Optional.empty();
+    }
+
+    @Override
+    public List<Transaction> findAllPending() {
+        List<Transaction> result = new ArrayList<>();
+
+        try (Connection conn = DBConnection.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(FIND_ALL_PENDING_SQL)) {
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    Transaction tx = mapRow(rs);
+                    result.add(tx);
+                }
+            }
+        } catch (SQLException e) {
+            String errorMsg = "Error retrieving all pending transactions: " + e.getMessage();
+            logger.severe(errorMsg);
+            throw new TransactionRepositoryException(errorMsg, e);
+        }
+        return result;
+    }
+
+    /**
+     * Streams the pending transactions, in findAllPending order, through a
+     * server-side cursor and hands them to consumer chunkSize at a time. Only
+     * the current chunk is held in memory. Returns the number of rows read.
+     */
+    @Override
+    public long forEachPendingChunk(int chunkSize, Consumer<List<Transaction>> consumer) {
+        long count = 0;
+        try (Connection conn = DBConnection.getConnection()) {
+            // The driver only uses a cursor for fetchSize inside a transaction
+            conn.setAutoCommit(false);
+            try (PreparedStatement stmt = conn.prepareStatement(FIND_ALL_PENDING_SQL,
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+                stmt.setFetchSize(chunkSize);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    List<Transaction> chunk = new ArrayList<>(chunkSize);
+                    while (rs.next()) {
+                        chunk.add(mapRow(rs));
+                        if (chunk.size() == chunkSize) {
+                            consumer.accept(chunk);
+                            count += chunk.size();
+                            chunk = new ArrayList<>(chunkSize);
+                        }
+                    }
+                    if (!chunk.isEmpty()) {
+                        consumer.accept(chunk);
+                        count += chunk.size();
+                    }
+                }
+                conn.commit();
+            } catch (SQLException | RuntimeException e) {
+                conn.rollback();
+                throw e;
+            }
+        } catch (SQLException e) {
+            String errorMsg = "Error streaming pending transactions: " + e.getMessage();
+            logger.severe(errorMsg);
+            throw new TransactionRepositoryException(errorMsg, e);
+        }
+        return count;
+    }
+
+    // Builds a Transaction from the current row of a query selecting all transaction columns
+    public static Transaction mapRow(ResultSet rs) throws SQLException {
+        return new Transaction(
+            (UUID) rs.getObject(ID_COLUMN),
+            (UUID) rs.getObject(WALLET_ID_COLUMN),
+            rs.getString(SOURCE_ADDRESS_COLUMN),
+            rs.getString(DESTINATION_ADDRESS_COLUMN),
+            rs.getDouble(AMOUNT_COLUMN),
+            rs.getDouble(FEE_COLUMN),
+            FeeLevel.valueOf(rs.getString(FEE_LEVEL_COLUMN)),
+            TransactionStatus.valueOf(rs.getString(STATUS_COLUMN)),
+            rs.getTimestamp(CREATED_AT_COLUMN).toLocalDateTime()
+        );
+    }
+
+    private static void bindUpsert(PreparedStatement stmt, Transaction tx) throws SQLException {
+        // Validate transaction data before saving
+        if (tx.getId() == null) {
+            throw new IllegalArgumentException("Transaction ID cannot be null");
+        }
+        if (tx.getWalletId() == null) {
+            throw new IllegalArgumentException("Wallet ID cannot be null");
+        }
+        stmt.setObject(1, tx.getId());
+        stmt.setObject(2, tx.getWalletId());
+        stmt.setString(3, tx.getSourceAddress());
+        stmt.setString(4, tx.getDestinationAddress());
+        stmt.setDouble(5, tx.getAmount());
+        stmt.setDouble(6, tx.getFee());
+        stmt.setString(7, tx.getFeeLevel() != null ? tx.getFeeLevel().name() : FeeLevel.STANDARD.name());
+        stmt.setString(8, tx.getStatus().name());
+        stmt.setTimestamp(9, Timestamp.valueOf(tx.getCreatedAt()));
+    }
+
+    // With reWriteBatchedInserts the driver reports SUCCESS_NO_INFO for rewritten statements
+    private static int countUpdated(int[] counts) {
+        int total = 0;
+        for (int count : counts) {
+            total += count == Statement.SUCCESS_NO_INFO ? 1 : Math.max(count, 0);
+        }
+        return total;
+    }
+
+    // A failed batch hides the row-level cause behind getNextException
+    static String batchMessage(SQLException e) {
+        SQLException next = e.getNextException();
+        return next == null ? e.getMessage() : e.getMessage() + " / " + next.getMessage();
+    }
+}
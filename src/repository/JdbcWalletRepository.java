@@ -0,0 +1,220 @@
+package repository;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.OptionalDouble;
+import java.util.UUID;
+import java.util.logging.Logger;
+
+import model.Wallet;
+import model.enums.CryptoType;
+import utils.DBConnection;
+
+public class JdbcWalletRepository implements WalletRepository {
+    
+    private static final Logger logger = Logger.getLogger(JdbcWalletRepository.class.getName());
+    
+    private static final String UPSERT_SQL = "INSERT INTO wallets (id, type, address, password, balance) " +
+            "VALUES (?, ?, ?, ?, ?) " +
+            "ON CONFLICT (id) DO UPDATE SET " +
+            "type = EXCLUDED.type, " +
+            "address = EXCLUDED.address, " +
+            "password = EXCLUDED.password, " +
+            "balance = EXCLUDED.balance";
+    // Both go through the unique indexes on address and id
+    private static final String FIND_IDS_BY_ADDRESS_SQL = "SELECT id, address FROM wallets WHERE address = ANY(?)";
+    private static final String CREDIT_SQL = "UPDATE wallets SET balance = balance + ? WHERE id = ?";
+    private static final String CREDIT_RETURNING_SQL = CREDIT_SQL + " RETURNING balance";
+    // The guard makes the check and the update one statement, so concurrent debits cannot overdraw
+    private static final String DEBIT_SQL = "UPDATE wallets SET balance = balance - ? WHERE id = ? AND balance >= ? RETURNING balance";
+
+    @Override
+    public void save(Wallet wallet){
+        try (Connection conn = DBConnection.getConnection();
+            PreparedStatement stmt = conn.prepareStatement(UPSERT_SQL)) {
+            bindUpsert(stmt, wallet);
+            stmt.executeUpdate();
+        } catch(SQLException e){
+            logger.severe("Error saving wallet : " + e.getMessage());
+            throw new RuntimeException("Failed to save wallet", e);
+        }
+    }
+
+    @Override
+    public OptionalDouble credit(UUID id, double amount) {
+        try (Connection conn = DBConnection.getConnection();
+            PreparedStatement stmt = conn.prepareStatement(CREDIT_RETURNING_SQL)) {
+            stmt.setDouble(1, amount);
+            stmt.setObject(2, id);
+            return balanceOf(stmt);
+        } catch (SQLException e) {
+            logger.severe("Error crediting wallet : " + e.getMessage());
+            throw new RuntimeException("Failed to credit wallet", e);
+        }
+    }
+
+    @Override
+    public OptionalDouble debit(UUID id, double amount) {
+        try (Connection conn = DBConnection.getConnection();
+            PreparedStatement stmt = conn.prepareStatement(DEBIT_SQL)) {
+            stmt.setDouble(1, amount);
+            stmt.setObject(2, id);
+            stmt.setDouble(3, amount);
+            return balanceOf(stmt);
+        } catch (SQLException e) {
+            logger.severe("Error debiting wallet : " + e.getMessage());
+            throw new RuntimeException("Failed to debit wallet", e);
+        }
+    }
+
+    // Batched upsert on the caller's connection, which owns the transaction
+    void upsertBatch(Connection conn, Collection<Wallet> wallets) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(UPSERT_SQL)) {
+            for (Wallet wallet : wallets) {
+                bindUpsert(stmt, wallet);
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+        }
+    }
+    
+    // Owner of each address that belongs to a stored wallet, looked up in one query on the caller's connection
+    static Map<String, UUID> findIdsByAddress(Connection conn, Collection<String> addresses) throws SQLException {
+        Map<String, UUID> owners = new HashMap<>();
+        if (addresses.isEmpty()) {
+            return owners;
+        }
+        try (PreparedStatement stmt = conn.prepareStatement(FIND_IDS_BY_ADDRESS_SQL)) {
+            stmt.setArray(1, conn.createArrayOf("varchar", addresses.toArray()));
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    owners.put(rs.getString("address"), (UUID) rs.getObject("id"));
+                }
+            }
+        }
+        return owners;
+    }
+
+    // Adds each amount to the stored balance in one batch; the increment never overwrites a concurrent change
+    static void creditBatch(Connection conn, Map<UUID, Double> credits) throws SQLException {
+        if (credits.isEmpty()) {
+            return;
+        }
+        try (PreparedStatement stmt = conn.prepareStatement(CREDIT_SQL)) {
+            for (Map.Entry<UUID, Double> credit : credits.entrySet()) {
+                stmt.setDouble(1, credit.getValue());
+                stmt.setObject(2, credit.getKey());
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+        }
+    }
+
+    // One increment on the caller's connection; false if there is no such wallet
+    static boolean applyCredit(Connection conn, UUID id, double amount) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(CREDIT_SQL)) {
+            stmt.setDouble(1, amount);
+            stmt.setObject(2, id);
+            return stmt.executeUpdate() == 1;
+        }
+    }
+
+    // One guarded decrement on the caller's connection; false if the balance does not cover it
+    static boolean applyDebit(Connection conn, UUID id, double amount) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(DEBIT_SQL)) {
+            stmt.setDouble(1, amount);
+            stmt.setObject(2, id);
+            stmt.setDouble(3, amount);
+            return balanceOf(stmt).isPresent();
+        }
+    }
+
+    @Override
+    public Optional<Wallet> findById(UUID id){
+        String sql = "SELECT id, type, address, password, balance FROM wallets WHERE id = ?";
+        try (Connection conn = DBConnection.getConnection();
+            PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setObject(1, id);
+            try (ResultSet rs = stmt.executeQuery()) {
+                if(rs.next()){
+                    Wallet wallet = createWalletFromResultSet(rs);
+                    return Optional.of(wallet);
+                }
+            }
+        } catch (SQLException e) {
+            logger.severe("Error finding wallet by id: " + e.getMessage());
+            throw new RuntimeException("Failed to find wallet", e);
+        }
+        return Optional.empty();
+    }
+    
+    @Override
+    public Optional<Wallet> findByAddress(String address){
+        String sql = "SELECT id, type, address, password, balance FROM wallets WHERE address = ?";
+        try (Connection conn = DBConnection.getConnection();
+            PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setString(1, address);
+            try (ResultSet rs = stmt.executeQuery()) {
+                if(rs.next()){
+                    return Optional.of(createWalletFromResultSet(rs));
+                }
+            }
+        } catch (SQLException e) {
+            logger.severe("Error finding wallet by address: " + e.getMessage());
+            throw new RuntimeException("Failed to find wallet", e);
+        }
+        return Optional.empty();
+    }
+    
+    @Override
+    public List<Wallet> findAll(){
+        List<Wallet> wallets = new ArrayList<>();
+        String sql = "SELECT id, type, address, password, balance FROM wallets ORDER BY id";
+        try (Connection conn = DBConnection.getConnection();
+            PreparedStatement stmt = conn.prepareStatement(sql);
+            ResultSet rs = stmt.executeQuery()) {
+            while(rs.next()){
+                Wallet wallet = createWalletFromResultSet(rs);
+                wallets.add(wallet);
+            }
+        } catch (Exception e) {
+            logger.severe("Error finding all wallets: " + e.getMessage());
+            throw new RuntimeException("Failed to retrieve wallets", e);
+        }
+        return wallets;
+    }
+    
+    // The balance returned by an UPDATE ... RETURNING balance, empty if no row matched
+    private static OptionalDouble balanceOf(PreparedStatement stmt) throws SQLException {
+        try (ResultSet rs = stmt.executeQuery()) {
+            return rs.next() ? OptionalDouble.of(rs.getDouble("balance")) : OptionalDouble.empty();
+        }
+    }
+
+    private static void bindUpsert(PreparedStatement stmt, Wallet wallet) throws SQLException {
+        stmt.setObject(1, wallet.getId());
+        stmt.setString(2, wallet.getType().name());
+        stmt.setString(3, wallet.getAddress());
+        stmt.setString(4, wallet.getPassword());
+        stmt.setDouble(5, wallet.getBalance());
+    }
+
+    private Wallet createWalletFromResultSet(ResultSet rs) throws SQLException{
+        UUID id = (UUID) rs.getObject("id");
+        CryptoType type = CryptoType.valueOf(rs.getString("type"));
+        String address = rs.getString("address");
+        String password = rs.getString("password");
+        double balance = rs.getDouble("balance");
+        
+        Wallet wallet = new Wallet(id, address, password, type, balance);
+        return wallet;
+    }
+}
\ No newline at end of file
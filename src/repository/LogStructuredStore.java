@@ -0,0 +1,602 @@
+package repository;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BiConsumer;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+/**
+ * Embedded key-value store keyed by UUID: an append-only log of records in
+ * memory-mapped segment files, with an in-memory hash index from each key to
+ * its latest record.
+ *
+ * Records are [length][crc32][key][value]. A put appends a new version and
+ * repoints the index, leaving the old one as garbage. Segments are
+ * preallocated to segmentBytes and a new one is started when the active one
+ * is full. A background task copies the live records of sealed segments that
+ * are mostly garbage to the head of the log and deletes those segments.
+ *
+ * open() scans every segment in order to rebuild the index; a torn record at
+ * the end of the last segment, left by a crash mid-write, is ignored and
+ * overwritten. Writes land in the page cache as soon as put returns, so only
+ * an OS crash or power loss can lose them; syncWrites forces them to disk
+ * before returning.
+ */
+public class LogStructuredStore implements AutoCloseable {
+    private static final Logger logger = Logger.getLogger(LogStructuredStore.class.getName());
+
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final int RECORD_HEADER_BYTES = 4 + 4;
+    private static final int KEY_BYTES = 16;
+
+    public static class LogStoreException extends RuntimeException {
+        public LogStoreException(String message, Throwable cause) {
+            super(message, cause);
+        }
+    }
+
+    private final Path directory;
+    private final int segmentBytes;
+    private final double compactionThreshold;
+    private final Duration compactionInterval;
+    private final boolean syncWrites;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final KeyIndex index = new KeyIndex();
+    private final TreeMap<Integer, Segment> segments = new TreeMap<>();
+    private final CRC32 crc = new CRC32();
+    private Segment active;
+    private boolean open;
+    private ScheduledExecutorService compactor;
+    private long compactedSegments;
+    private long reclaimedBytes;
+
+    /**
+     * compactionThreshold is the fraction of garbage from which a sealed
+     * segment is compacted; a zero or negative compactionInterval disables
+     * background compaction.
+     */
+    public LogStructuredStore(Path directory, int segmentBytes, double compactionThreshold,
+                              Duration compactionInterval, boolean syncWrites) {
+        if (segmentBytes < RECORD_HEADER_BYTES + KEY_BYTES) {
+            throw new IllegalArgumentException("Segment size too small: " + segmentBytes);
+        }
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+        this.compactionThreshold = compactionThreshold;
+        this.compactionInterval = compactionInterval;
+        this.syncWrites = syncWrites;
+    }
+
+    // Maps the existing segments, rebuilds the index and starts background compaction
+    public void open() {
+        lock.writeLock().lock();
+        try {
+            if (open) {
+                return;
+            }
+            long start = System.nanoTime();
+            Files.createDirectories(directory);
+            List<Integer> numbers = listSegments();
+            for (int i = 0; i < numbers.size(); i++) {
+                boolean last = i == numbers.size() - 1;
+                Segment segment = mapSegment(numbers.get(i), last);
+                segments.put(segment.number, segment);
+                scan(segment, last);
+            }
+            active = numbers.isEmpty() ? createSegment(1) : segments.lastEntry().getValue();
+            open = true;
+            logger.info(String.format("Opened log store %s: %d keys in %d segment(s) in %d ms", directory,
+                index.size(), segments.size(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)));
+        } catch (IOException e) {
+            throw fail("Failed to open log store in " + directory, e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        if (!compactionInterval.isZero() && !compactionInterval.isNegative()) {
+            compactor = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "log-store-compactor");
+                thread.setDaemon(true);
+                return thread;
+            });
+            long periodMillis = compactionInterval.toMillis();
+            compactor.scheduleWithFixedDelay(() -> {
+                try {
+                    compact();
+                } catch (Exception e) {
+                    logger.warning("Log store compaction failed: " + e.getMessage());
+                }
+            }, periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    // Read-only view of the latest value stored under key, or null
+    public ByteBuffer get(UUID key) {
+        lock.readLock().lock();
+        try {
+            checkOpen();
+            long location = index.get(key.getMostSignificantBits(), key.getLeastSignificantBits());
+            return location < 0 ? null : valueAt(location);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void put(UUID key, ByteBuffer value) {
+        putAll(Collections.singletonMap(key, value));
+    }
+
+    /**
+     * Appends the records in iteration order under one lock, so readers see
+     * all or none of them. A crash can keep only a prefix of them.
+     */
+    public void putAll(Map<UUID, ByteBuffer> records) {
+        for (ByteBuffer value : records.values()) {
+            if (RECORD_HEADER_BYTES + KEY_BYTES + value.remaining() > segmentBytes) {
+                throw new IllegalArgumentException("Record of " + value.remaining()
+                    + " bytes does not fit in a segment of " + segmentBytes + " bytes");
+            }
+        }
+        lock.writeLock().lock();
+        try {
+            checkOpen();
+            for (Map.Entry<UUID, ByteBuffer> record : records.entrySet()) {
+                append(record.getKey(), record.getValue());
+            }
+            if (syncWrites) {
+                active.buffer.force();
+            }
+        } catch (IOException e) {
+            throw fail("Failed to append to log store in " + directory, e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Calls visitor for every live record; the value is only valid during the call
+    public void forEach(BiConsumer<UUID, ByteBuffer> visitor) {
+        lock.readLock().lock();
+        try {
+            checkOpen();
+            index.forEach((key, location) -> visitor.accept(key, valueAt(location)));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return index.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int getSegmentCount() {
+        lock.readLock().lock();
+        try {
+            return segments.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public long getCompactedSegments() {
+        lock.readLock().lock();
+        try {
+            return compactedSegments;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public long getReclaimedBytes() {
+        lock.readLock().lock();
+        try {
+            return reclaimedBytes;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Rewrites the live records of every sealed segment holding at least
+     * compactionThreshold garbage and deletes it. The copies are forced to disk
+     * before a segment is deleted; after a crash in between, both versions are
+     * identical and the later one wins. Returns the number of bytes reclaimed.
+     */
+    public long compact() {
+        long reclaimed = 0;
+        lock.writeLock().lock();
+        try {
+            if (!open) {
+                return 0;
+            }
+            List<Segment> candidates = new ArrayList<>();
+            for (Segment segment : segments.values()) {
+                if (segment != active && segment.end > 0
+                        && 1.0 - (double) segment.liveBytes / segment.end >= compactionThreshold) {
+                    candidates.add(segment);
+                }
+            }
+            for (Segment segment : candidates) {
+                int before = segment.end;
+                long live = segment.liveBytes;
+                copyLiveRecords(segment);
+                active.buffer.force();
+                segments.remove(segment.number);
+                segment.channel.close();
+                Files.deleteIfExists(segment.path);
+                compactedSegments++;
+                reclaimedBytes += before - live;
+                reclaimed += before - live;
+            }
+        } catch (IOException e) {
+            throw fail("Failed to compact log store in " + directory, e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        if (reclaimed > 0) {
+            logger.info(String.format("Compacted log store %s: reclaimed %d KB", directory, reclaimed / 1024));
+        }
+        return reclaimed;
+    }
+
+    // Forces the active segment to disk; sealed segments were forced when they were sealed
+    public void sync() {
+        lock.writeLock().lock();
+        try {
+            if (open) {
+                active.buffer.force();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void close() {
+        if (compactor != null) {
+            compactor.shutdownNow();
+            try {
+                compactor.awaitTermination(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            compactor = null;
+        }
+        lock.writeLock().lock();
+        try {
+            if (!open) {
+                return;
+            }
+            open = false;
+            active.buffer.force();
+            for (Segment segment : segments.values()) {
+                try {
+                    segment.channel.close();
+                } catch (IOException e) {
+                    logger.warning("Failed to close log segment " + segment.path + ": " + e.getMessage());
+                }
+            }
+            segments.clear();
+            index.clear();
+            active = null;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Orders keys the way PostgreSQL orders uuid values: bytewise, unsigned
+    static int compareKeys(UUID a, UUID b) {
+        int cmp = Long.compareUnsigned(a.getMostSignificantBits(), b.getMostSignificantBits());
+        return cmp != 0 ? cmp : Long.compareUnsigned(a.getLeastSignificantBits(), b.getLeastSignificantBits());
+    }
+
+    // Caller holds the write lock
+    private void append(UUID key, ByteBuffer value) throws IOException {
+        int length = KEY_BYTES + value.remaining();
+        if (active.end + RECORD_HEADER_BYTES + length > active.buffer.capacity()) {
+            roll();
+        }
+        int offset = active.end;
+        ByteBuffer target = active.buffer.duplicate();
+        target.position(offset + RECORD_HEADER_BYTES);
+        target.putLong(key.getMostSignificantBits());
+        target.putLong(key.getLeastSignificantBits());
+        target.put(value.duplicate());
+        ByteBuffer body = active.buffer.duplicate();
+        body.position(offset + RECORD_HEADER_BYTES).limit(offset + RECORD_HEADER_BYTES + length);
+        crc.reset();
+        crc.update(body);
+        active.buffer.putInt(offset + 4, (int) crc.getValue());
+        active.buffer.putInt(offset, length);
+        active.end = offset + RECORD_HEADER_BYTES + length;
+        active.liveBytes += RECORD_HEADER_BYTES + length;
+        long previous = index.put(key.getMostSignificantBits(), key.getLeastSignificantBits(),
+            location(active.number, offset));
+        if (previous >= 0) {
+            release(previous);
+        }
+    }
+
+    // Seals the active segment and starts the next one
+    private void roll() throws IOException {
+        active.buffer.force();
+        active = createSegment(active.number + 1);
+    }
+
+    private void copyLiveRecords(Segment segment) throws IOException {
+        ByteBuffer buffer = segment.buffer;
+        int offset = 0;
+        while (offset < segment.end) {
+            int length = buffer.getInt(offset);
+            long msb = buffer.getLong(offset + RECORD_HEADER_BYTES);
+            long lsb = buffer.getLong(offset + RECORD_HEADER_BYTES + 8);
+            if (index.get(msb, lsb) == location(segment.number, offset)) {
+                ByteBuffer value = buffer.duplicate();
+                value.position(offset + RECORD_HEADER_BYTES + KEY_BYTES).limit(offset + RECORD_HEADER_BYTES + length);
+                append(new UUID(msb, lsb), value);
+            }
+            offset += RECORD_HEADER_BYTES + length;
+        }
+    }
+
+    // Indexes the valid records of a segment and finds where the next record goes
+    private void scan(Segment segment, boolean last) {
+        ByteBuffer buffer = segment.buffer;
+        int capacity = buffer.capacity();
+        int offset = 0;
+        while (offset + RECORD_HEADER_BYTES + KEY_BYTES <= capacity) {
+            int length = buffer.getInt(offset);
+            if (length == 0) {
+                break;
+            }
+            if (length < KEY_BYTES || offset + RECORD_HEADER_BYTES + length > capacity) {
+                warnTruncated(segment, offset, last, "corrupt record length");
+                break;
+            }
+            ByteBuffer body = buffer.duplicate();
+            body.position(offset + RECORD_HEADER_BYTES).limit(offset + RECORD_HEADER_BYTES + length);
+            crc.reset();
+            crc.update(body);
+            if ((int) crc.getValue() != buffer.getInt(offset + 4)) {
+                warnTruncated(segment, offset, last, "checksum mismatch");
+                break;
+            }
+            long previous = index.put(buffer.getLong(offset + RECORD_HEADER_BYTES),
+                buffer.getLong(offset + RECORD_HEADER_BYTES + 8), location(segment.number, offset));
+            if (previous >= 0) {
+                release(previous);
+            }
+            segment.liveBytes += RECORD_HEADER_BYTES + length;
+            offset += RECORD_HEADER_BYTES + length;
+        }
+        segment.end = offset;
+    }
+
+    private static void warnTruncated(Segment segment, int offset, boolean last, String reason) {
+        if (last) {
+            logger.warning(String.format("Torn record at offset %d of %s (%s), ignoring it", offset, segment.path, reason));
+        } else {
+            logger.warning(String.format("Corrupt record at offset %d of %s (%s), ignoring the rest of the segment",
+                offset, segment.path, reason));
+        }
+    }
+
+    // The record at location has been superseded
+    private void release(long location) {
+        Segment segment = segments.get(segmentOf(location));
+        segment.liveBytes -= RECORD_HEADER_BYTES + segment.buffer.getInt(offsetOf(location));
+    }
+
+    private ByteBuffer valueAt(long location) {
+        ByteBuffer buffer = segments.get(segmentOf(location)).buffer;
+        int offset = offsetOf(location);
+        ByteBuffer value = buffer.asReadOnlyBuffer();
+        value.position(offset + RECORD_HEADER_BYTES + KEY_BYTES).limit(offset + RECORD_HEADER_BYTES + buffer.getInt(offset));
+        return value.slice();
+    }
+
+    private Segment createSegment(int number) throws IOException {
+        Segment segment = mapSegment(number, true);
+        segments.put(number, segment);
+        return segment;
+    }
+
+    // Sealed segments are mapped read-only at their size; a writable one is preallocated to segmentBytes
+    private Segment mapSegment(int number, boolean writable) throws IOException {
+        Path path = segmentPath(number);
+        FileChannel channel = writable
+            ? FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)
+            : FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            long size = writable ? Math.max(channel.size(), segmentBytes) : channel.size();
+            MappedByteBuffer buffer = channel.map(writable ? FileChannel.MapMode.READ_WRITE : FileChannel.MapMode.READ_ONLY,
+                0, size);
+            return new Segment(number, path, channel, buffer);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private List<Integer> listSegments() throws IOException {
+        List<Integer> numbers = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            for (Path file : stream) {
+                String name = file.getFileName().toString();
+                try {
+                    numbers.add(Integer.parseInt(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length())));
+                } catch (NumberFormatException e) {
+                    logger.warning("Ignoring unexpected file in log store directory: " + name);
+                }
+            }
+        }
+        Collections.sort(numbers);
+        return numbers;
+    }
+
+    private Path segmentPath(int number) {
+        return directory.resolve(String.format("%s%010d%s", SEGMENT_PREFIX, number, SEGMENT_SUFFIX));
+    }
+
+    private void checkOpen() {
+        if (!open) {
+            throw new IllegalStateException("Log store " + directory + " is not open");
+        }
+    }
+
+    private static long location(int segment, int offset) {
+        return ((long) segment << 32) | (offset & 0xFFFFFFFFL);
+    }
+
+    private static int segmentOf(long location) {
+        return (int) (location >>> 32);
+    }
+
+    private static int offsetOf(long location) {
+        return (int) location;
+    }
+
+    private static LogStoreException fail(String message, Throwable cause) {
+        String errorMsg = message + ": " + cause.getMessage();
+        logger.severe(errorMsg);
+        return new LogStoreException(errorMsg, cause);
+    }
+
+    private static final class Segment {
+        private final int number;
+        private final Path path;
+        private final FileChannel channel;
+        private final MappedByteBuffer buffer;
+        // End of the valid records, where the next one is appended
+        private int end;
+        // Bytes of records that are still the latest version of their key
+        private long liveBytes;
+
+        Segment(int number, Path path, FileChannel channel, MappedByteBuffer buffer) {
+            this.number = number;
+            this.path = path;
+            this.channel = channel;
+            this.buffer = buffer;
+        }
+    }
+
+    /**
+     * Open-addressing hash map from a UUID, stored as its two longs, to a
+     * record location. Flat arrays keep it at 24 bytes per key; keys are never
+     * removed, so linear probing needs no tombstones.
+     */
+    private static final class KeyIndex {
+        private static final long EMPTY = -1L;
+        private long[] msbs = new long[1024];
+        private long[] lsbs = new long[1024];
+        private long[] locations = newLocations(1024);
+        private int size;
+
+        int size() { return size; }
+
+        long get(long msb, long lsb) {
+            int mask = locations.length - 1;
+            for (int slot = hash(msb, lsb) & mask; locations[slot] != EMPTY; slot = (slot + 1) & mask) {
+                if (msbs[slot] == msb && lsbs[slot] == lsb) {
+                    return locations[slot];
+                }
+            }
+            return EMPTY;
+        }
+
+        // Returns the previous location, or -1
+        long put(long msb, long lsb, long location) {
+            if ((size + 1) * 4L > locations.length * 3L) {
+                resize();
+            }
+            int mask = locations.length - 1;
+            int slot = hash(msb, lsb) & mask;
+            while (locations[slot] != EMPTY) {
+                if (msbs[slot] == msb && lsbs[slot] == lsb) {
+                    long previous = locations[slot];
+                    locations[slot] = location;
+                    return previous;
+                }
+                slot = (slot + 1) & mask;
+            }
+            msbs[slot] = msb;
+            lsbs[slot] = lsb;
+            locations[slot] = location;
+            size++;
+            return EMPTY;
+        }
+
+        void forEach(KeyVisitor visitor) {
+            for (int slot = 0; slot < locations.length; slot++) {
+                if (locations[slot] != EMPTY) {
+                    visitor.visit(new UUID(msbs[slot], lsbs[slot]), locations[slot]);
+                }
+            }
+        }
+
+        void clear() {
+            msbs = new long[1024];
+            lsbs = new long[1024];
+            locations = newLocations(1024);
+            size = 0;
+        }
+
+        private void resize() {
+            long[] oldMsbs = msbs;
+            long[] oldLsbs = lsbs;
+            long[] oldLocations = locations;
+            msbs = new long[oldLocations.length * 2];
+            lsbs = new long[oldLocations.length * 2];
+            locations = newLocations(oldLocations.length * 2);
+            size = 0;
+            for (int slot = 0; slot < oldLocations.length; slot++) {
+                if (oldLocations[slot] != EMPTY) {
+                    put(oldMsbs[slot], oldLsbs[slot], oldLocations[slot]);
+                }
+            }
+        }
+
+        private static long[] newLocations(int capacity) {
+            long[] array = new long[capacity];
+            Arrays.fill(array, EMPTY);
+            return array;
+        }
+
+        // Random UUIDs are already well mixed; the fold still spreads sequential ones
+        private static int hash(long msb, long lsb) {
+            long h = msb ^ lsb;
+            h ^= h >>> 33;
+            h *= 0xff51afd7ed558ccdL;
+            h ^= h >>> 33;
+            return (int) h;
+        }
+
+        interface KeyVisitor {
+            void visit(UUID key, long location);
+        }
+    }
+}
@@ -0,0 +1,196 @@
+package repository;
+
+import model.Transaction;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+/**
+ * Compact binary image of the mempool, used to restart without reloading
+ * every pending row from PostgreSQL.
+ *
+ * Layout: header (magic, version, creation time, count), fixed-size record
+ * fields followed by the two length-prefixed UTF-8 addresses, then a CRC32
+ * of all records. Files are written to a temporary file and atomically moved
+ * into place, and read back through memory-mapped windows.
+ */
+public class MempoolSnapshotRepository {
+    private static final Logger logger = Logger.getLogger(MempoolSnapshotRepository.class.getName());
+
+    private static final int MAGIC = 0x4D505331; // "MPS1"
+    private static final short VERSION = 1;
+    private static final int HEADER_BYTES = 4 + 2 + 8 + 4;
+    private static final int WRITE_BUFFER_BYTES = 1 << 20;
+    private static final long MAP_WINDOW_BYTES = 256L << 20;
+
+    private final Path path;
+
+    public static class SnapshotException extends RuntimeException {
+        public SnapshotException(String message, Throwable cause) {
+            super(message, cause);
+        }
+    }
+
+    public MempoolSnapshotRepository(Path path) {
+        this.path = path;
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    public void write(List<Transaction> transactions) {
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        try {
+            if (path.getParent() != null) {
+                Files.createDirectories(path.getParent());
+            }
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                ByteBuffer buffer = ByteBuffer.allocateDirect(WRITE_BUFFER_BYTES).order(ByteOrder.BIG_ENDIAN);
+                buffer.putInt(MAGIC);
+                buffer.putShort(VERSION);
+                buffer.putLong(System.currentTimeMillis());
+                buffer.putInt(transactions.size());
+                buffer.flip();
+                writeFully(channel, buffer);
+                buffer.clear();
+
+                CRC32 crc = new CRC32();
+                for (Transaction tx : transactions) {
+                    if (buffer.remaining() < TransactionRecordCodec.MAX_BYTES) {
+                        flush(channel, buffer, crc);
+                    }
+                    TransactionRecordCodec.write(buffer, tx);
+                }
+                flush(channel, buffer, crc);
+                buffer.putLong(crc.getValue());
+                buffer.flip();
+                writeFully(channel, buffer);
+                channel.force(true);
+            }
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            String errorMsg = "Failed to write mempool snapshot " + path + ": " + e.getMessage();
+            logger.severe(errorMsg);
+            throw new SnapshotException(errorMsg, e);
+        }
+    }
+
+    // Creation time of the snapshot, or null if there is no readable snapshot
+    public Instant getCreatedAt() {
+        if (!Files.isRegularFile(path)) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_BYTES) {
+                return null;
+            }
+            MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_BYTES);
+            if (header.getInt() != MAGIC || header.getShort() != VERSION) {
+                return null;
+            }
+            return Instant.ofEpochMilli(header.getLong());
+        } catch (IOException e) {
+            logger.warning("Cannot read mempool snapshot header: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Streams the snapshot to the consumer in chunks of at most chunkSize
+     * transactions. Returns false if the file is missing, truncated or fails its
+     * checksum; chunks already delivered must then be discarded by the caller.
+     */
+    public boolean read(int chunkSize, Consumer<List<Transaction>> consumer) {
+        if (!Files.isRegularFile(path)) {
+            return false;
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long fileSize = channel.size();
+            if (fileSize < HEADER_BYTES + 8) {
+                return false;
+            }
+            MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_BYTES);
+            if (header.getInt() != MAGIC || header.getShort() != VERSION) {
+                logger.warning("Unrecognized mempool snapshot format: " + path);
+                return false;
+            }
+            header.getLong();
+            int count = header.getInt();
+
+            long recordsEnd = fileSize - 8;
+            long position = HEADER_BYTES;
+            CRC32 crc = new CRC32();
+            List<Transaction> chunk = new ArrayList<>(Math.min(chunkSize, count));
+            int read = 0;
+            while (read < count) {
+                long windowSize = Math.min(MAP_WINDOW_BYTES, recordsEnd - position);
+                if (windowSize <= 0) {
+                    return false;
+                }
+                MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, position, windowSize);
+                boolean lastWindow = position + windowSize == recordsEnd;
+                // Stop before a record could straddle the window end, then remap from there
+                while (read < count && (lastWindow || window.remaining() >= TransactionRecordCodec.MAX_BYTES)) {
+                    chunk.add(TransactionRecordCodec.read(window));
+                    read++;
+                    if (chunk.size() == chunkSize) {
+                        consumer.accept(chunk);
+                        chunk = new ArrayList<>(chunkSize);
+                    }
+                }
+                ByteBuffer consumed = window.duplicate();
+                consumed.flip();
+                crc.update(consumed);
+                position += window.position();
+            }
+            if (!chunk.isEmpty()) {
+                consumer.accept(chunk);
+            }
+            ByteBuffer trailer = channel.map(FileChannel.MapMode.READ_ONLY, recordsEnd, 8);
+            if (position != recordsEnd || trailer.getLong() != crc.getValue()) {
+                logger.warning("Mempool snapshot checksum mismatch: " + path);
+                return false;
+            }
+            return true;
+        } catch (IOException | RuntimeException e) {
+            logger.warning("Failed to read mempool snapshot " + path + ": " + e.getMessage());
+            return false;
+        }
+    }
+
+    public void delete() {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            logger.warning("Failed to delete mempool snapshot " + path + ": " + e.getMessage());
+        }
+    }
+
+    private static void flush(FileChannel channel, ByteBuffer buffer, CRC32 crc) throws IOException {
+        buffer.flip();
+        crc.update(buffer.duplicate());
+        writeFully(channel, buffer);
+        buffer.clear();
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+}
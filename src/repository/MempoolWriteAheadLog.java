@@ -0,0 +1,466 @@
+package repository;
+
+import model.Transaction;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only log of mempool events, replayed on top of the last snapshot
+ * after a restart.
+ *
+ * Appenders only copy their record into a shared buffer; one writer thread
+ * drains it with a single write and fsync per batch (group commit). A batch is
+ * flushed once it holds syncBatchSize records or is maxSyncDelayMillis old.
+ * Appending never waits for the disk: each append returns its sequence
+ * number, and with waitForSync, sync(sequence) blocks until that record is on
+ * disk. Callers can so append under their own lock, keeping records in the
+ * order of their changes, and wait once that lock is released.
+ *
+ * Records are [length][crc32][type][payload] in numbered segment files.
+ * rotate() starts a new segment before a snapshot is taken, and the older
+ * segments are deleted once the snapshot is written. Replay stops at the first
+ * torn or corrupt record, which is where a crash interrupted the last write.
+ */
+public class MempoolWriteAheadLog {
+    private static final Logger logger = Logger.getLogger(MempoolWriteAheadLog.class.getName());
+
+    private static final String SEGMENT_PREFIX = "wal-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final int RECORD_HEADER_BYTES = 4 + 4;
+    private static final int MAX_RECORD_BYTES = RECORD_HEADER_BYTES + 1 + TransactionRecordCodec.MAX_BYTES;
+    private static final int BUFFER_BYTES = 1 << 20;
+    private static final EventType[] EVENT_TYPES = EventType.values();
+
+    public enum EventType {
+        ADD, FEE_BUMP, MINE, REJECT, EVICT, REMOVE
+    }
+
+    public static class Event {
+        private final EventType type;
+        private final UUID transactionId;
+        private final Transaction transaction;
+        private final double fee;
+
+        Event(EventType type, UUID transactionId, Transaction transaction, double fee) {
+            this.type = type;
+            this.transactionId = transactionId;
+            this.transaction = transaction;
+            this.fee = fee;
+        }
+
+        public EventType getType() { return type; }
+        public UUID getTransactionId() { return transactionId; }
+        // Only set for ADD
+        public Transaction getTransaction() { return transaction; }
+        // Only set for FEE_BUMP
+        public double getFee() { return fee; }
+    }
+
+    public static class WriteAheadLogException extends RuntimeException {
+        public WriteAheadLogException(String message, Throwable cause) {
+            super(message, cause);
+        }
+    }
+
+    private final Path directory;
+    private final int syncBatchSize;
+    private final long maxSyncDelayMillis;
+    private final boolean waitForSync;
+
+    private final Object lock = new Object();
+    // Records appended but not yet handed to the writer; swapped with flushBuffer
+    private ByteBuffer pending = allocate();
+    private ByteBuffer flushBuffer = allocate();
+    private int pendingRecords;
+    private long pendingSince;
+    private long appendedSequence;
+    private long durableSequence;
+    private boolean flushRequested;
+    private boolean closed;
+    private IOException failure;
+
+    private FileChannel channel;
+    private long segmentNumber;
+    private Thread writer;
+
+    public MempoolWriteAheadLog(Path directory, int syncBatchSize, long maxSyncDelayMillis, boolean waitForSync) {
+        this.directory = directory;
+        this.syncBatchSize = Math.max(1, syncBatchSize);
+        this.maxSyncDelayMillis = Math.max(0, maxSyncDelayMillis);
+        this.waitForSync = waitForSync;
+    }
+
+    // Opens a new segment after the existing ones and starts the writer thread
+    public void open() {
+        synchronized (lock) {
+            if (writer != null) {
+                return;
+            }
+            try {
+                Files.createDirectories(directory);
+                List<Long> segments = listSegments();
+                segmentNumber = segments.isEmpty() ? 1 : segments.get(segments.size() - 1) + 1;
+                channel = openSegment(segmentNumber);
+            } catch (IOException e) {
+                throw fail("Failed to open mempool write-ahead log in " + directory, e);
+            }
+            closed = false;
+            writer = new Thread(this::writeLoop, "mempool-wal");
+            writer.setDaemon(true);
+            writer.start();
+        }
+    }
+
+    // The append methods return the record's sequence number, for sync
+    public long appendAdd(Transaction transaction) {
+        return append(EventType.ADD, transaction.getId(), transaction, 0);
+    }
+
+    // One record per transaction, appended together; returns the last sequence number
+    public long appendAdds(List<Transaction> transactions) {
+        synchronized (lock) {
+            long sequence = appendedSequence;
+            for (Transaction transaction : transactions) {
+                sequence = append(EventType.ADD, transaction.getId(), transaction, 0);
+            }
+            return sequence;
+        }
+    }
+
+    public long appendFeeBump(UUID transactionId, double newFee) {
+        return append(EventType.FEE_BUMP, transactionId, null, newFee);
+    }
+
+    // MINE, REJECT, EVICT or REMOVE
+    public long appendRemoval(EventType type, UUID transactionId) {
+        return append(type, transactionId, null, 0);
+    }
+
+    // With waitForSync, blocks until every record up to sequence is on disk; otherwise returns at once
+    public void sync(long sequence) {
+        if (!waitForSync) {
+            return;
+        }
+        synchronized (lock) {
+            awaitDurable(sequence);
+        }
+    }
+
+    /**
+     * Replays every segment in order. Returns the number of events delivered;
+     * a torn record ends its segment, since nothing after it was acknowledged.
+     */
+    public int replay(Consumer<Event> consumer) {
+        int events = 0;
+        try {
+            if (!Files.isDirectory(directory)) {
+                return 0;
+            }
+            for (long segment : listSegments()) {
+                events += replaySegment(segmentPath(segment), consumer);
+            }
+        } catch (IOException e) {
+            throw fail("Failed to replay mempool write-ahead log in " + directory, e);
+        }
+        return events;
+    }
+
+    // Flushes and switches to a new segment; returns the first segment number that must be kept
+    public long rotate() {
+        synchronized (lock) {
+            awaitDurable(appendedSequence);
+            try {
+                channel.close();
+                segmentNumber++;
+                channel = openSegment(segmentNumber);
+            } catch (IOException e) {
+                throw fail("Failed to rotate mempool write-ahead log", e);
+            }
+            return segmentNumber;
+        }
+    }
+
+    // Drops the segments covered by a snapshot taken after rotate() returned keepFrom
+    public void deleteSegmentsBefore(long keepFrom) {
+        if (!Files.isDirectory(directory)) {
+            return;
+        }
+        try {
+            for (long segment : listSegments()) {
+                if (segment < keepFrom) {
+                    Files.deleteIfExists(segmentPath(segment));
+                }
+            }
+        } catch (IOException e) {
+            logger.warning("Failed to delete old write-ahead log segments: " + e.getMessage());
+        }
+    }
+
+    // Removes every segment, used when the log no longer matches the restored state
+    public void discard() {
+        synchronized (lock) {
+            if (writer != null) {
+                throw new IllegalStateException("Cannot discard an open write-ahead log");
+            }
+            deleteSegmentsBefore(Long.MAX_VALUE);
+        }
+    }
+
+    public void close() {
+        Thread stopped;
+        synchronized (lock) {
+            if (writer == null) {
+                return;
+            }
+            awaitDurable(appendedSequence);
+            closed = true;
+            lock.notifyAll();
+            stopped = writer;
+            writer = null;
+        }
+        try {
+            stopped.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            channel.close();
+        } catch (IOException e) {
+            logger.warning("Failed to close mempool write-ahead log: " + e.getMessage());
+        }
+    }
+
+    private long append(EventType type, UUID transactionId, Transaction transaction, double fee) {
+        synchronized (lock) {
+            if (writer == null || closed) {
+                throw new IllegalStateException("Mempool write-ahead log is not open");
+            }
+            if (failure != null) {
+                throw fail("Mempool write-ahead log is unusable", failure);
+            }
+            // Back-pressure: wait for the writer to take the buffer if this record may not fit
+            while (pending.remaining() < MAX_RECORD_BYTES) {
+                flushRequested = true;
+                lock.notifyAll();
+                waitQuietly();
+                if (failure != null) {
+                    throw fail("Mempool write-ahead log is unusable", failure);
+                }
+            }
+            int start = pending.position();
+            pending.position(start + RECORD_HEADER_BYTES);
+            pending.put((byte) type.ordinal());
+            if (type == EventType.ADD) {
+                TransactionRecordCodec.write(pending, transaction);
+            } else {
+                TransactionRecordCodec.putUuid(pending, transactionId);
+                if (type == EventType.FEE_BUMP) {
+                    pending.putDouble(fee);
+                }
+            }
+            int end = pending.position();
+            int length = end - start - RECORD_HEADER_BYTES;
+            ByteBuffer body = pending.duplicate();
+            body.position(start + RECORD_HEADER_BYTES).limit(end);
+            CRC32 crc = new CRC32();
+            crc.update(body);
+            pending.putInt(start, length);
+            pending.putInt(start + 4, (int) crc.getValue());
+
+            if (pendingRecords++ == 0) {
+                pendingSince = System.currentTimeMillis();
+            }
+            long sequence = ++appendedSequence;
+            if (pendingRecords >= syncBatchSize) {
+                flushRequested = true;
+            }
+            lock.notifyAll();
+            return sequence;
+        }
+    }
+
+    // Group commit loop: takes the whole pending buffer, writes it in one call and fsyncs once
+    private void writeLoop() {
+        while (true) {
+            ByteBuffer batch;
+            long batchSequence;
+            synchronized (lock) {
+                while (pendingRecords == 0 && !closed) {
+                    waitQuietly();
+                }
+                if (pendingRecords == 0 && closed) {
+                    return;
+                }
+                long waitFor = pendingSince + maxSyncDelayMillis - System.currentTimeMillis();
+                while (!flushRequested && !closed && waitFor > 0) {
+                    try {
+                        lock.wait(waitFor);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                    waitFor = pendingSince + maxSyncDelayMillis - System.currentTimeMillis();
+                }
+                batch = pending;
+                pending = flushBuffer;
+                flushBuffer = batch;
+                pendingRecords = 0;
+                flushRequested = false;
+                batchSequence = appendedSequence;
+                lock.notifyAll();
+            }
+            try {
+                batch.flip();
+                while (batch.hasRemaining()) {
+                    channel.write(batch);
+                }
+                channel.force(false);
+                batch.clear();
+                synchronized (lock) {
+                    durableSequence = batchSequence;
+                    lock.notifyAll();
+                }
+            } catch (IOException e) {
+                logger.severe("Mempool write-ahead log write failed: " + e.getMessage());
+                synchronized (lock) {
+                    failure = e;
+                    lock.notifyAll();
+                }
+                return;
+            }
+        }
+    }
+
+    // Caller holds the lock
+    private void awaitDurable(long sequence) {
+        if (durableSequence < sequence) {
+            flushRequested = true;
+            lock.notifyAll();
+        }
+        while (durableSequence < sequence && failure == null && writer != null) {
+            waitQuietly();
+        }
+        if (failure != null) {
+            throw fail("Mempool write-ahead log is unusable", failure);
+        }
+    }
+
+    private int replaySegment(Path segment, Consumer<Event> consumer) throws IOException {
+        int events = 0;
+        try (FileChannel in = FileChannel.open(segment, StandardOpenOption.READ)) {
+            ByteBuffer buffer = allocate();
+            buffer.limit(0);
+            CRC32 crc = new CRC32();
+            while (true) {
+                if (buffer.remaining() < RECORD_HEADER_BYTES && !fill(in, buffer, RECORD_HEADER_BYTES)) {
+                    break;
+                }
+                int length = buffer.getInt(buffer.position());
+                int checksum = buffer.getInt(buffer.position() + 4);
+                if (length <= 0 || length > MAX_RECORD_BYTES - RECORD_HEADER_BYTES) {
+                    logger.warning("Corrupt record length in " + segment + ", ignoring the rest of it");
+                    break;
+                }
+                if (buffer.remaining() < RECORD_HEADER_BYTES + length
+                        && !fill(in, buffer, RECORD_HEADER_BYTES + length)) {
+                    logger.warning("Torn record at the end of " + segment + ", ignoring it");
+                    break;
+                }
+                ByteBuffer body = buffer.duplicate();
+                body.position(buffer.position() + RECORD_HEADER_BYTES).limit(buffer.position() + RECORD_HEADER_BYTES + length);
+                crc.reset();
+                crc.update(body.duplicate());
+                if ((int) crc.getValue() != checksum) {
+                    logger.warning("Checksum mismatch in " + segment + ", ignoring the rest of it");
+                    break;
+                }
+                consumer.accept(decode(body));
+                buffer.position(body.limit());
+                events++;
+            }
+        }
+        return events;
+    }
+
+    private static Event decode(ByteBuffer body) {
+        EventType type = EVENT_TYPES[body.get()];
+        if (type == EventType.ADD) {
+            Transaction tx = TransactionRecordCodec.read(body);
+            return new Event(type, tx.getId(), tx, 0);
+        }
+        UUID id = TransactionRecordCodec.getUuid(body);
+        double fee = type == EventType.FEE_BUMP ? body.getDouble() : 0;
+        return new Event(type, id, null, fee);
+    }
+
+    // Compacts the buffer and reads until `needed` bytes are available; false at end of file
+    private static boolean fill(FileChannel in, ByteBuffer buffer, int needed) throws IOException {
+        buffer.compact();
+        while (buffer.position() < needed) {
+            if (in.read(buffer) < 0) {
+                buffer.flip();
+                return false;
+            }
+        }
+        buffer.flip();
+        return true;
+    }
+
+    private List<Long> listSegments() throws IOException {
+        List<Long> segments = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            for (Path file : stream) {
+                String name = file.getFileName().toString();
+                try {
+                    segments.add(Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length())));
+                } catch (NumberFormatException e) {
+                    logger.warning("Ignoring unexpected file in write-ahead log directory: " + name);
+                }
+            }
+        }
+        Collections.sort(segments);
+        return segments;
+    }
+
+    private FileChannel openSegment(long number) throws IOException {
+        return FileChannel.open(segmentPath(number), StandardOpenOption.CREATE,
+            StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    private Path segmentPath(long number) {
+        return directory.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, number, SEGMENT_SUFFIX));
+    }
+
+    private void waitQuietly() {
+        try {
+            lock.wait();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new WriteAheadLogException("Interrupted while waiting for the write-ahead log", e);
+        }
+    }
+
+    private static ByteBuffer allocate() {
+        return ByteBuffer.allocateDirect(BUFFER_BYTES).order(ByteOrder.BIG_ENDIAN);
+    }
+
+    private static WriteAheadLogException fail(String message, Throwable cause) {
+        String errorMsg = message + ": " + cause.getMessage();
+        logger.severe(errorMsg);
+        return new WriteAheadLogException(errorMsg, cause);
+    }
+}
@@ -0,0 +1,57 @@
+package repository;
+
+import model.Transaction;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+
+// Per-block credit aggregation shared by the TransactionRepository.settle and reject implementations
+final class Settlement {
+
+    private Settlement() {
+    }
+
+    static Set<String> destinations(List<Transaction> confirmed) {
+        Set<String> addresses = new HashSet<>();
+        for (Transaction tx : confirmed) {
+            if (tx.getDestinationAddress() != null) {
+                addresses.add(tx.getDestinationAddress());
+            }
+        }
+        return addresses;
+    }
+
+    /**
+     * Sums the amounts sent to each local wallet, given the owner of every
+     * local destination address. A transaction listed twice is credited once.
+     * Sorted by wallet id, so concurrent settlements lock the wallet rows in
+     * the same order.
+     */
+    static Map<UUID, Double> creditsByWallet(List<Transaction> confirmed, Map<String, UUID> owners) {
+        Map<UUID, Double> credits = new TreeMap<>();
+        Set<UUID> seen = new HashSet<>();
+        for (Transaction tx : confirmed) {
+            UUID walletId = owners.get(tx.getDestinationAddress());
+            if (walletId != null && seen.add(tx.getId())) {
+                credits.merge(walletId, tx.getAmount(), Double::sum);
+            }
+        }
+        return credits;
+    }
+
+    // Amount plus fee back to each paying wallet, deduplicated and sorted like creditsByWallet
+    static Map<UUID, Double> refundsByWallet(List<Transaction> rejected) {
+        Map<UUID, Double> refunds = new TreeMap<>();
+        Set<UUID> seen = new HashSet<>();
+        for (Transaction tx : rejected) {
+            if (tx.getWalletId() != null && seen.add(tx.getId())) {
+                refunds.merge(tx.getWalletId(), tx.getAmount() + tx.getFee(), Double::sum);
+            }
+        }
+        return refunds;
+    }
+}
@@ -0,0 +1,19 @@
+package repository;
+
+// The repositories of one persistence backend, opened at start-up and closed on exit
+public interface StorageBackend extends AutoCloseable {
+
+    // Connects or loads the stored data; fails fast when the storage is unusable
+    void open();
+
+    TransactionRepository getTransactionRepository();
+
+    WalletRepository getWalletRepository();
+
+    // Shown to the user once the storage is open
+    String getName();
+
+    // Flushes pending writes and releases the storage
+    @Override
+    void close();
+}
@@ -0,0 +1,91 @@
+package repository;
+
+import model.Transaction;
+import model.enums.FeeLevel;
+import model.enums.TransactionStatus;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.UUID;
+
+// Binary encoding of a transaction shared by the mempool snapshot, the write-ahead log and the embedded store
+final class TransactionRecordCodec {
+    private static final int FIXED_BYTES = 8 * 7 + 3;
+    private static final int MAX_ADDRESS_BYTES = 0xFFFF;
+    static final int MAX_BYTES = FIXED_BYTES + 2 * (2 + MAX_ADDRESS_BYTES);
+    private static final byte FLAG_MOCK = 1;
+    private static final byte FLAG_HAS_WALLET = 2;
+    private static final FeeLevel[] FEE_LEVELS = FeeLevel.values();
+    private static final TransactionStatus[] STATUSES = TransactionStatus.values();
+
+    private TransactionRecordCodec() {
+    }
+
+    static void write(ByteBuffer buffer, Transaction tx) {
+        byte flags = tx.isMock() ? FLAG_MOCK : 0;
+        putUuid(buffer, tx.getId());
+        if (tx.getWalletId() != null) {
+            flags |= FLAG_HAS_WALLET;
+            putUuid(buffer, tx.getWalletId());
+        } else {
+            buffer.putLong(0L);
+            buffer.putLong(0L);
+        }
+        buffer.putDouble(tx.getAmount());
+        buffer.putDouble(tx.getFee());
+        LocalDateTime createdAt = tx.getCreatedAt();
+        // Rounded half-up like the JDBC driver, so a restored transaction matches its stored row
+        buffer.putLong(createdAt.toEpochSecond(ZoneOffset.UTC) * 1_000_000L + (createdAt.getNano() + 500) / 1_000);
+        buffer.put((byte) tx.getFeeLevel().ordinal());
+        buffer.put((byte) tx.getStatus().ordinal());
+        buffer.put(flags);
+        putString(buffer, tx.getSourceAddress());
+        putString(buffer, tx.getDestinationAddress());
+    }
+
+    static Transaction read(ByteBuffer buffer) {
+        UUID id = getUuid(buffer);
+        long walletHigh = buffer.getLong();
+        long walletLow = buffer.getLong();
+        double amount = buffer.getDouble();
+        double fee = buffer.getDouble();
+        long micros = buffer.getLong();
+        FeeLevel feeLevel = FEE_LEVELS[buffer.get()];
+        TransactionStatus status = STATUSES[buffer.get()];
+        byte flags = buffer.get();
+        String source = getString(buffer);
+        String destination = getString(buffer);
+        LocalDateTime createdAt = LocalDateTime.ofEpochSecond(Math.floorDiv(micros, 1_000_000L),
+            (int) Math.floorMod(micros, 1_000_000L) * 1_000, ZoneOffset.UTC);
+        UUID walletId = (flags & FLAG_HAS_WALLET) != 0 ? new UUID(walletHigh, walletLow) : null;
+        Transaction tx = new Transaction(id, walletId, source, destination, amount, fee, feeLevel, status, createdAt);
+        tx.setMock((flags & FLAG_MOCK) != 0);
+        return tx;
+    }
+
+    static void putUuid(ByteBuffer buffer, UUID id) {
+        buffer.putLong(id.getMostSignificantBits());
+        buffer.putLong(id.getLeastSignificantBits());
+    }
+
+    static UUID getUuid(ByteBuffer buffer) {
+        return new UUID(buffer.getLong(), buffer.getLong());
+    }
+
+    static void putString(ByteBuffer buffer, String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > MAX_ADDRESS_BYTES) {
+            throw new IllegalArgumentException("Address too long to encode: " + bytes.length + " bytes");
+        }
+        buffer.putShort((short) bytes.length);
+        buffer.put(bytes);
+    }
+
+    static String getString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getShort() & 0xFFFF];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,601 @@
+package repository;
+
+import model.Transaction;
+import model.Wallet;
+import model.enums.TransactionStatus;
+import utils.DBConnection;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLRecoverableException;
+import java.sql.SQLTransientException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Write-behind persistence for wallets and transactions. Callers enqueue a copy
+ * of the row and return at once; a single flusher thread commits queued writes
+ * in groups, once batchSize are waiting or maxDelay after the first one.
+ *
+ * Writes are applied in enqueue order, so the last write for a wallet or
+ * transaction always wins. Balance changes, settlements and rejections are
+ * queued as operations rather than rows: they are never folded together,
+ * run their guarded SQL in order after the rows queued before them, and one
+ * the guard refuses is logged and dropped. A full queue blocks callers until
+ * the flusher catches up. Transient database errors are retried with backoff;
+ * a row the database rejects is logged and dropped without holding back the
+ * others. Once the flusher has stopped, enqueue and flush throw instead of
+ * waiting.
+ */
+public class WriteBehindQueue implements AutoCloseable {
+    private static final Logger logger = Logger.getLogger(WriteBehindQueue.class.getName());
+    private static final long MIN_BACKOFF_MILLIS = 100;
+    private static final long MAX_BACKOFF_MILLIS = 5000;
+
+    private enum Kind {
+        TRANSACTION, TRANSACTION_STATUS, WALLET, CREDIT, DEBIT, SETTLEMENT, REJECTION;
+
+        // Operations are applied one by one in order; the other kinds are rows folded to their last state
+        boolean isOperation() {
+            return this == CREDIT || this == DEBIT || this == SETTLEMENT || this == REJECTION;
+        }
+    }
+
+    public static class WriteBehindException extends RuntimeException {
+        public WriteBehindException(String message, Throwable cause) {
+            super(message, cause);
+        }
+    }
+
+    private final JdbcTransactionRepository transactionRepository;
+    private final JdbcWalletRepository walletRepository;
+    private final BlockingQueue<Write> queue;
+    // Free slots out of capacity, reserved before taking sequenceLock so a full queue never blocks it
+    private final Semaphore space;
+    private final int capacity;
+    private final int batchSize;
+    private final Duration maxDelay;
+    private final Duration shutdownTimeout;
+    private final Thread flusher;
+
+    private final Object sequenceLock = new Object();
+    private long enqueued;
+    private final Object commitLock = new Object();
+    private long committed;
+    private volatile boolean closed;
+    private volatile long closeDeadline;
+    private volatile Throwable failure;
+
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong rows = new AtomicLong();
+    private final AtomicLong retries = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong backpressureWaits = new AtomicLong();
+
+    // Batches are written on the queue's own connection through the repositories' package-private batch methods
+    public WriteBehindQueue(JdbcTransactionRepository transactionRepository, JdbcWalletRepository walletRepository,
+                            int capacity, int batchSize, Duration maxDelay, Duration shutdownTimeout) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Write-behind queue capacity must be positive: " + capacity);
+        }
+        this.transactionRepository = transactionRepository;
+        this.walletRepository = walletRepository;
+        this.queue = new LinkedBlockingQueue<>();
+        this.space = new Semaphore(capacity);
+        this.capacity = capacity;
+        this.batchSize = batchSize;
+        this.maxDelay = maxDelay;
+        this.shutdownTimeout = shutdownTimeout;
+        this.flusher = new Thread(this::run, "write-behind-flusher");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    public void saveTransaction(Transaction transaction) {
+        enqueue(Kind.TRANSACTION, Collections.singletonList(validated(transaction)), null);
+    }
+
+    public void saveTransactions(List<Transaction> transactions) {
+        List<Transaction> copies = new ArrayList<>(transactions.size());
+        for (Transaction transaction : transactions) {
+            copies.add(validated(transaction));
+        }
+        enqueue(Kind.TRANSACTION, copies, null);
+    }
+
+    public void updateStatus(Collection<UUID> transactionIds, TransactionStatus status) {
+        enqueue(Kind.TRANSACTION_STATUS, new ArrayList<>(transactionIds), status);
+    }
+
+    public void saveWallet(Wallet wallet) {
+        Wallet copy = new Wallet(wallet.getId(), wallet.getAddress(), wallet.getPassword(), wallet.getType(),
+            wallet.getBalance());
+        enqueue(Kind.WALLET, Collections.singletonList(copy), null);
+    }
+
+    public void credit(UUID walletId, double amount) {
+        enqueue(Kind.CREDIT, Collections.singletonList(new BalanceChange(walletId, amount)), null);
+    }
+
+    // The balance guard runs again when the debit is flushed
+    public void debit(UUID walletId, double amount) {
+        enqueue(Kind.DEBIT, Collections.singletonList(new BalanceChange(walletId, amount)), null);
+    }
+
+    // Applied as one JdbcTransactionRepository settlement, so a transaction already confirmed is not credited again
+    public void settle(List<Transaction> confirmed) {
+        List<Transaction> copies = new ArrayList<>(confirmed.size());
+        for (Transaction transaction : confirmed) {
+            copies.add(validated(transaction));
+        }
+        enqueue(Kind.SETTLEMENT, Collections.singletonList(copies), null);
+    }
+
+    // Applied as one JdbcTransactionRepository rejection, so only transactions still pending are refunded
+    public void reject(List<Transaction> rejected) {
+        List<Transaction> copies = new ArrayList<>(rejected.size());
+        for (Transaction transaction : rejected) {
+            copies.add(validated(transaction));
+        }
+        enqueue(Kind.REJECTION, Collections.singletonList(copies), null);
+    }
+
+    // Blocks until every write enqueued before this call has been committed or dropped; throws if the flusher has stopped
+    public void flush() {
+        long target;
+        synchronized (sequenceLock) {
+            target = enqueued;
+        }
+        synchronized (commitLock) {
+            while (committed < target) {
+                if (!flusher.isAlive()) {
+                    throw flusherStopped(target - committed);
+                }
+                try {
+                    commitLock.wait(100);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new WriteBehindException("Interrupted while flushing queued writes", e);
+                }
+            }
+        }
+    }
+
+    public int getQueuedWrites() { return queue.size(); }
+    public long getBatchesWritten() { return batches.get(); }
+    public long getRowsWritten() { return rows.get(); }
+    public long getRetries() { return retries.get(); }
+    // Rows the database rejected, or still queued when the shutdown timeout ran out
+    public long getDroppedWrites() { return dropped.get(); }
+    // Enqueue calls that had to wait for room in the queue
+    public long getBackpressureWaits() { return backpressureWaits.get(); }
+
+    /**
+     * Stops accepting writes and waits up to shutdownTimeout for the flusher to
+     * commit everything still queued.
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closeDeadline = System.nanoTime() + shutdownTimeout.toNanos();
+        closed = true;
+        try {
+            flusher.join(shutdownTimeout.toMillis() + MAX_BACKOFF_MILLIS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (flusher.isAlive() || !queue.isEmpty()) {
+            logger.severe("Write-behind queue closed with " + queue.size() + " writes not persisted");
+        }
+        logger.info(String.format("Write-behind queue closed: %d rows in %d batches, %d retries, %d dropped, %d backpressure waits",
+            rows.get(), batches.get(), retries.get(), dropped.get(), backpressureWaits.get()));
+    }
+
+    private static Transaction validated(Transaction transaction) {
+        if (transaction.getId() == null) {
+            throw new TransactionRepository.TransactionRepositoryException("Transaction ID cannot be null", null);
+        }
+        if (transaction.getWalletId() == null) {
+            throw new TransactionRepository.TransactionRepositoryException(
+                "Wallet ID cannot be null for transaction " + transaction.getId(), null);
+        }
+        return new Transaction(transaction.getId(), transaction.getWalletId(), transaction.getSourceAddress(),
+            transaction.getDestinationAddress(), transaction.getAmount(), transaction.getFee(),
+            transaction.getFeeLevel(), transaction.getStatus(), transaction.getCreatedAt());
+    }
+
+    private void enqueue(Kind kind, List<?> payloads, TransactionStatus status) {
+        // A list longer than the queue goes in slices, each waiting for its own room
+        for (int from = 0; from < payloads.size(); from += capacity) {
+            List<?> slice = payloads.subList(from, Math.min(payloads.size(), from + capacity));
+            reserveSpace(slice.size());
+            // Sequence numbers and queue order must agree, so both are taken under one lock
+            synchronized (sequenceLock) {
+                if (closed) {
+                    space.release(slice.size());
+                    throw new WriteBehindException("Write-behind queue is closed", null);
+                }
+                for (Object payload : slice) {
+                    Write write = new Write(kind, payload, status, enqueued + 1);
+                    queue.add(write);
+                    enqueued = write.sequence;
+                }
+            }
+        }
+    }
+
+    // Waits, holding no lock, until count slots are free; gives up if the queue closes or the flusher stops
+    private void reserveSpace(int count) {
+        checkAccepting();
+        if (space.tryAcquire(count)) {
+            return;
+        }
+        backpressureWaits.incrementAndGet();
+        try {
+            while (!space.tryAcquire(count, 100, TimeUnit.MILLISECONDS)) {
+                checkAccepting();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new WriteBehindException("Interrupted while waiting for room in the write-behind queue", e);
+        }
+    }
+
+    private void checkAccepting() {
+        if (closed) {
+            throw new WriteBehindException("Write-behind queue is closed", null);
+        }
+        if (!flusher.isAlive()) {
+            throw flusherStopped(queue.size());
+        }
+    }
+
+    private WriteBehindException flusherStopped(long pending) {
+        return new WriteBehindException("Write-behind flusher has stopped with " + pending + " writes not persisted", failure);
+    }
+
+    private void run() {
+        List<Write> batch = new ArrayList<>(batchSize);
+        try {
+            while (true) {
+                Write first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    if (closed) {
+                        return;
+                    }
+                    continue;
+                }
+                batch.add(first);
+                long deadline = System.nanoTime() + maxDelay.toNanos();
+                while (batch.size() < batchSize) {
+                    queue.drainTo(batch, batchSize - batch.size());
+                    long remaining = deadline - System.nanoTime();
+                    if (batch.size() >= batchSize || remaining <= 0 || closed) {
+                        break;
+                    }
+                    Write next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                space.release(batch.size());
+                for (PendingWrites group : PendingWrites.groups(batch)) {
+                    persist(group);
+                }
+                markCommitted(batch.get(batch.size() - 1).sequence);
+                batch.clear();
+            }
+        } catch (InterruptedException e) {
+            failure = e;
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException | Error e) {
+            failure = e;
+            logger.log(Level.SEVERE, "Write-behind flusher stopped, queued writes are no longer persisted", e);
+        } finally {
+            synchronized (commitLock) {
+                commitLock.notifyAll();
+            }
+        }
+    }
+
+    private void markCommitted(long sequence) {
+        synchronized (commitLock) {
+            committed = sequence;
+            commitLock.notifyAll();
+        }
+    }
+
+    // Writes the group in one database transaction, retrying transient failures until it succeeds
+    private void persist(PendingWrites pending) throws InterruptedException {
+        boolean oneByOne = false;
+        long backoff = MIN_BACKOFF_MILLIS;
+        while (!pending.isEmpty()) {
+            try {
+                if (oneByOne) {
+                    writeOneByOne(pending);
+                } else {
+                    int size = pending.size();
+                    write(pending);
+                    rows.addAndGet(size);
+                    batches.incrementAndGet();
+                    pending.clear();
+                }
+            } catch (Exception e) {
+                if (!isTransient(e)) {
+                    // One bad row fails the whole group; write rows separately to drop only that one
+                    oneByOne = true;
+                    continue;
+                }
+                if (closed && System.nanoTime() - closeDeadline > 0) {
+                    dropped.addAndGet(pending.size());
+                    logger.severe("Dropping " + pending.size() + " queued writes at shutdown: " + e.getMessage());
+                    return;
+                }
+                retries.incrementAndGet();
+                logger.warning("Queued write failed, retrying in " + backoff + " ms: " + e.getMessage());
+                Thread.sleep(backoff);
+                backoff = Math.min(backoff * 2, MAX_BACKOFF_MILLIS);
+            }
+        }
+    }
+
+    private void write(PendingWrites pending) throws SQLException {
+        try (Connection conn = DBConnection.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                // Wallets first: transactions reference them
+                if (!pending.wallets.isEmpty()) {
+                    walletRepository.upsertBatch(conn, pending.wallets.values());
+                }
+                if (!pending.transactions.isEmpty()) {
+                    transactionRepository.upsertBatch(conn, pending.transactions.values());
+                }
+                Map<TransactionStatus, List<UUID>> byStatus = new EnumMap<>(TransactionStatus.class);
+                for (Map.Entry<UUID, TransactionStatus> entry : pending.statuses.entrySet()) {
+                    byStatus.computeIfAbsent(entry.getValue(), s -> new ArrayList<>()).add(entry.getKey());
+                }
+                for (Map.Entry<TransactionStatus, List<UUID>> entry : byStatus.entrySet()) {
+                    transactionRepository.updateStatusBatch(conn, entry.getValue(), entry.getKey());
+                }
+                List<Write> refused = new ArrayList<>();
+                for (Write operation : pending.operations) {
+                    if (!apply(conn, operation)) {
+                        refused.add(operation);
+                    }
+                }
+                conn.commit();
+                for (Write operation : refused) {
+                    dropped.incrementAndGet();
+                    logger.severe("Dropping queued " + describe(operation) + ": " + (operation.kind == Kind.DEBIT
+                        ? "the stored balance does not cover it" : "no such wallet"));
+                }
+            } catch (SQLException | RuntimeException e) {
+                conn.rollback();
+                throw e;
+            }
+        }
+    }
+
+    // Runs one operation with its guard; false if the guard refused it
+    @SuppressWarnings("unchecked")
+    private boolean apply(Connection conn, Write operation) throws SQLException {
+        switch (operation.kind) {
+            case CREDIT:
+                BalanceChange credit = (BalanceChange) operation.payload;
+                return JdbcWalletRepository.applyCredit(conn, credit.walletId, credit.amount);
+            case DEBIT:
+                BalanceChange debit = (BalanceChange) operation.payload;
+                return JdbcWalletRepository.applyDebit(conn, debit.walletId, debit.amount);
+            case SETTLEMENT:
+                transactionRepository.settle(conn, (List<Transaction>) operation.payload);
+                return true;
+            default:
+                transactionRepository.reject(conn, (List<Transaction>) operation.payload);
+                return true;
+        }
+    }
+
+    private static String describe(Write operation) {
+        switch (operation.kind) {
+            case CREDIT:
+                BalanceChange credit = (BalanceChange) operation.payload;
+                return String.format("credit of %.6f to wallet %s", credit.amount, credit.walletId);
+            case DEBIT:
+                BalanceChange debit = (BalanceChange) operation.payload;
+                return String.format("debit of %.6f from wallet %s", debit.amount, debit.walletId);
+            case SETTLEMENT:
+                return "settlement of " + ((List<?>) operation.payload).size() + " transactions";
+            default:
+                return "rejection of " + ((List<?>) operation.payload).size() + " transactions";
+        }
+    }
+
+    // Each row in its own transaction; rejected rows are dropped, a transient error is rethrown
+    private void writeOneByOne(PendingWrites pending) throws Exception {
+        for (Iterator<Map.Entry<UUID, Wallet>> it = pending.wallets.entrySet().iterator(); it.hasNext(); ) {
+            Map.Entry<UUID, Wallet> entry = it.next();
+            writeSingle(new PendingWrites(entry.getValue()), "wallet " + entry.getKey());
+            it.remove();
+        }
+        for (Iterator<Map.Entry<UUID, Transaction>> it = pending.transactions.entrySet().iterator(); it.hasNext(); ) {
+            Map.Entry<UUID, Transaction> entry = it.next();
+            writeSingle(new PendingWrites(entry.getValue()), "transaction " + entry.getKey());
+            it.remove();
+        }
+        for (Iterator<Map.Entry<UUID, TransactionStatus>> it = pending.statuses.entrySet().iterator(); it.hasNext(); ) {
+            Map.Entry<UUID, TransactionStatus> entry = it.next();
+            writeSingle(new PendingWrites(entry.getKey(), entry.getValue()), "status of transaction " + entry.getKey());
+            it.remove();
+        }
+        for (Iterator<Write> it = pending.operations.iterator(); it.hasNext(); ) {
+            Write operation = it.next();
+            writeSingle(new PendingWrites(operation), describe(operation));
+            it.remove();
+        }
+    }
+
+    private void writeSingle(PendingWrites single, String description) throws Exception {
+        try {
+            write(single);
+            rows.incrementAndGet();
+            batches.incrementAndGet();
+        } catch (Exception e) {
+            if (isTransient(e)) {
+                throw e;
+            }
+            dropped.incrementAndGet();
+            String message = e instanceof SQLException ? JdbcTransactionRepository.batchMessage((SQLException) e) : e.getMessage();
+            logger.severe("Dropping queued write of " + description + " rejected by the database: " + message);
+        }
+    }
+
+    // Connection loss, timeouts, serialization failures and server shutdown are worth retrying
+    private static boolean isTransient(Throwable e) {
+        if (e instanceof DBConnection.DBConnectionException) {
+            return true;
+        }
+        if (!(e instanceof SQLException)) {
+            return false;
+        }
+        for (SQLException sql = (SQLException) e; sql != null; sql = sql.getNextException()) {
+            if (sql instanceof SQLTransientException || sql instanceof SQLRecoverableException) {
+                return true;
+            }
+            String state = sql.getSQLState();
+            if (state != null && (state.startsWith("08") || state.startsWith("40")
+                    || state.startsWith("53") || state.startsWith("57P"))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static final class Write {
+        private final Kind kind;
+        private final Object payload;
+        private final TransactionStatus status;
+        private final long sequence;
+
+        Write(Kind kind, Object payload, TransactionStatus status, long sequence) {
+            this.kind = kind;
+            this.payload = payload;
+            this.status = status;
+            this.sequence = sequence;
+        }
+    }
+
+    private static final class BalanceChange {
+        private final UUID walletId;
+        private final double amount;
+
+        BalanceChange(UUID walletId, double amount) {
+            this.walletId = walletId;
+            this.amount = amount;
+        }
+    }
+
+    /**
+     * A group of writes: rows folded to the last state per row, in first-write
+     * order, then the operations queued after them, in enqueue order.
+     */
+    private static final class PendingWrites {
+        private final Map<UUID, Wallet> wallets = new LinkedHashMap<>();
+        private final Map<UUID, Transaction> transactions = new LinkedHashMap<>();
+        private final Map<UUID, TransactionStatus> statuses = new LinkedHashMap<>();
+        private final List<Write> operations = new ArrayList<>();
+
+        // A row queued after an operation starts a new group, so it is never written before that operation
+        static List<PendingWrites> groups(List<Write> writes) {
+            List<PendingWrites> groups = new ArrayList<>();
+            PendingWrites group = new PendingWrites();
+            for (Write write : writes) {
+                if (!write.kind.isOperation() && !group.operations.isEmpty()) {
+                    groups.add(group);
+                    group = new PendingWrites();
+                }
+                group.add(write);
+            }
+            groups.add(group);
+            return groups;
+        }
+
+        private PendingWrites() {
+        }
+
+        PendingWrites(Wallet wallet) {
+            wallets.put(wallet.getId(), wallet);
+        }
+
+        PendingWrites(Transaction transaction) {
+            transactions.put(transaction.getId(), transaction);
+        }
+
+        PendingWrites(UUID transactionId, TransactionStatus status) {
+            statuses.put(transactionId, status);
+        }
+
+        PendingWrites(Write operation) {
+            operations.add(operation);
+        }
+
+        private void add(Write write) {
+            if (write.kind.isOperation()) {
+                operations.add(write);
+                return;
+            }
+            switch (write.kind) {
+                case WALLET:
+                    Wallet wallet = (Wallet) write.payload;
+                    wallets.put(wallet.getId(), wallet);
+                    break;
+                case TRANSACTION:
+                    Transaction transaction = (Transaction) write.payload;
+                    transactions.put(transaction.getId(), transaction);
+                    statuses.remove(transaction.getId());
+                    break;
+                default:
+                    UUID id = (UUID) write.payload;
+                    Transaction queued = transactions.get(id);
+                    if (queued != null) {
+                        queued.setStatus(write.status);
+                    } else {
+                        statuses.put(id, write.status);
+                    }
+                    break;
+            }
+        }
+
+        int size() {
+            return wallets.size() + transactions.size() + statuses.size() + operations.size();
+        }
+
+        boolean isEmpty() {
+            return size() == 0;
+        }
+
+        void clear() {
+            wallets.clear();
+            transactions.clear();
+            statuses.clear();
+            operations.clear();
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package repository;
+
+import model.Transaction;
+import model.TransactionPage;
+import model.enums.TransactionStatus;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+// Transaction writes go through the write-behind queue; reads flush it first so they see them
+public class WriteBehindTransactionRepository implements TransactionRepository {
+    private final WriteBehindQueue queue;
+    private final TransactionRepository delegate;
+    private final WriteBehindWalletRepository walletRepository;
+
+    // delegate serves the reads and must read the database the queue writes to; walletRepository shares the queue
+    public WriteBehindTransactionRepository(WriteBehindQueue queue, TransactionRepository delegate,
+                                            WriteBehindWalletRepository walletRepository) {
+        this.queue = queue;
+        this.delegate = delegate;
+        this.walletRepository = walletRepository;
+    }
+
+    @Override
+    public void save(Transaction tx) {
+        queue.saveTransaction(tx);
+    }
+
+    @Override
+    public void saveAll(List<Transaction> transactions) {
+        if (!transactions.isEmpty()) {
+            queue.saveTransactions(transactions);
+        }
+    }
+
+    // Queued like the other writes; the credits are only known once it is flushed, so none are returned
+    @Override
+    public Map<UUID, Double> settle(List<Transaction> confirmed) {
+        if (!confirmed.isEmpty()) {
+            walletRepository.settle(confirmed);
+        }
+        return Collections.emptyMap();
+    }
+
+    // Queued like settle, and for the same reason returns no refunds
+    @Override
+    public Map<UUID, Double> reject(List<Transaction> rejected) {
+        if (!rejected.isEmpty()) {
+            walletRepository.reject(rejected);
+        }
+        return Collections.emptyMap();
+    }
+
+    // Returns the number of queued updates; the rows are updated when the queue is flushed
+    @Override
+    public int updateStatusBatch(Collection<UUID> transactionIds, TransactionStatus status) {
+        if (!transactionIds.isEmpty()) {
+            queue.updateStatus(transactionIds, status);
+        }
+        return transactionIds.size();
+    }
+
+    @Override
+    public List<Transaction> findByWalletId(UUID walletId) {
+        queue.flush();
+        return delegate.findByWalletId(walletId);
+    }
+
+    @Override
+    public TransactionPage findPageByWalletId(UUID walletId, TransactionStatus status, Transaction after, int limit) {
+        queue.flush();
+        return delegate.findPageByWalletId(walletId, status, after, limit);
+    }
+
+    @Override
+    public Optional<Transaction> findById(UUID transactionId) {
+        queue.flush();
+        return delegate.findById(transactionId);
+    }
+
+    @Override
+    public List<Transaction> findAllPending() {
+        queue.flush();
+        return delegate.findAllPending();
+    }
+
+    @Override
+    public long forEachPendingChunk(int chunkSize, Consumer<List<Transaction>> consumer) {
+        queue.flush();
+        return delegate.forEachPendingChunk(chunkSize, consumer);
+    }
+}
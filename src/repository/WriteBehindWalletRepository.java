@@ -0,0 +1,138 @@
+package repository;
+
+import model.Transaction;
+import model.Wallet;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.OptionalDouble;
+import java.util.UUID;
+
+/**
+ * Wallet writes go through the write-behind queue; reads flush it first so
+ * they see them. Credits and debits are queued too, keeping their SQL guard.
+ * A debit is decided here against the stored balance as of the queued writes,
+ * read once per wallet and then kept up to date by each queued change; the
+ * guard checks it again when it is flushed. A queued settlement or rejection
+ * credits wallets only when it is flushed, so their balances are read again.
+ */
+public class WriteBehindWalletRepository implements WalletRepository {
+    private final WriteBehindQueue queue;
+    private final WalletRepository delegate;
+
+    // All guarded by this, which is also held while a change is enqueued so the queue applies them in the same order
+    private final Map<UUID, Double> balances = new HashMap<>();
+    private final Map<String, UUID> idsByAddress = new HashMap<>();
+    private long settlements;
+
+    // delegate serves the reads and must read the database the queue writes to
+    public WriteBehindWalletRepository(WriteBehindQueue queue, WalletRepository delegate) {
+        this.queue = queue;
+        this.delegate = delegate;
+    }
+
+    // The queued row replaces the stored balance, so it becomes the known one
+    @Override
+    public synchronized void save(Wallet wallet) {
+        queue.saveWallet(wallet);
+        track(wallet.getId(), wallet.getAddress(), wallet.getBalance());
+    }
+
+    @Override
+    public OptionalDouble credit(UUID id, double amount) {
+        return change(id, amount);
+    }
+
+    @Override
+    public OptionalDouble debit(UUID id, double amount) {
+        return change(id, -amount);
+    }
+
+    // Queues the settlement and forgets the balances it may credit
+    synchronized void settle(List<Transaction> confirmed) {
+        queue.settle(confirmed);
+        settlements++;
+        for (Transaction transaction : confirmed) {
+            UUID id = idsByAddress.remove(transaction.getDestinationAddress());
+            if (id != null) {
+                balances.remove(id);
+            }
+        }
+    }
+
+    // Queues the rejection and forgets the balances it may refund
+    synchronized void reject(List<Transaction> rejected) {
+        queue.reject(rejected);
+        settlements++;
+        for (Transaction transaction : rejected) {
+            balances.remove(transaction.getWalletId());
+        }
+    }
+
+    @Override
+    public Optional<Wallet> findById(UUID id) {
+        queue.flush();
+        return delegate.findById(id);
+    }
+
+    @Override
+    public Optional<Wallet> findByAddress(String address) {
+        queue.flush();
+        return delegate.findByAddress(address);
+    }
+
+    @Override
+    public List<Wallet> findAll() {
+        queue.flush();
+        return delegate.findAll();
+    }
+
+    // Returns the new balance; empty if there is no such wallet or a debit is not covered
+    private OptionalDouble change(UUID id, double delta) {
+        while (true) {
+            synchronized (this) {
+                Double balance = balances.get(id);
+                if (balance != null) {
+                    if (balance + delta < 0) {
+                        return OptionalDouble.empty();
+                    }
+                    if (delta < 0) {
+                        queue.debit(id, -delta);
+                    } else {
+                        queue.credit(id, delta);
+                    }
+                    balances.put(id, balance + delta);
+                    return OptionalDouble.of(balance + delta);
+                }
+            }
+            if (!load(id)) {
+                return OptionalDouble.empty();
+            }
+        }
+    }
+
+    // Reads the stored balance, unless a settlement queued meanwhile may have made it stale; false if there is no such wallet
+    private boolean load(UUID id) {
+        long seen;
+        synchronized (this) {
+            seen = settlements;
+        }
+        Optional<Wallet> stored = findById(id);
+        if (!stored.isPresent()) {
+            return false;
+        }
+        synchronized (this) {
+            if (settlements == seen && !balances.containsKey(id)) {
+                track(id, stored.get().getAddress(), stored.get().getBalance());
+            }
+        }
+        return true;
+    }
+
+    private void track(UUID id, String address, double balance) {
+        balances.put(id, balance);
+        idsByAddress.put(address, id);
+    }
+}
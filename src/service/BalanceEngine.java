@@ -0,0 +1,104 @@
+package service;
+
+import model.Wallet;
+import repository.WalletRepository;
+
+import java.util.OptionalDouble;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Applies balance changes as atomic increments in the repository instead of
+ * saving a whole wallet row, so concurrent changes are never lost; a debit
+ * carries a guard and cannot overdraw. Changes to one wallet are serialized
+ * by a lock picked from a fixed set of stripes: the balance handed back to the
+ * in-memory wallet is then always the latest, unrelated wallets rarely share a
+ * lock, and a hot wallet only waits on an uncontended ReentrantLock.
+ */
+public class BalanceEngine {
+    private final WalletRepository walletRepository;
+    private final ReentrantLock[] stripes;
+    private final int mask;
+
+    private final AtomicLong rejectedDebits = new AtomicLong();
+
+    public static class InsufficientBalanceException extends RuntimeException {
+        public InsufficientBalanceException(String message) {
+            super(message);
+        }
+    }
+
+    // stripes is rounded up to a power of two
+    public BalanceEngine(WalletRepository walletRepository, int stripes) {
+        if (stripes < 1) {
+            throw new IllegalArgumentException("Lock stripe count must be positive: " + stripes);
+        }
+        int size = Integer.highestOneBit(stripes);
+        if (size < stripes) {
+            size <<= 1;
+        }
+        this.walletRepository = walletRepository;
+        this.stripes = new ReentrantLock[size];
+        for (int i = 0; i < size; i++) {
+            this.stripes[i] = new ReentrantLock();
+        }
+        this.mask = size - 1;
+    }
+
+    // Adds amount to the stored balance and refreshes the wallet with the result; returns the new balance
+    public double credit(Wallet wallet, double amount) {
+        checkAmount(amount);
+        ReentrantLock lock = lockFor(wallet.getId());
+        lock.lock();
+        try {
+            OptionalDouble balance = walletRepository.credit(wallet.getId(), amount);
+            if (!balance.isPresent()) {
+                throw new IllegalStateException("Wallet not found: " + wallet.getId());
+            }
+            wallet.refreshBalance(balance.getAsDouble());
+            return balance.getAsDouble();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Subtracts amount if the stored balance covers it and refreshes the wallet
+     * with the result. The stored balance decides, not the one in memory, which
+     * may be stale; a rejected debit changes nothing.
+     */
+    public double debit(Wallet wallet, double amount) {
+        checkAmount(amount);
+        ReentrantLock lock = lockFor(wallet.getId());
+        lock.lock();
+        try {
+            OptionalDouble balance = walletRepository.debit(wallet.getId(), amount);
+            if (!balance.isPresent()) {
+                rejectedDebits.incrementAndGet();
+                throw new InsufficientBalanceException(String.format(
+                    "Insufficient balance in wallet %s for a debit of %.6f", wallet.getId(), amount));
+            }
+            wallet.refreshBalance(balance.getAsDouble());
+            return balance.getAsDouble();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getRejectedDebits() { return rejectedDebits.get(); }
+
+    public int getStripeCount() { return stripes.length; }
+
+    ReentrantLock lockFor(UUID walletId) {
+        int h = walletId.hashCode();
+        // Spread the high bits, as HashMap does, before masking
+        return stripes[(h ^ (h >>> 16)) & mask];
+    }
+
+    private static void checkAmount(double amount) {
+        if (!(amount > 0) || Double.isInfinite(amount)) {
+            throw new IllegalArgumentException("Amount must be a positive number: " + amount);
+        }
+    }
+}
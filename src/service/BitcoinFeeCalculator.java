@@ -3,6 +3,8 @@ package service;
 import model.Transaction;
 
 public class BitcoinFeeCalculator implements FeeCalculator {
+    // Typical one-input, two-output transaction
+    public static final int DEFAULT_SIZE_BYTES = 250;
     private int sizeBytes;
     private double satoshiPerByte;
 
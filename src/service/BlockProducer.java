@@ -0,0 +1,153 @@
+package service;
+
+import model.Transaction;
+import model.mempool.BlockStats;
+import model.mempool.BlockTemplate;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * Mines a block from the mempool at a fixed interval, in the background.
+ * Confirmations are persisted like manual mining. Each block's throughput and
+ * latency are logged and kept, with running totals, for sustained-load runs.
+ */
+public class BlockProducer {
+    private static final Logger logger = Logger.getLogger(BlockProducer.class.getName());
+    private static final int RECENT_BLOCKS = 100;
+    private final TransactionService transactionService;
+    private final MempoolService mempoolService;
+    private final Duration interval;
+    private final Deque<BlockStats> recentBlocks = new ArrayDeque<>();
+    private ScheduledExecutorService scheduler;
+    private long height;
+    private long totalTransactions;
+    private double totalFees;
+    private long startedAtNanos;
+    private boolean started;
+
+    public BlockProducer(TransactionService transactionService, MempoolService mempoolService, Duration interval) {
+        this.transactionService = transactionService;
+        this.mempoolService = mempoolService;
+        this.interval = interval;
+    }
+
+    public synchronized void start() {
+        if (scheduler != null) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "block-producer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        startedAtNanos = System.nanoTime();
+        started = true;
+        totalTransactions = 0;
+        totalFees = 0;
+        long periodMillis = Math.max(1, interval.toMillis());
+        scheduler.scheduleAtFixedRate(() -> {
+            try {
+                produceBlock();
+            } catch (Exception e) {
+                logger.severe("Block production failed: " + e.getMessage());
+            }
+        }, periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+        logger.info("Block producer started, one block every " + periodMillis + " ms");
+    }
+
+    public void stop() {
+        ScheduledExecutorService stopped;
+        synchronized (this) {
+            stopped = scheduler;
+            scheduler = null;
+        }
+        if (stopped == null) {
+            return;
+        }
+        stopped.shutdown();
+        try {
+            stopped.awaitTermination(30, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        logger.info("Block producer stopped after " + height + " blocks");
+    }
+
+    public synchronized boolean isRunning() {
+        return scheduler != null;
+    }
+
+    // Mines one block now; empty mempools still produce an (empty) block
+    public BlockStats produceBlock() {
+        long start = System.nanoTime();
+        BlockTemplate template = transactionService.getBlockTemplate();
+        List<Transaction> confirmed = template.isEmpty()
+            ? new ArrayList<Transaction>()
+            : transactionService.confirmBlock(template, false);
+        long productionNanos = System.nanoTime() - start;
+
+        LocalDateTime now = LocalDateTime.now();
+        double fees = 0;
+        long latencySumMillis = 0;
+        long maxLatencyMillis = 0;
+        for (Transaction tx : confirmed) {
+            fees += tx.getFee();
+            long latency = Math.max(0, Duration.between(tx.getCreatedAt(), now).toMillis());
+            latencySumMillis += latency;
+            maxLatencyMillis = Math.max(maxLatencyMillis, latency);
+        }
+        Duration averageLatency = Duration.ofMillis(confirmed.isEmpty() ? 0 : latencySumMillis / confirmed.size());
+
+        BlockStats stats;
+        synchronized (this) {
+            height++;
+            totalTransactions += confirmed.size();
+            totalFees += fees;
+            stats = new BlockStats(height, Instant.now(), confirmed.size(), fees, template.getUsedBytes(),
+                template.getUsedGas(), Duration.ofNanos(productionNanos), averageLatency,
+                Duration.ofMillis(maxLatencyMillis), mempoolService.size());
+            if (recentBlocks.size() == RECENT_BLOCKS) {
+                recentBlocks.removeFirst();
+            }
+            recentBlocks.addLast(stats);
+        }
+        logger.info(String.format("Block #%d: %d tx, fees %.6f, built in %d ms, avg latency %d ms, max %d ms, mempool %d, %.1f tx/s sustained",
+            stats.getHeight(), stats.getTransactionCount(), fees, TimeUnit.NANOSECONDS.toMillis(productionNanos),
+            averageLatency.toMillis(), maxLatencyMillis, stats.getMempoolSizeAfter(), getSustainedThroughput()));
+        return stats;
+    }
+
+    public synchronized List<BlockStats> getRecentBlocks() {
+        return new ArrayList<>(recentBlocks);
+    }
+
+    public synchronized long getBlocksProduced() {
+        return height;
+    }
+
+    public synchronized long getTotalTransactions() {
+        return totalTransactions;
+    }
+
+    public synchronized double getTotalFees() {
+        return totalFees;
+    }
+
+    // Confirmed transactions per second since start()
+    public synchronized double getSustainedThroughput() {
+        if (!started) {
+            return 0;
+        }
+        double seconds = (System.nanoTime() - startedAtNanos) / 1e9;
+        return seconds > 0 ? totalTransactions / seconds : 0;
+    }
+}
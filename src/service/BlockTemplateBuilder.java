@@ -0,0 +1,490 @@
+package service;
+
+import model.Transaction;
+import model.enums.CryptoType;
+import model.mempool.BlockTemplate;
+import model.mempool.FeeBump;
+import model.mempool.FeeIndex;
+import model.mempool.MempoolListener;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Keeps a block template in step with the mempool. Bitcoin transactions are
+ * packed under a byte limit and Ethereum ones under a gas limit, each by fee
+ * per byte (or per gas unit) with greedy knapsack filling.
+ *
+ * Pending transactions from the same source address form a chain, each one
+ * depending on the previous. Selection works on ancestor packages, as in
+ * child-pays-for-parent: a transaction is only taken together with its
+ * unconfirmed ancestors, scored by their combined fee rate. Every node keeps
+ * its ancestor fee and weight, updated incrementally: O(1) for a new child,
+ * and only the descendants for a removal or fee bump. The fee index holds one
+ * entry per chain, keyed by the best package the chain offers.
+ *
+ * A change that cannot affect the block (a low-rate arrival once the block is
+ * full, or a change to a chain that is out of it and stays below the cutoff)
+ * leaves the template as is; otherwise only that chain type is refilled, which
+ * walks the block's worth of packages rather than the whole mempool.
+ */
+public class BlockTemplateBuilder implements MempoolListener {
+    private final Lane bitcoin;
+    private final Lane ethereum;
+    private BlockTemplate template;
+
+    public BlockTemplateBuilder(long maxBlockBytes, long maxBlockGas) {
+        this.bitcoin = new Lane(maxBlockBytes, BitcoinFeeCalculator.DEFAULT_SIZE_BYTES);
+        this.ethereum = new Lane(maxBlockGas, EthereumFeeCalculator.TRANSFER_GAS_LIMIT);
+    }
+
+    // Ethereum addresses are 0x-prefixed hex; everything else is Bitcoin
+    public static CryptoType chainOf(Transaction transaction) {
+        String source = transaction.getSourceAddress();
+        return source != null && source.startsWith("0x") ? CryptoType.ETHEREUM : CryptoType.BITCOIN;
+    }
+
+    // Size in bytes for Bitcoin, gas for Ethereum
+    public static int weightOf(Transaction transaction) {
+        return chainOf(transaction) == CryptoType.ETHEREUM
+            ? EthereumFeeCalculator.TRANSFER_GAS_LIMIT
+            : BitcoinFeeCalculator.DEFAULT_SIZE_BYTES;
+    }
+
+    public synchronized BlockTemplate getTemplate() {
+        if (template == null || bitcoin.dirty || ethereum.dirty) {
+            bitcoin.refill();
+            ethereum.refill();
+            List<Transaction> transactions = new ArrayList<>(bitcoin.selection.size() + ethereum.selection.size());
+            transactions.addAll(bitcoin.selection);
+            transactions.addAll(ethereum.selection);
+            template = new BlockTemplate(transactions, bitcoin.selectedFees + ethereum.selectedFees,
+                bitcoin.used, ethereum.used);
+        }
+        return template;
+    }
+
+    /**
+     * Up to count transactions in package order, ignoring block limits. Ancestors
+     * always come before their descendants. Both chains are merged on fee per
+     * standard-size transaction, since bytes and gas are not comparable.
+     */
+    public synchronized List<Transaction> selectPackages(int count) {
+        List<Transaction> result = new ArrayList<>(Math.max(0, Math.min(count, 1024)));
+        PackageCursor bitcoinCursor = bitcoin.cursor();
+        PackageCursor ethereumCursor = ethereum.cursor();
+        while (result.size() < count) {
+            Package bitcoinNext = bitcoinCursor.peek();
+            Package ethereumNext = ethereumCursor.peek();
+            if (bitcoinNext == null && ethereumNext == null) {
+                break;
+            }
+            boolean takeBitcoin = ethereumNext == null || (bitcoinNext != null
+                && bitcoinNext.rate * bitcoin.referenceWeight >= ethereumNext.rate * ethereum.referenceWeight);
+            PackageCursor cursor = takeBitcoin ? bitcoinCursor : ethereumCursor;
+            Package next = takeBitcoin ? bitcoinNext : ethereumNext;
+            for (Node node = next.first; node != null && result.size() < count; node = node.next) {
+                result.add(node.transaction);
+                if (node == next.last) {
+                    break;
+                }
+            }
+            cursor.accept(next);
+        }
+        return result;
+    }
+
+    @Override
+    public synchronized void onAdded(Transaction transaction) {
+        laneOf(transaction).add(transaction);
+    }
+
+    @Override
+    public synchronized void onRemoved(Transaction transaction) {
+        laneOf(transaction).remove(transaction.getId());
+    }
+
+    @Override
+    public synchronized void onEvicted(Transaction transaction) {
+        laneOf(transaction).remove(transaction.getId());
+    }
+
+    @Override
+    public synchronized void onFeeBumped(FeeBump bump) {
+        if (!bitcoin.updateFee(bump.getTransactionId(), bump.getNewFee())) {
+            ethereum.updateFee(bump.getTransactionId(), bump.getNewFee());
+        }
+    }
+
+    @Override
+    public synchronized void onCleared() {
+        bitcoin.clear();
+        ethereum.clear();
+    }
+
+    private Lane laneOf(Transaction transaction) {
+        return chainOf(transaction) == CryptoType.ETHEREUM ? ethereum : bitcoin;
+    }
+
+    private static class Node {
+        final Transaction transaction;
+        final Chain chain;
+        final int weight;
+        double fee;
+        Node previous;
+        Node next;
+        // Totals over this node and all its pending ancestors
+        double ancestorFee;
+        long ancestorWeight;
+
+        Node(Transaction transaction, Chain chain, int weight) {
+            this.transaction = transaction;
+            this.chain = chain;
+            this.weight = weight;
+            this.fee = transaction.getFee();
+        }
+    }
+
+    // Pending transactions of one source address, oldest (the root ancestor) first
+    private static class Chain {
+        final long sequence;
+        Node head;
+        Node tail;
+        int handle = -1;
+        // Prefix with the highest combined fee rate (the longest one on ties)
+        Node bestLast;
+        double bestRate;
+
+        Chain(long sequence) {
+            this.sequence = sequence;
+        }
+
+        void append(Node node) {
+            node.previous = tail;
+            node.ancestorFee = (tail == null ? 0 : tail.ancestorFee) + node.fee;
+            node.ancestorWeight = (tail == null ? 0 : tail.ancestorWeight) + node.weight;
+            if (tail == null) {
+                head = node;
+            } else {
+                tail.next = node;
+            }
+            tail = node;
+            // The only new prefix is the whole chain, so the best one is updated in O(1)
+            double rate = node.ancestorFee / node.ancestorWeight;
+            if (bestLast == null || rate >= bestRate) {
+                bestLast = node;
+                bestRate = rate;
+            }
+        }
+
+        void unlink(Node node) {
+            adjustDescendants(node.next, -node.fee, -node.weight);
+            if (node.previous == null) {
+                head = node.next;
+            } else {
+                node.previous.next = node.next;
+            }
+            if (node.next == null) {
+                tail = node.previous;
+            } else {
+                node.next.previous = node.previous;
+            }
+            recomputeBest();
+        }
+
+        void changeFee(Node node, double newFee) {
+            double delta = newFee - node.fee;
+            node.fee = newFee;
+            adjustDescendants(node, delta, 0);
+            recomputeBest();
+        }
+
+        boolean isEmpty() {
+            return head == null;
+        }
+
+        private void adjustDescendants(Node from, double feeDelta, long weightDelta) {
+            for (Node n = from; n != null; n = n.next) {
+                n.ancestorFee += feeDelta;
+                n.ancestorWeight += weightDelta;
+            }
+        }
+
+        private void recomputeBest() {
+            bestLast = null;
+            bestRate = 0;
+            for (Node n = head; n != null; n = n.next) {
+                double rate = n.ancestorFee / n.ancestorWeight;
+                if (bestLast == null || rate >= bestRate) {
+                    bestLast = n;
+                    bestRate = rate;
+                }
+            }
+        }
+    }
+
+    // A run of consecutive chain nodes taken together: first's ancestors are already selected
+    private static class Package {
+        final Chain chain;
+        final Node first;
+        final Node last;
+        final double fee;
+        final long weight;
+        final double rate;
+
+        Package(Chain chain, Node first, Node last, double fee, long weight) {
+            this.chain = chain;
+            this.first = first;
+            this.last = last;
+            this.fee = fee;
+            this.weight = weight;
+            this.rate = fee / weight;
+        }
+
+        // Best package among the nodes from first onwards, with first's ancestors excluded
+        static Package bestFrom(Chain chain, Node first) {
+            double baseFee = first.ancestorFee - first.fee;
+            long baseWeight = first.ancestorWeight - first.weight;
+            Node bestLast = null;
+            double bestRate = 0;
+            for (Node n = first; n != null; n = n.next) {
+                double rate = (n.ancestorFee - baseFee) / (n.ancestorWeight - baseWeight);
+                if (bestLast == null || rate >= bestRate) {
+                    bestLast = n;
+                    bestRate = rate;
+                }
+            }
+            return new Package(chain, first, bestLast, bestLast.ancestorFee - baseFee, bestLast.ancestorWeight - baseWeight);
+        }
+
+        // Best shorter package weighing at most maxWeight, or null if not even first fits
+        Package prefixWithin(long maxWeight) {
+            double baseFee = first.ancestorFee - first.fee;
+            long baseWeight = first.ancestorWeight - first.weight;
+            Node bestLast = null;
+            double bestRate = 0;
+            for (Node n = first; n != last && n.ancestorWeight - baseWeight <= maxWeight; n = n.next) {
+                double rate = (n.ancestorFee - baseFee) / (n.ancestorWeight - baseWeight);
+                if (bestLast == null || rate >= bestRate) {
+                    bestLast = n;
+                    bestRate = rate;
+                }
+            }
+            return bestLast == null ? null
+                : new Package(chain, first, bestLast, bestLast.ancestorFee - baseFee, bestLast.ancestorWeight - baseWeight);
+        }
+    }
+
+    /**
+     * Walks packages in descending fee rate. Chains come from the index by their
+     * best package; once part of a chain is accepted its remainder is re-scored in
+     * a small side queue, as in Bitcoin Core's modified-entry set. A remainder never
+     * scores above the package it follows, so merging with the index stays ordered.
+     */
+    private static class PackageCursor {
+        private final Lane lane;
+        private final PriorityQueue<Package> modified = new PriorityQueue<>((a, b) -> Double.compare(b.rate, a.rate));
+        private int position = 1;
+        private Package fromIndex;
+
+        PackageCursor(Lane lane) {
+            this.lane = lane;
+        }
+
+        Package peek() {
+            if (fromIndex == null && position <= lane.index.size()) {
+                Chain chain = lane.chainsByHandle[lane.index.select(position)];
+                fromIndex = new Package(chain, chain.head, chain.bestLast,
+                    chain.bestLast.ancestorFee, chain.bestLast.ancestorWeight);
+            }
+            Package side = modified.peek();
+            if (fromIndex == null) {
+                return side;
+            }
+            return side != null && side.rate > fromIndex.rate ? side : fromIndex;
+        }
+
+        // Takes the package and queues what is left of its chain
+        void accept(Package taken) {
+            accept(taken, taken.last);
+        }
+
+        // Takes the package up to through only, e.g. the prefix that fits the block
+        void accept(Package taken, Node through) {
+            consume(taken);
+            if (through.next != null) {
+                modified.add(Package.bestFrom(taken.chain, through.next));
+            }
+        }
+
+        // Drops the package; the rest of its chain depends on it, so it goes too
+        void skip(Package skipped) {
+            consume(skipped);
+        }
+
+        private void consume(Package next) {
+            if (next == fromIndex) {
+                fromIndex = null;
+                position++;
+            } else {
+                modified.poll();
+            }
+        }
+    }
+
+    // One chain type: chains indexed by best package rate, plus the last greedy fill
+    private static class Lane {
+        final long capacity;
+        final int referenceWeight;
+        final FeeIndex index = new FeeIndex();
+        final Map<String, Chain> chains = new HashMap<>();
+        final Map<UUID, Node> nodes = new HashMap<>();
+        Chain[] chainsByHandle = new Chain[16];
+        long nextSequence;
+        int minWeight = Integer.MAX_VALUE;
+
+        final Set<UUID> selected = new HashSet<>();
+        List<Transaction> selection = new ArrayList<>();
+        double selectedFees;
+        long used;
+        // Lowest rate among the packages taken, and whether nothing else could fit after them
+        double cutoffRate = Double.POSITIVE_INFINITY;
+        boolean full;
+        boolean dirty = true;
+
+        Lane(long capacity, int referenceWeight) {
+            this.capacity = capacity;
+            this.referenceWeight = referenceWeight;
+        }
+
+        PackageCursor cursor() {
+            return new PackageCursor(this);
+        }
+
+        void add(Transaction transaction) {
+            if (nodes.containsKey(transaction.getId())) {
+                return;
+            }
+            Chain chain = chains.get(transaction.getSourceAddress());
+            if (chain == null) {
+                chain = new Chain(nextSequence++);
+                chains.put(transaction.getSourceAddress(), chain);
+            }
+            Node node = new Node(transaction, chain, weightOf(transaction));
+            chain.append(node);
+            nodes.put(transaction.getId(), node);
+            if (node.weight < minWeight) {
+                minWeight = node.weight;
+                dirty = true;
+            }
+            reindex(chain);
+            markIfAffected(chain, false);
+        }
+
+        void remove(UUID id) {
+            Node node = nodes.remove(id);
+            if (node == null) {
+                return;
+            }
+            Chain chain = node.chain;
+            chain.unlink(node);
+            if (chain.isEmpty()) {
+                index.remove(chain.handle);
+                chainsByHandle[chain.handle] = null;
+                chains.remove(node.transaction.getSourceAddress());
+            } else {
+                reindex(chain);
+            }
+            markIfAffected(chain, selected.contains(id));
+        }
+
+        boolean updateFee(UUID id, double newFee) {
+            Node node = nodes.get(id);
+            if (node == null) {
+                return false;
+            }
+            node.chain.changeFee(node, newFee);
+            reindex(node.chain);
+            markIfAffected(node.chain, selected.contains(id));
+            return true;
+        }
+
+        // Equal or lower rates queue behind the cutoff package once the block is full
+        private void markIfAffected(Chain chain, boolean touchedSelection) {
+            if (touchedSelection || !full || (!chain.isEmpty() && chain.bestRate >= cutoffRate)) {
+                dirty = true;
+            }
+        }
+
+        private void reindex(Chain chain) {
+            if (chain.handle < 0) {
+                chain.handle = index.insert(chain.bestRate, chain.sequence);
+                if (chain.handle >= chainsByHandle.length) {
+                    chainsByHandle = Arrays.copyOf(chainsByHandle, index.capacity());
+                }
+                chainsByHandle[chain.handle] = chain;
+            } else if (index.score(chain.handle) != chain.bestRate) {
+                index.updateScore(chain.handle, chain.bestRate);
+            }
+        }
+
+        void refill() {
+            if (!dirty) {
+                return;
+            }
+            List<Transaction> taken = new ArrayList<>();
+            selected.clear();
+            long remaining = capacity;
+            double fees = 0;
+            double cutoff = Double.POSITIVE_INFINITY;
+            PackageCursor cursor = cursor();
+            Package next;
+            while (remaining >= minWeight && (next = cursor.peek()) != null) {
+                // A package too heavy for the space left may still have a prefix that fits
+                Package fitting = next.weight <= remaining ? next : next.prefixWithin(remaining);
+                if (fitting == null) {
+                    cursor.skip(next);
+                    continue;
+                }
+                for (Node n = fitting.first; ; n = n.next) {
+                    taken.add(n.transaction);
+                    selected.add(n.transaction.getId());
+                    if (n == fitting.last) {
+                        break;
+                    }
+                }
+                remaining -= fitting.weight;
+                fees += fitting.fee;
+                // A prefix can score below packages taken after it, so keep the lowest rate
+                cutoff = Math.min(cutoff, fitting.rate);
+                cursor.accept(next, fitting.last);
+            }
+            selection = taken;
+            selectedFees = fees;
+            used = capacity - remaining;
+            cutoffRate = cutoff;
+            full = remaining < minWeight;
+            dirty = false;
+        }
+
+        void clear() {
+            index.clear();
+            chains.clear();
+            nodes.clear();
+            Arrays.fill(chainsByHandle, null);
+            selected.clear();
+            selection = new ArrayList<>();
+            selectedFees = 0;
+            used = 0;
+            cutoffRate = Double.POSITIVE_INFINITY;
+            full = false;
+            dirty = true;
+        }
+    }
+}
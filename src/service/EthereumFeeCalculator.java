@@ -3,6 +3,8 @@ package service;
 import model.Transaction;
 
 public class EthereumFeeCalculator implements FeeCalculator {
+    // Gas used by a plain ETH transfer
+    public static final int TRANSFER_GAS_LIMIT = 21000;
     private int gasLimit;
     private double gasPrice;
 
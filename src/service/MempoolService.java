@@ -2,8 +2,16 @@ package service;
 
 import model.Mempool;
 import model.Transaction;
+import model.mempool.FeeBump;
+import model.mempool.FeeQuote;
+import model.mempool.MempoolListener;
+import model.mempool.MempoolStats;
+import repository.MempoolWriteAheadLog;
 import java.time.Duration;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
+import java.util.UUID;
 import java.util.logging.Logger;
 
 public class MempoolService {
@@ -14,18 +22,35 @@ public class MempoolService {
         this.mempool = mempool;
     }
 
-    public void addTransaction(Transaction transaction) {
-        if (!mempool.addTransactionIfNotExists(transaction)) {
+    public boolean addTransaction(Transaction transaction) {
+        double minimumFee = mempool.getMinimumFee();
+        if (transaction.getFee() < minimumFee) {
+            logger.warning(String.format("Transaction %s rejected: fee %.8f below mempool minimum %.8f",
+                transaction.getId(), transaction.getFee(), minimumFee));
+            return false;
+        }
+        if (mempool.contains(transaction.getId())) {
             logger.warning("Transaction " + transaction.getId() + " already exists in mempool");
+            return false;
+        }
+        if (!mempool.addTransactionIfNotExists(transaction)) {
+            logger.warning("Transaction " + transaction.getId() + " rejected: mempool full");
+            return false;
         }
+        return true;
+    }
+
+    public void addListener(MempoolListener listener) {
+        mempool.addListener(listener);
+    }
+
+    public double getMinimumFee() {
+        return mempool.getMinimumFee();
     }
 
     public void removeTransaction(Transaction transaction) {
-        boolean removed = false;
-        
-        List<Transaction> actualList = mempool.getActualPendingList();
-        removed = actualList.removeIf(tx -> tx.getId().equals(transaction.getId()));
-        
+        boolean removed = mempool.removeTransaction(transaction);
+
         if (!removed) {
             logger.warning("Transaction " + transaction.getId() + " was not found in mempool for removal");
         } else {
@@ -33,12 +58,80 @@ public class MempoolService {
         }
     }
 
+    // Claims the next transaction to mine; concurrent miners never get the same one
+    public Transaction pollNextTransaction() {
+        return mempool.pollHighestFee();
+    }
+
+    // Takes a specific transaction out for mining; false if another miner already has it
+    public boolean claimTransaction(Transaction transaction) {
+        return mempool.removeTransaction(transaction.getId());
+    }
+
+    // Claims many at once, e.g. a block, so listeners wait on I/O once; returns those this call took
+    public List<Transaction> claimTransactions(List<Transaction> transactions) {
+        List<UUID> ids = new ArrayList<>(transactions.size());
+        for (Transaction transaction : transactions) {
+            ids.add(transaction.getId());
+        }
+        Set<UUID> removed = mempool.removeTransactions(ids);
+        List<Transaction> claimed = new ArrayList<>(removed.size());
+        for (Transaction transaction : transactions) {
+            if (removed.remove(transaction.getId())) {
+                claimed.add(transaction);
+            }
+        }
+        return claimed;
+    }
+
     public void cleanupProcessedTransactions() {
         mempool.cleanupProcessedTransactions();
     }
 
+    public FeeBump replaceByFee(Transaction transaction, double newFee) {
+        FeeBump bump = mempool.replaceByFee(transaction.getId(), newFee);
+        if (bump != null) {
+            logger.info(String.format("Fee bump for %s: %.8f -> %.8f, position %d -> %d",
+                transaction.getId(), bump.getOldFee(), bump.getNewFee(), bump.getOldPosition(), bump.getNewPosition()));
+        }
+        return bump;
+    }
+
+    public List<FeeQuote> quoteFees(double[] fees, Transaction exclude) {
+        return mempool.quoteFees(fees, exclude == null ? null : exclude.getId());
+    }
+
+    // Position and wait a transaction paying fee would get if it entered now
+    public FeeQuote quoteFee(double fee) {
+        return mempool.quoteFees(new double[] {fee}, null).get(0);
+    }
+
+    // Fee to reach the target position: the current fee if it already does, else a valid bump.
+    // A draft not in the mempool yet can take any higher fee, without the replacement increment
+    public double suggestFeeForPosition(Transaction transaction, int targetPosition) {
+        return suggestFee(transaction, mempool.minimumFeeForPosition(targetPosition, transaction.getId()));
+    }
+
+    public double suggestFeeForWait(Transaction transaction, Duration maxWait) {
+        return suggestFee(transaction, mempool.minimumFeeForWait(maxWait, transaction.getId()));
+    }
+
+    private double suggestFee(Transaction transaction, double neededFee) {
+        if (transaction.getFee() >= neededFee) {
+            return transaction.getFee();
+        }
+        if (!mempool.contains(transaction.getId())) {
+            return neededFee;
+        }
+        return Math.max(neededFee, mempool.getMinimumReplacementFee(transaction.getFee()));
+    }
+
+    public double getMinimumReplacementFee(double currentFee) {
+        return mempool.getMinimumReplacementFee(currentFee);
+    }
+
     public void sortTransactions() {
-        mempool.getPendingTx().sort((t1, t2) -> Double.compare(t2.getFee(), t1.getFee()));
+        mempool.sortTransactions();
     }
 
     public int getPosition(Transaction transaction) {
@@ -49,10 +142,48 @@ public class MempoolService {
         return mempool.estimateTime(transaction);
     }
 
+    public Duration estimateTimeForPosition(int position) {
+        return mempool.estimateTimeForPosition(position);
+    }
+
     public List<Transaction> getPendingTransactions() {
         return mempool.getPendingTx();
     }
 
+    public MempoolStats getStats() {
+        return MempoolStats.of(mempool.getPendingTx());
+    }
+
+    public int addTransactions(List<Transaction> transactions) {
+        return mempool.addTransactions(transactions);
+    }
+
+    // Re-applies a logged event; replaying one the mempool already reflects is a no-op
+    public void applyLogEvent(MempoolWriteAheadLog.Event event) {
+        switch (event.getType()) {
+            case ADD:
+                mempool.addTransactionIfNotExists(event.getTransaction());
+                break;
+            case FEE_BUMP:
+                Transaction current = mempool.getTransaction(event.getTransactionId());
+                if (current != null && current.getFee() < event.getFee()) {
+                    try {
+                        mempool.replaceByFee(event.getTransactionId(), event.getFee());
+                    } catch (IllegalArgumentException e) {
+                        logger.warning("Skipping logged fee bump for " + event.getTransactionId() + ": " + e.getMessage());
+                    }
+                }
+                break;
+            default:
+                mempool.removeTransaction(event.getTransactionId());
+                break;
+        }
+    }
+
+    public void clear() {
+        mempool.clearMempool();
+    }
+
     public void loadPendingTransactions(List<Transaction> transactions) {
         mempool.clearMempool();
         for (Transaction tx : transactions) {
@@ -0,0 +1,225 @@
+package service;
+
+import model.Transaction;
+import model.enums.TransactionStatus;
+import model.mempool.FeeBump;
+import model.mempool.MempoolListener;
+import repository.MempoolSnapshotRepository;
+import repository.MempoolWriteAheadLog;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * Keeps the mempool recoverable across restarts: periodic snapshots plus an
+ * optional write-ahead log of every change made since the last one.
+ */
+public class MempoolSnapshotService {
+    private static final Logger logger = Logger.getLogger(MempoolSnapshotService.class.getName());
+    private static final int LOAD_CHUNK_SIZE = 10_000;
+    private final MempoolSnapshotRepository snapshotRepository;
+    private final MempoolWriteAheadLog writeAheadLog;
+    private final MempoolService mempoolService;
+    private final Duration interval;
+    private final Duration maxAge;
+    private ScheduledExecutorService scheduler;
+    private volatile boolean logging;
+
+    public MempoolSnapshotService(MempoolSnapshotRepository snapshotRepository, MempoolService mempoolService,
+                                  Duration interval, Duration maxAge) {
+        this(snapshotRepository, null, mempoolService, interval, maxAge);
+    }
+
+    // writeAheadLog may be null to rely on snapshots alone
+    public MempoolSnapshotService(MempoolSnapshotRepository snapshotRepository, MempoolWriteAheadLog writeAheadLog,
+                                  MempoolService mempoolService, Duration interval, Duration maxAge) {
+        this.snapshotRepository = snapshotRepository;
+        this.writeAheadLog = writeAheadLog;
+        this.mempoolService = mempoolService;
+        this.interval = interval;
+        this.maxAge = maxAge;
+        if (writeAheadLog != null) {
+            mempoolService.addListener(new LoggingListener());
+        }
+    }
+
+    /**
+     * Rebuilds the mempool from the snapshot, or with fallback when there is no
+     * usable one, then replays the write-ahead log on top. A stale snapshot
+     * makes the log stale too, so it is discarded.
+     */
+    public void restore(Runnable fallback) {
+        Instant createdAt = snapshotRepository.getCreatedAt();
+        boolean stale = createdAt != null && createdAt.plus(maxAge).isBefore(Instant.now());
+        if (createdAt == null) {
+            logger.info("No mempool snapshot at " + snapshotRepository.getPath());
+        } else if (stale) {
+            logger.info("Mempool snapshot from " + createdAt + " is stale, ignoring it");
+        }
+        if (createdAt == null || stale || !loadSnapshot()) {
+            fallback.run();
+        }
+
+        if (writeAheadLog == null) {
+            return;
+        }
+        if (stale) {
+            writeAheadLog.discard();
+            return;
+        }
+        long start = System.nanoTime();
+        int replayed = writeAheadLog.replay(mempoolService::applyLogEvent);
+        if (replayed > 0) {
+            logger.info(String.format("Replayed %d mempool log events in %d ms",
+                replayed, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)));
+            System.out.println("✓ " + replayed + " événements du journal du mempool rejoués");
+        }
+    }
+
+    public synchronized void saveSnapshot() {
+        long start = System.nanoTime();
+        // Events logged after the rotation land in the new segment and are replayed
+        // on top of this snapshot; replay is idempotent, so overlap is harmless
+        long keepFrom = logging ? writeAheadLog.rotate() : -1;
+        List<Transaction> pending = mempoolService.getPendingTransactions();
+        snapshotRepository.write(pending);
+        if (keepFrom > 0) {
+            writeAheadLog.deleteSegmentsBefore(keepFrom);
+        }
+        logger.info(String.format("Mempool snapshot written: %d transactions in %d ms",
+            pending.size(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)));
+    }
+
+    public synchronized void start() {
+        if (writeAheadLog != null && !logging) {
+            writeAheadLog.open();
+            logging = true;
+        }
+        if (scheduler != null || interval.isZero() || interval.isNegative()) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "mempool-snapshot");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long periodMillis = interval.toMillis();
+        scheduler.scheduleAtFixedRate(() -> {
+            try {
+                saveSnapshot();
+            } catch (Exception e) {
+                logger.warning("Periodic mempool snapshot failed: " + e.getMessage());
+            }
+        }, periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+    }
+
+    // Stops the periodic task, writes a final snapshot and closes the log
+    public void stop() {
+        synchronized (this) {
+            if (scheduler != null) {
+                scheduler.shutdown();
+                scheduler = null;
+            }
+        }
+        try {
+            saveSnapshot();
+        } catch (Exception e) {
+            logger.severe("Failed to write mempool snapshot on shutdown: " + e.getMessage());
+        }
+        synchronized (this) {
+            if (logging) {
+                logging = false;
+                writeAheadLog.close();
+            }
+        }
+    }
+
+    private boolean loadSnapshot() {
+        long start = System.nanoTime();
+        mempoolService.clear();
+        int[] loaded = {0};
+        boolean valid = snapshotRepository.read(LOAD_CHUNK_SIZE, chunk -> loaded[0] += mempoolService.addTransactions(chunk));
+        if (!valid) {
+            mempoolService.clear();
+            return false;
+        }
+        logger.info(String.format("Restored %d transactions from mempool snapshot in %d ms",
+            loaded[0], TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)));
+        System.out.println("✓ " + loaded[0] + " transactions restaurées depuis le snapshot du mempool");
+        return true;
+    }
+
+    /**
+     * Appends every mempool change to the log once start() has opened it.
+     * Records are appended under the mempool's lock, in the order of the
+     * changes; the wait for the disk comes in afterChange, once per change.
+     */
+    private class LoggingListener implements MempoolListener {
+        // Last record this thread appended and has not waited for yet; 0 if none
+        private final ThreadLocal<long[]> unsynced = ThreadLocal.withInitial(() -> new long[1]);
+
+        @Override
+        public void onAdded(Transaction transaction) {
+            if (logging) {
+                appended(writeAheadLog.appendAdd(transaction));
+            }
+        }
+
+        @Override
+        public void onAddedBatch(List<Transaction> transactions) {
+            if (logging) {
+                appended(writeAheadLog.appendAdds(transactions));
+            }
+        }
+
+        @Override
+        public void onRemoved(Transaction transaction) {
+            if (logging) {
+                appended(writeAheadLog.appendRemoval(removalType(transaction.getStatus()), transaction.getId()));
+            }
+        }
+
+        @Override
+        public void onFeeBumped(FeeBump bump) {
+            if (logging) {
+                appended(writeAheadLog.appendFeeBump(bump.getTransactionId(), bump.getNewFee()));
+            }
+        }
+
+        @Override
+        public void onEvicted(Transaction transaction) {
+            if (logging) {
+                appended(writeAheadLog.appendRemoval(MempoolWriteAheadLog.EventType.EVICT, transaction.getId()));
+            }
+        }
+
+        @Override
+        public void afterChange() {
+            long[] sequence = unsynced.get();
+            if (sequence[0] > 0) {
+                long last = sequence[0];
+                sequence[0] = 0;
+                writeAheadLog.sync(last);
+            }
+        }
+
+        private void appended(long sequence) {
+            unsynced.get()[0] = sequence;
+        }
+
+        private MempoolWriteAheadLog.EventType removalType(TransactionStatus status) {
+            switch (status) {
+                case CONFIRMED:
+                    return MempoolWriteAheadLog.EventType.MINE;
+                case REJECTED:
+                    return MempoolWriteAheadLog.EventType.REJECT;
+                default:
+                    return MempoolWriteAheadLog.EventType.REMOVE;
+            }
+        }
+    }
+}
@@ -2,29 +2,67 @@ package service;
 
 import model.Wallet;
 import model.Transaction;
+import model.TransactionPage;
 import model.enums.CryptoType;
 import model.enums.FeeLevel;
 import model.enums.TransactionStatus;
+import model.mempool.BlockTemplate;
+import model.mempool.FeeQuote;
+import model.mempool.MempoolListener;
+import model.mempool.MempoolStats;
 import repository.TransactionRepository;
+import utils.AppConfig;
 import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Queue;
 import java.util.Scanner;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Logger;
 
 public class TransactionService {
     private static final Logger logger = Logger.getLogger(TransactionService.class.getName());
+    private static final int PENDING_LOAD_PAGE_SIZE = 500;
     private final TransactionRepository transactionRepository;
     private final MempoolService mempoolService;
     private final FeeCalculatorFactory feeCalculatorFactory;
     private final WalletService walletService;
+    private final BlockTemplateBuilder blockTemplateBuilder;
 
-    public TransactionService(TransactionRepository transactionRepository, MempoolService mempoolService, WalletService walletService) {
+    public TransactionService(TransactionRepository transactionRepository, MempoolService mempoolService,
+                              WalletService walletService, BlockTemplateBuilder blockTemplateBuilder) {
         this.transactionRepository = transactionRepository;
         this.mempoolService = mempoolService;
         this.walletService = walletService;
+        this.blockTemplateBuilder = blockTemplateBuilder;
         this.feeCalculatorFactory = new FeeCalculatorFactory();
+        mempoolService.addListener(new MempoolListener() {
+            // Collected under the mempool's lock, rejected in the database once it is released
+            private final Queue<Transaction> evicted = new ConcurrentLinkedQueue<>();
+
+            @Override
+            public void onEvictedBatch(List<Transaction> transactions) {
+                evicted.addAll(transactions);
+            }
+
+            @Override
+            public void afterChange() {
+                List<Transaction> batch = new ArrayList<>();
+                for (Transaction tx = evicted.poll(); tx != null; tx = evicted.poll()) {
+                    batch.add(tx);
+                }
+                if (!batch.isEmpty()) {
+                    rejectEvictedTransactions(batch);
+                }
+            }
+        });
     }
 
     public void createAndProcessTransaction(Wallet wallet, String destination, double amount, FeeLevel feeLevel, Scanner scanner) {
@@ -40,22 +78,29 @@ public class TransactionService {
         double initialFee = calc.calculateFee(tempTx);
         tempTx.setFee(initialFee);
 
-        mempoolService.addTransaction(tempTx);
-        int currentPosition = mempoolService.getPosition(tempTx);
-        long estimatedMinutes = mempoolService.estimateTime(tempTx).toMinutes();
+        // The draft stays out of the mempool until it is paid for: a miner could otherwise confirm
+        // and settle it while the user is still choosing the fee, or after a cancel or a failed debit
+        if (initialFee < mempoolService.getMinimumFee()) {
+            System.out.printf("✗ Transaction refusée par le mempool. Frais minimum actuels: %.6f %s%n",
+                    mempoolService.getMinimumFee(), wallet.getType());
+            wallet.getTransactions().removeIf(tx -> tx.getId().equals(tempTx.getId()));
+            return;
+        }
+        FeeQuote initialQuote = mempoolService.quoteFee(initialFee);
+        int currentPosition = initialQuote.getPosition();
+        long estimatedMinutes = initialQuote.getEstimatedTime().toMinutes();
 
         System.out.println("\n=== RÉSUMÉ DE LA TRANSACTION ===");
         System.out.printf("Montant à envoyer: %.6f %s%n", amount, wallet.getType());
         System.out.printf("Frais initiaux: %.6f %s (niveau %s)%n", initialFee, wallet.getType(), feeLevel.name());
         System.out.printf("Total à débiter: %.6f %s%n", amount + initialFee, wallet.getType());
-        System.out.printf("Position actuelle dans le mempool: %d%n", currentPosition);
+        System.out.printf("Position estimée dans le mempool: %d%n", currentPosition);
         System.out.printf("Temps d'attente estimé: %d minutes%n", estimatedMinutes);
 
         double totalCost = amount + initialFee;
         if (wallet.getBalance() < totalCost) {
             System.out.printf("✗ Solde insuffisant! Requis: %.6f %s, Disponible: %.6f %s%n",
                     totalCost, wallet.getType(), wallet.getBalance(), wallet.getType());
-            mempoolService.removeTransaction(tempTx);
             wallet.getTransactions().removeIf(tx -> tx.getId().equals(tempTx.getId()));
             return;
         }
@@ -66,48 +111,24 @@ public class TransactionService {
         while (wantsToOptimize && currentPosition > 1) {
             System.out.println("\n=== OPTIMISATION DES FRAIS ===");
             System.out.println("Voulez-vous augmenter vos frais pour une meilleure position ?");
+            System.out.printf("(Frais suggérés pour la 1ère position: %.6f %s)%n",
+                    mempoolService.suggestFeeForPosition(tempTx, 1), wallet.getType());
             System.out.println("1. Oui, augmenter les frais");
             System.out.println("2. Non, confirmer la transaction actuelle");
             System.out.println("3. Voir la simulation avec différents montants");
+            System.out.println("4. Calculer les frais pour une position ou un délai cible");
             System.out.print("Choix: ");
 
             int choice = scanner.nextInt();
             scanner.nextLine();
 
+            Double requestedFee = null;
             switch (choice) {
                 case 1:
                     System.out.printf("Frais actuel: %.6f %s%n", finalFee, wallet.getType());
-                    System.out.print("Nouveau montant des frais (doit être > " + String.format("%.6f", finalFee) + "): ");
-                    double newFee = scanner.nextDouble();
+                    System.out.print("Nouveau montant des frais (supérieur à " + String.format("%.6f", finalFee) + "): ");
+                    requestedFee = scanner.nextDouble();
                     scanner.nextLine();
-
-                    if (newFee <= finalFee) {
-                        System.out.println("✗ Les nouveaux frais doivent être supérieurs aux frais actuels!");
-                        continue;
-                    }
-
-                    double newTotalCost = amount + newFee;
-                    if (wallet.getBalance() < newTotalCost) {
-                        System.out.printf("✗ Solde insuffisant pour ces frais! Requis: %.6f %s, Disponible: %.6f %s%n",
-                                newTotalCost, wallet.getType(), wallet.getBalance(), wallet.getType());
-                        continue;
-                    }
-
-                    tempTx.setFee(newFee);
-                    finalFee = newFee;
-                    mempoolService.sortTransactions();
-                    int newPosition = mempoolService.getPosition(tempTx);
-                    long newEstimatedMinutes = mempoolService.estimateTime(tempTx).toMinutes();
-
-                    System.out.printf("✓ Nouveaux frais appliqués: %.6f %s%n", finalFee, wallet.getType());
-                    System.out.printf("Nouvelle position: %d (amélioration de %d places)%n",
-                            newPosition, currentPosition - newPosition);
-                    System.out.printf("Nouveau temps d'attente: %d minutes (gain de %d minutes)%n",
-                            newEstimatedMinutes, estimatedMinutes - newEstimatedMinutes);
-
-                    currentPosition = newPosition;
-                    estimatedMinutes = newEstimatedMinutes;
-                    totalCost = newTotalCost;
                     break;
 
                 case 2:
@@ -118,30 +139,89 @@ public class TransactionService {
                     showFeeSimulation(tempTx, amount, wallet);
                     break;
 
+                case 4:
+                    requestedFee = showSuggestedFee(tempTx, wallet, scanner);
+                    break;
+
                 default:
                     System.out.println("Choix invalide!");
                     break;
             }
+
+            if (requestedFee == null) {
+                continue;
+            }
+            double newFee = requestedFee;
+
+            if (newFee <= finalFee) {
+                System.out.println("✗ Les nouveaux frais doivent être supérieurs aux frais actuels!");
+                continue;
+            }
+
+            double newTotalCost = amount + newFee;
+            if (wallet.getBalance() < newTotalCost) {
+                System.out.printf("✗ Solde insuffisant pour ces frais! Requis: %.6f %s, Disponible: %.6f %s%n",
+                        newTotalCost, wallet.getType(), wallet.getBalance(), wallet.getType());
+                continue;
+            }
+
+            // Not submitted yet, so the new fee is a plain change, not a replace-by-fee
+            tempTx.setFee(newFee);
+            finalFee = newFee;
+            FeeQuote quote = mempoolService.quoteFee(newFee);
+            int newPosition = quote.getPosition();
+            long newEstimatedMinutes = quote.getEstimatedTime().toMinutes();
+
+            System.out.printf("✓ Nouveaux frais appliqués: %.6f %s%n", finalFee, wallet.getType());
+            System.out.printf("Nouvelle position: %d (amélioration de %d places)%n",
+                    newPosition, currentPosition - newPosition);
+            System.out.printf("Nouveau temps d'attente: %d minutes (gain de %d minutes)%n",
+                    newEstimatedMinutes, estimatedMinutes - newEstimatedMinutes);
+
+            currentPosition = newPosition;
+            estimatedMinutes = newEstimatedMinutes;
+            totalCost = newTotalCost;
         }
 
         System.out.println("\n=== CONFIRMATION FINALE ===");
         System.out.printf("Montant: %.6f %s%n", amount, wallet.getType());
         System.out.printf("Frais: %.6f %s%n", finalFee, wallet.getType());
         System.out.printf("Total à débiter: %.6f %s%n", totalCost, wallet.getType());
-        System.out.printf("Position finale: %d%n", currentPosition);
+        System.out.printf("Position estimée: %d%n", currentPosition);
         System.out.printf("Temps d'attente estimé: %d minutes%n", estimatedMinutes);
         System.out.print("Confirmer la transaction ? (o/n): ");
 
         String confirm = scanner.nextLine().toLowerCase();
         if (!confirm.equals("o") && !confirm.equals("oui")) {
             System.out.println("✗ Transaction annulée.");
-            mempoolService.removeTransaction(tempTx);
             wallet.getTransactions().removeIf(tx -> tx.getId().equals(tempTx.getId()));
             return;
         }
 
-        walletService.debitWallet(wallet, totalCost);
-        transactionRepository.save(tempTx);
+        try {
+            walletService.debitWallet(wallet, totalCost);
+        } catch (BalanceEngine.InsufficientBalanceException e) {
+            // The balance shown above was stale: another debit got there first
+            System.out.printf("✗ Solde insuffisant! Requis: %.6f %s%n", totalCost, wallet.getType());
+            wallet.getTransactions().removeIf(tx -> tx.getId().equals(tempTx.getId()));
+            return;
+        }
+        // Saved before it can be mined, so the PENDING row never overwrites a confirmation
+        try {
+            transactionRepository.save(tempTx);
+        } catch (RuntimeException e) {
+            walletService.rechargeWallet(wallet, totalCost);
+            throw e;
+        }
+        if (!mempoolService.addTransaction(tempTx)) {
+            tempTx.setStatus(TransactionStatus.REJECTED);
+            reject(Collections.singletonList(tempTx));
+            walletService.getWallet(wallet.getId()).ifPresent(stored -> wallet.refreshBalance(stored.getBalance()));
+            System.out.printf("✗ Transaction refusée par le mempool (frais minimum actuels: %.6f %s), montant recrédité.%n",
+                    mempoolService.getMinimumFee(), wallet.getType());
+            return;
+        }
+        currentPosition = mempoolService.getPosition(tempTx);
 
         System.out.printf("✓ Transaction créée avec succès!%n");
         System.out.printf("  ID: %s%n", tempTx.getId().toString().substring(0, 8) + "...");
@@ -152,6 +232,51 @@ public class TransactionService {
         System.out.printf("  Nouveau solde: %.6f %s%n", wallet.getBalance(), wallet.getType());
     }
 
+    // Returns the suggested fee if the user wants to apply it, null otherwise
+    private Double showSuggestedFee(Transaction tx, Wallet wallet, Scanner scanner) {
+        System.out.println("1. Viser une position dans le mempool");
+        System.out.println("2. Viser un délai de confirmation");
+        System.out.print("Choix: ");
+        int mode = scanner.nextInt();
+        scanner.nextLine();
+
+        double suggestedFee;
+        if (mode == 1) {
+            System.out.print("Position cible: ");
+            int targetPosition = scanner.nextInt();
+            scanner.nextLine();
+            if (targetPosition < 1) {
+                System.out.println("✗ Position invalide!");
+                return null;
+            }
+            suggestedFee = mempoolService.suggestFeeForPosition(tx, targetPosition);
+        } else if (mode == 2) {
+            System.out.print("Délai maximum (minutes): ");
+            long minutes = scanner.nextLong();
+            scanner.nextLine();
+            if (minutes <= 0) {
+                System.out.println("✗ Délai invalide!");
+                return null;
+            }
+            suggestedFee = mempoolService.suggestFeeForWait(tx, Duration.ofMinutes(minutes));
+        } else {
+            System.out.println("Choix invalide!");
+            return null;
+        }
+
+        if (suggestedFee <= tx.getFee()) {
+            System.out.println("✓ Vos frais actuels suffisent déjà pour cet objectif.");
+            return null;
+        }
+
+        FeeQuote quote = mempoolService.quoteFees(new double[] {suggestedFee}, tx).get(0);
+        System.out.printf("Frais suggérés: %.6f %s (position estimée: %d, attente: %d minutes)%n",
+                suggestedFee, wallet.getType(), quote.getPosition(), quote.getEstimatedTime().toMinutes());
+        System.out.print("Appliquer ces frais ? (o/n): ");
+        String confirm = scanner.nextLine().toLowerCase().trim();
+        return confirm.equals("o") || confirm.equals("oui") ? suggestedFee : null;
+    }
+
     private void showFeeSimulation(Transaction baseTx, double amount, Wallet wallet) {
         System.out.println("\n=== SIMULATION DES FRAIS ===");
         System.out.println("┌─────────────┬─────────────┬──────────┬─────────────────┐");
@@ -160,24 +285,19 @@ public class TransactionService {
 
         double[] feeMultipliers = {1.0, 1.5, 2.0, 3.0, 5.0};
         double currentFee = baseTx.getFee();
+        double[] simulatedFees = new double[feeMultipliers.length];
+        for (int i = 0; i < feeMultipliers.length; i++) {
+            simulatedFees[i] = currentFee * feeMultipliers[i];
+        }
 
-        for (double multiplier : feeMultipliers) {
-            double simulatedFee = currentFee * multiplier;
-            Transaction simTx = new Transaction(baseTx.getSourceAddress(),
-                    baseTx.getDestinationAddress(), amount, baseTx.getFeeLevel());
-            simTx.setFee(simulatedFee);
-
-            mempoolService.addTransaction(simTx);
-            int position = mempoolService.getPosition(simTx);
-            long minutes = mempoolService.estimateTime(simTx).toMinutes();
-            double totalCost = amount + simulatedFee;
+        // Quoted against the mempool without our own transaction, as if it paid the simulated fee
+        for (FeeQuote quote : mempoolService.quoteFees(simulatedFees, baseTx)) {
+            double totalCost = amount + quote.getFee();
 
             String affordable = wallet.getBalance() >= totalCost ? "" : " (Insuffisant)";
 
             System.out.printf("│ %-11.6f │ %-11d │ %-8d │ %-15.6f │%s%n",
-                    simulatedFee, position, minutes, totalCost, affordable);
-
-            mempoolService.removeTransaction(simTx);
+                    quote.getFee(), quote.getPosition(), quote.getEstimatedTime().toMinutes(), totalCost, affordable);
         }
 
         System.out.println("└─────────────┴─────────────┴──────────┴─────────────────┘");
@@ -256,16 +376,25 @@ public class TransactionService {
         System.out.println("└────┴─────────────┴─────────────────────────────┴──────────┴──────────┴─────────────┘");
     }
 
-    public void mineTransaction(Transaction transaction) {
+    /**
+     * Claims and confirms one transaction picked from a mempool snapshot.
+     * Returns false if another miner, e.g. the block producer, took it first;
+     * if the settlement fails it goes back to the mempool as pending.
+     */
+    public boolean mineTransaction(Transaction transaction) {
+        if (!mempoolService.claimTransaction(transaction)) {
+            return false;
+        }
+        transaction.setStatus(TransactionStatus.CONFIRMED);
+        if (transaction.isMock() || transaction.getWalletId() == null) {
+            return true;
+        }
         try {
-            transaction.setStatus(TransactionStatus.CONFIRMED);
-            
-            if (!transaction.isMock() && transaction.getWalletId() != null) {
-                transactionRepository.save(transaction);
-            }
-            
-            mempoolService.removeTransaction(transaction);
+            settle(Collections.singletonList(transaction));
+            return true;
         } catch (Exception e) {
+            transaction.setStatus(TransactionStatus.PENDING);
+            mempoolService.addTransaction(transaction);
             String errorMsg = String.format("Failed to mine transaction %s: %s",
                 transaction.getId(), e.getMessage());
             logger.severe(errorMsg);
@@ -273,36 +402,27 @@ public class TransactionService {
         }
     }
 
+    // Best ancestor packages first, so a parent is always mined before its child (CPFP)
+    public List<Transaction> selectTransactionsToMine(int count) {
+        return blockTemplateBuilder.selectPackages(count);
+    }
+
     public void mineMultipleTransactions(int count) {
-        List<Transaction> pendingTx = mempoolService.getPendingTransactions();
         double totalFees = 0;
         int successCount = 0;
-        List<Transaction> transactionsToRemove = new ArrayList<>();
 
         System.out.println("\n=== MINAGE EN COURS ===");
-        for (int i = 0; i < count && i < pendingTx.size(); i++) {
-            Transaction tx = pendingTx.get(i);
-            try {
-                tx.setStatus(TransactionStatus.CONFIRMED);
-                
-                if (!tx.isMock() && tx.getWalletId() != null) {
-                    transactionRepository.save(tx);
-                }
-                
-                totalFees += tx.getFee();
-                successCount++;
-                transactionsToRemove.add(tx);
-                System.out.printf("✓ Transaction %s... minée (frais: %.6f)%n",
-                        tx.getId().toString().substring(0, 8), tx.getFee());
-            } catch (Exception e) {
-                System.out.printf("✗ Erreur transaction %s...: %s%n",
-                        tx.getId().toString().substring(0, 8), e.getMessage());
-                logger.severe("Mining error for tx " + tx.getId() + ": " + e.getMessage());
+        List<Transaction> candidates = new ArrayList<>();
+        for (Transaction tx : selectTransactionsToMine(count)) {
+            if (tx.getStatus() == TransactionStatus.PENDING) {
+                candidates.add(tx);
             }
         }
-
-        for (Transaction tx : transactionsToRemove) {
-            mempoolService.removeTransaction(tx);
+        // Claiming from the mempool keeps concurrent miners from confirming the same tx twice
+        List<Transaction> claimed = mempoolService.claimTransactions(candidates);
+        for (Transaction tx : confirmClaimedTransactions(claimed, true)) {
+            totalFees += tx.getFee();
+            successCount++;
         }
 
         mempoolService.cleanupProcessedTransactions();
@@ -316,16 +436,125 @@ public class TransactionService {
         logger.info("Batch mining completed: " + successCount + " transactions, total fees: " + totalFees);
     }
 
-    public void rejectTransaction(Transaction transaction, String reason) {
+    public BlockTemplate getBlockTemplate() {
+        return blockTemplateBuilder.getTemplate();
+    }
+
+    // Mines the current block template: best fee rate first, within the block size and gas limits
+    public void mineBlock() {
+        BlockTemplate template = blockTemplateBuilder.getTemplate();
+        if (template.isEmpty()) {
+            System.out.println("\nAucune transaction à miner.");
+            return;
+        }
+
+        System.out.println("\n=== MINAGE D'UN BLOC ===");
+        System.out.printf("Bloc proposé: %d transaction(s), %d octets, %d gas%n",
+                template.getTransactions().size(), template.getUsedBytes(), template.getUsedGas());
+        List<Transaction> confirmed = confirmBlock(template, true);
+        double totalFees = 0;
+        for (Transaction tx : confirmed) {
+            totalFees += tx.getFee();
+        }
+
+        System.out.printf("\n=== RÉSULTAT DU MINAGE ===\n");
+        System.out.printf("✓ Transactions minées avec succès: %d/%d%n", confirmed.size(), template.getTransactions().size());
+        System.out.printf("✓ Total des frais récoltés: %.6f%n", totalFees);
+        if (confirmed.size() < template.getTransactions().size()) {
+            System.out.printf("⚠ Non minées: %d transaction(s)%n", template.getTransactions().size() - confirmed.size());
+        }
+        logger.info("Block mined: " + confirmed.size() + " transactions, total fees: " + totalFees);
+    }
+
+    /**
+     * Claims and confirms the template entries that are still pending. Entries
+     * another miner took in the meantime are skipped; failed ones go back to the
+     * mempool. Returns the confirmed transactions.
+     */
+    public List<Transaction> confirmBlock(BlockTemplate template, boolean verbose) {
+        return confirmClaimedTransactions(mempoolService.claimTransactions(template.getTransactions()), verbose);
+    }
+
+    /**
+     * Confirms transactions already taken out of the mempool, persisting them and
+     * crediting local destination wallets in one settlement. If it fails, the
+     * persisted ones go back to the mempool as pending. Returns the confirmed
+     * transactions.
+     */
+    private List<Transaction> confirmClaimedTransactions(List<Transaction> claimed, boolean verbose) {
+        List<Transaction> persisted = new ArrayList<>();
+        for (Transaction tx : claimed) {
+            tx.setStatus(TransactionStatus.CONFIRMED);
+            if (!tx.isMock() && tx.getWalletId() != null) {
+                persisted.add(tx);
+            }
+        }
+
+        List<Transaction> confirmed = claimed;
+        try {
+            Map<UUID, Double> credits = settle(persisted);
+            if (verbose && !credits.isEmpty()) {
+                System.out.printf("✓ %d portefeuille(s) local(aux) crédité(s)%n", credits.size());
+            }
+        } catch (Exception e) {
+            confirmed = new ArrayList<>(claimed.size() - persisted.size());
+            for (Transaction tx : claimed) {
+                if (tx.isMock() || tx.getWalletId() == null) {
+                    confirmed.add(tx);
+                }
+            }
+            for (Transaction tx : persisted) {
+                tx.setStatus(TransactionStatus.PENDING);
+                mempoolService.addTransaction(tx);
+            }
+            if (verbose) {
+                System.out.printf("✗ Erreur d'enregistrement de %d transaction(s): %s%n", persisted.size(), e.getMessage());
+            }
+            logger.severe("Mining error, " + persisted.size() + " transactions returned to the mempool: " + e.getMessage());
+        }
+
+        if (verbose) {
+            for (Transaction tx : confirmed) {
+                System.out.printf("✓ Transaction %s... minée (frais: %.6f)%n",
+                        tx.getId().toString().substring(0, 8), tx.getFee());
+            }
+        }
+        return confirmed;
+    }
+
+    /**
+     * Saves confirmed transactions with their credits, then drops their
+     * destination wallets from the wallet cache: a queued settlement does not
+     * report which wallets it will credit.
+     */
+    private Map<UUID, Double> settle(List<Transaction> confirmed) {
+        Map<UUID, Double> credits = transactionRepository.settle(confirmed);
+        if (walletService != null) {
+            Set<String> destinations = new HashSet<>();
+            for (Transaction tx : confirmed) {
+                destinations.add(tx.getDestinationAddress());
+            }
+            walletService.invalidateAddresses(destinations);
+        }
+        return credits;
+    }
+
+    /**
+     * Takes the transaction out of the mempool, then rejects it and refunds
+     * its wallet. Returns false if it was no longer in the mempool, e.g. just
+     * mined, so it cannot be both confirmed and refunded.
+     */
+    public boolean rejectTransaction(Transaction transaction, String reason) {
         try {
+            if (!mempoolService.claimTransaction(transaction)) {
+                return false;
+            }
             transaction.setStatus(TransactionStatus.REJECTED);
-            
             if (!transaction.isMock() && transaction.getWalletId() != null) {
-                transactionRepository.save(transaction);
+                reject(Collections.singletonList(transaction));
             }
-            
-            mempoolService.removeTransaction(transaction);
             logger.info("Transaction rejected: " + transaction.getId() + " - Reason: " + reason);
+            return true;
         } catch (Exception e) {
             String errorMsg = String.format("Failed to reject transaction %s: %s",
                 transaction.getId(), e.getMessage());
@@ -334,50 +563,74 @@ public class TransactionService {
         }
     }
 
+    // Evicted transactions are rejected and refunded like a manual rejection; one batch per eviction round
+    private void rejectEvictedTransactions(List<Transaction> transactions) {
+        List<Transaction> persisted = new ArrayList<>();
+        for (Transaction transaction : transactions) {
+            transaction.setStatus(TransactionStatus.REJECTED);
+            if (!transaction.isMock() && transaction.getWalletId() != null) {
+                persisted.add(transaction);
+            }
+            logger.info(String.format("Transaction evicted from full mempool: %s (fee %.8f)",
+                transaction.getId(), transaction.getFee()));
+        }
+        try {
+            reject(persisted);
+        } catch (Exception e) {
+            logger.severe("Failed to record eviction of " + persisted.size() + " transactions: " + e.getMessage());
+        }
+    }
+
+    // Rejects with the refunds in one unit of work, then drops the refunded wallets from the wallet cache
+    private Map<UUID, Double> reject(List<Transaction> rejected) {
+        Map<UUID, Double> refunds = transactionRepository.reject(rejected);
+        if (walletService != null) {
+            Set<UUID> payers = new HashSet<>();
+            for (Transaction tx : rejected) {
+                payers.add(tx.getWalletId());
+            }
+            walletService.invalidateWallets(payers);
+        }
+        return refunds;
+    }
+
     public void displayMempoolStats() {
-        List<Transaction> pendingTx = mempoolService.getPendingTransactions();
-        if (pendingTx.isEmpty()) {
+        MempoolStats stats = mempoolService.getStats();
+        if (stats.getCount() == 0) {
             System.out.println("Le mempool est vide.");
             return;
         }
 
-        double totalFees = pendingTx.stream().mapToDouble(Transaction::getFee).sum();
-        double avgFee = totalFees / pendingTx.size();
-        double maxFee = pendingTx.stream().mapToDouble(Transaction::getFee).max().orElse(0);
-        double minFee = pendingTx.stream().mapToDouble(Transaction::getFee).min().orElse(0);
-
         System.out.println("\n=== STATISTIQUES DU MEMPOOL ===");
-        System.out.printf("Nombre de transactions: %d%n", pendingTx.size());
-        System.out.printf("Total des frais: %.6f%n", totalFees);
-        System.out.printf("Frais moyen: %.6f%n", avgFee);
-        System.out.printf("Frais maximum: %.6f%n", maxFee);
-        System.out.printf("Frais minimum: %.6f%n", minFee);
+        System.out.printf("Nombre de transactions: %d%n", stats.getCount());
+        System.out.printf("Total des frais: %.6f%n", stats.getTotalFees());
+        System.out.printf("Frais moyen: %.6f%n", stats.getAverageFee());
+        System.out.printf("Frais maximum: %.6f%n", stats.getMaxFee());
+        System.out.printf("Frais minimum: %.6f%n", stats.getMinFee());
 
         System.out.println("\nDistribution des frais:");
         System.out.println("┌─────────────────┬───────────┐");
         System.out.println("│ Plage de frais  │ Nombre    │");
         System.out.println("├─────────────────┼───────────┤");
-
-        int lowFees = (int) pendingTx.stream().filter(tx -> tx.getFee() < avgFee * 0.5).count();
-        int mediumFees = (int) pendingTx.stream().filter(tx -> tx.getFee() >= avgFee * 0.5 && tx.getFee() < avgFee * 1.5).count();
-        int highFees = (int) pendingTx.stream().filter(tx -> tx.getFee() >= avgFee * 1.5).count();
-
-        System.out.printf("│ Faibles         │ %-9d │%n", lowFees);
-        System.out.printf("│ Moyens          │ %-9d │%n", mediumFees);
-        System.out.printf("│ Élevés          │ %-9d │%n", highFees);
+        System.out.printf("│ Faibles         │ %-9d │%n", stats.getLowFeeCount());
+        System.out.printf("│ Moyens          │ %-9d │%n", stats.getMediumFeeCount());
+        System.out.printf("│ Élevés          │ %-9d │%n", stats.getHighFeeCount());
         System.out.println("└─────────────────┴───────────┘");
     }
 
+    // Only the wallet's pending transactions are kept in memory, so only those are read
     public void loadWalletTransactions(Wallet wallet) {
         try {
-            List<Transaction> dbTransactions = transactionRepository.findByWalletId(wallet.getId());
-            for (Transaction tx : dbTransactions) {
-                if (tx.getStatus() == TransactionStatus.PENDING) {
-                    wallet.getTransactions().add(tx);
-                }
-            }
-            if (!dbTransactions.isEmpty()) {
-                System.out.println("✓ " + dbTransactions.size() + " transactions chargées depuis la base de données");
+            int loaded = 0;
+            TransactionPage page = null;
+            do {
+                page = transactionRepository.findPageByWalletId(wallet.getId(), TransactionStatus.PENDING,
+                    page == null ? null : page.getLast(), PENDING_LOAD_PAGE_SIZE);
+                wallet.getTransactions().addAll(page.getTransactions());
+                loaded += page.getTransactions().size();
+            } while (page.hasMore());
+            if (loaded > 0) {
+                System.out.println("✓ " + loaded + " transactions en attente chargées depuis la base de données");
             }
         } catch (Exception e) {
             logger.severe("Error loading wallet transactions: " + e.getMessage());
@@ -386,13 +639,45 @@ public class TransactionService {
         }
     }
 
+    // Next page of the wallet's history, newest first; after is the last transaction of the previous page or null
+    public TransactionPage getTransactionHistoryPage(Wallet wallet, TransactionStatus status, Transaction after) {
+        return transactionRepository.findPageByWalletId(wallet.getId(), status, after,
+            AppConfig.getInt("history.pageSize", 20));
+    }
+
+    public void displayTransactionPage(TransactionPage page, int pageNumber) {
+        System.out.println("\n=== HISTORIQUE - PAGE " + pageNumber + " ===");
+        if (page.isEmpty()) {
+            System.out.println("Aucune transaction.");
+            return;
+        }
+        System.out.println("┌─────────────┬──────────────────┬──────────┬──────────┬───────────┐");
+        System.out.println("│ ID          │ Destination      │ Montant  │ Frais    │ Statut    │");
+        System.out.println("├─────────────┼──────────────────┼──────────┼──────────┼───────────┤");
+        for (Transaction tx : page.getTransactions()) {
+            String shortId = tx.getId().toString().substring(0, 8) + "...";
+            String dest = tx.getDestinationAddress().length() > 13
+                    ? tx.getDestinationAddress().substring(0, 13) + "..."
+                    : tx.getDestinationAddress();
+            System.out.printf("│ %-11s │ %-16s │ %8.4f │ %8.4f │ %-9s │%n",
+                    shortId, dest, tx.getAmount(), tx.getFee(), tx.getStatus());
+        }
+        System.out.println("└─────────────┴──────────────────┴──────────┴──────────┴───────────┘");
+    }
+
+    // Streams pending transactions from the database into the mempool chunk by chunk
     public void loadAllPendingTransactions() {
         try {
-            List<Transaction> pendingTransactions = transactionRepository.findAllPending();
-            mempoolService.loadPendingTransactions(pendingTransactions);
-            if (!pendingTransactions.isEmpty()) {
-                System.out.println("✓ " + pendingTransactions.size() + " transactions en attente chargées dans le mempool");
+            long start = System.nanoTime();
+            int[] added = {0};
+            mempoolService.clear();
+            long read = transactionRepository.forEachPendingChunk(AppConfig.getInt("mempool.load.chunkSize", 10_000),
+                chunk -> added[0] += mempoolService.addTransactions(chunk));
+            if (read > 0) {
+                System.out.println("✓ " + added[0] + " transactions en attente chargées dans le mempool");
             }
+            logger.info(String.format("Loaded %d of %d pending transactions in %d ms",
+                added[0], read, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)));
         } catch (Exception e) {
             logger.severe("Error loading pending transactions into mempool: " + e.getMessage());
             throw new TransactionRepository.TransactionRepositoryException(
@@ -418,9 +703,9 @@ public class TransactionService {
         public FeeCalculator getFeeCalculator(CryptoType type, FeeLevel feeLevel) {
             double multiplier = feeLevel.getMultiplier();
             if (type == CryptoType.BITCOIN) {
-                return new BitcoinFeeCalculator(250, 0.0002 * multiplier);
+                return new BitcoinFeeCalculator(BitcoinFeeCalculator.DEFAULT_SIZE_BYTES, 0.0002 * multiplier);
             } else {
-                return new EthereumFeeCalculator(21000, 0.00003 * multiplier);
+                return new EthereumFeeCalculator(EthereumFeeCalculator.TRANSFER_GAS_LIMIT, 0.00003 * multiplier);
             }
         }
     }
@@ -0,0 +1,204 @@
+package service;
+
+import model.Wallet;
+import repository.WalletRepository;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Read-through LRU cache of wallets by id, with an index by address. Callers
+ * get copies, so mutating a returned wallet never changes the cached one; a
+ * wallet whose balance changes must be invalidated. The full wallet list is
+ * served from memory once it has been loaded and still fits, i.e. nothing was
+ * evicted since; wallets invalidated in the meantime are reloaded one by one.
+ * Loads for the full list run outside the lock and are only kept if no
+ * wallet changed while they ran. Writes from other processes are not seen.
+ */
+public class WalletCache {
+    private final WalletRepository walletRepository;
+    private final int maxSize;
+    private final LinkedHashMap<UUID, Wallet> byId;
+    private final Map<String, UUID> byAddress = new HashMap<>();
+    // True while byId holds every stored wallet, except the stale ones
+    private boolean complete;
+    // Wallets invalidated while complete: stored, but to be reloaded
+    private final Set<UUID> stale = new HashSet<>();
+    // Bumped by every change, so a load that raced one is not kept
+    private long version;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    public WalletCache(WalletRepository walletRepository, int maxSize) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("Wallet cache size must be positive: " + maxSize);
+        }
+        this.walletRepository = walletRepository;
+        this.maxSize = maxSize;
+        // Access order: the eldest entry is the least recently used
+        this.byId = new LinkedHashMap<UUID, Wallet>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<UUID, Wallet> eldest) {
+                if (size() <= WalletCache.this.maxSize) {
+                    return false;
+                }
+                byAddress.remove(eldest.getValue().getAddress());
+                evictions.incrementAndGet();
+                complete = false;
+                stale.clear();
+                return true;
+            }
+        };
+    }
+
+    public synchronized Optional<Wallet> findById(UUID id) {
+        Wallet cached = byId.get(id);
+        if (cached != null) {
+            hits.incrementAndGet();
+            return Optional.of(copy(cached));
+        }
+        misses.incrementAndGet();
+        Optional<Wallet> loaded = walletRepository.findById(id);
+        loaded.ifPresent(this::store);
+        return loaded.map(WalletCache::copy);
+    }
+
+    public synchronized Optional<Wallet> findByAddress(String address) {
+        UUID id = byAddress.get(address);
+        if (id != null) {
+            hits.incrementAndGet();
+            return Optional.of(copy(byId.get(id)));
+        }
+        misses.incrementAndGet();
+        Optional<Wallet> loaded = walletRepository.findByAddress(address);
+        loaded.ifPresent(this::store);
+        return loaded.map(WalletCache::copy);
+    }
+
+    // All wallets ordered by id, as WalletRepository.findAll
+    public List<Wallet> findAll() {
+        long seen;
+        Set<UUID> reload;
+        synchronized (this) {
+            if (complete && stale.isEmpty()) {
+                hits.incrementAndGet();
+                return cachedWallets();
+            }
+            seen = version;
+            reload = complete ? new HashSet<>(stale) : null;
+        }
+        misses.incrementAndGet();
+        // Read without the lock, so lookups are served while the table is loaded
+        List<Wallet> loaded = reload == null ? walletRepository.findAll() : findByIds(reload);
+        synchronized (this) {
+            if (version == seen) {
+                if (reload == null) {
+                    byId.clear();
+                    byAddress.clear();
+                    complete = true;
+                } else {
+                    // Those not found were deleted
+                    stale.removeAll(reload);
+                }
+                for (Wallet wallet : loaded) {
+                    store(wallet);
+                }
+                if (complete) {
+                    return cachedWallets();
+                }
+            }
+        }
+        // A wallet changed during the load, or the list no longer fits
+        return reload == null ? loaded : walletRepository.findAll();
+    }
+
+    // Caches a wallet that was just saved, e.g. a new one
+    public synchronized void put(Wallet wallet) {
+        version++;
+        store(wallet);
+    }
+
+    public synchronized void invalidate(UUID id) {
+        version++;
+        Wallet removed = byId.remove(id);
+        if (removed != null) {
+            byAddress.remove(removed.getAddress());
+        }
+        if (complete) {
+            stale.add(id);
+        }
+    }
+
+    // Does nothing unless a wallet with this address is cached
+    public synchronized void invalidateAddress(String address) {
+        UUID id = byAddress.get(address);
+        if (id != null) {
+            invalidate(id);
+        }
+    }
+
+    public synchronized void invalidateAll() {
+        version++;
+        byId.clear();
+        byAddress.clear();
+        stale.clear();
+        complete = false;
+    }
+
+    public long getHits() { return hits.get(); }
+    public long getMisses() { return misses.get(); }
+    public long getEvictions() { return evictions.get(); }
+
+    public synchronized int size() {
+        return byId.size();
+    }
+
+    private void store(Wallet wallet) {
+        stale.remove(wallet.getId());
+        Wallet cached = copy(wallet);
+        Wallet previous = byId.put(cached.getId(), cached);
+        if (previous != null && !previous.getAddress().equals(cached.getAddress())) {
+            byAddress.remove(previous.getAddress());
+        }
+        byAddress.put(cached.getAddress(), cached.getId());
+    }
+
+    // Caller holds the lock
+    private List<Wallet> cachedWallets() {
+        List<Wallet> wallets = new ArrayList<>(byId.size());
+        for (Wallet wallet : byId.values()) {
+            wallets.add(copy(wallet));
+        }
+        wallets.sort((a, b) -> compareIds(a.getId(), b.getId()));
+        return wallets;
+    }
+
+    // Wallets deleted since they were cached are left out
+    private List<Wallet> findByIds(Set<UUID> ids) {
+        List<Wallet> wallets = new ArrayList<>(ids.size());
+        for (UUID id : ids) {
+            walletRepository.findById(id).ifPresent(wallets::add);
+        }
+        return wallets;
+    }
+
+    private static Wallet copy(Wallet wallet) {
+        return new Wallet(wallet.getId(), wallet.getAddress(), wallet.getPassword(), wallet.getType(), wallet.getBalance());
+    }
+
+    // Same order as PostgreSQL's ORDER BY id on uuid values: bytewise, unsigned
+    private static int compareIds(UUID a, UUID b) {
+        int cmp = Long.compareUnsigned(a.getMostSignificantBits(), b.getMostSignificantBits());
+        return cmp != 0 ? cmp : Long.compareUnsigned(a.getLeastSignificantBits(), b.getLeastSignificantBits());
+    }
+}
@@ -4,49 +4,94 @@ import model.Wallet;
 import model.enums.CryptoType;
 import repository.WalletRepository;
 import java.security.SecureRandom;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
 import java.util.logging.Logger;
 
 public class WalletService {
     private static final Logger logger = Logger.getLogger(WalletService.class.getName());
     private final WalletRepository walletRepository;
+    private final WalletCache walletCache;
+    private final BalanceEngine balanceEngine;
     private static final String HEX_CHARS = "0123456789abcdef";
     private static final String BASE58_CHARS = "123456789ABCDEFGHJKLMNPQRSTUVWXYZabcdefghijkmnopqrstuvwxyz";
     private static final SecureRandom random = new SecureRandom();
 
-    public WalletService(WalletRepository walletRepository) {
+    public WalletService(WalletRepository walletRepository, WalletCache walletCache, BalanceEngine balanceEngine) {
         this.walletRepository = walletRepository;
+        this.walletCache = walletCache;
+        this.balanceEngine = balanceEngine;
     }
 
     public Wallet createWallet(CryptoType type, String password) {
         String address = generateAddress(type);
         Wallet wallet = new Wallet(address, password, type);
         walletRepository.save(wallet);
+        walletCache.put(wallet);
         return wallet;
     }
 
     public void rechargeWallet(Wallet wallet, double amount) {
         try {
-            wallet.SetBalance(amount);
-            walletRepository.save(wallet);
+            balanceEngine.credit(wallet, amount);
         } catch (Exception e) {
             logger.severe("Error recharging wallet: " + e.getMessage());
             throw new RuntimeException("Failed to recharge wallet", e);
+        } finally {
+            walletCache.invalidate(wallet.getId());
         }
     }
 
+    // Throws InsufficientBalanceException, unwrapped, when the stored balance does not cover amount
     public void debitWallet(Wallet wallet, double amount) {
         try {
-            wallet.SetBalance(-amount);
-            walletRepository.save(wallet);
+            balanceEngine.debit(wallet, amount);
+        } catch (BalanceEngine.InsufficientBalanceException e) {
+            logger.warning("Debit refused: " + e.getMessage());
+            throw e;
         } catch (Exception e) {
             logger.severe("Error debiting wallet: " + e.getMessage());
             throw new RuntimeException("Failed to debit wallet", e);
+        } finally {
+            walletCache.invalidate(wallet.getId());
         }
     }
 
+    // Served from the wallet cache once loaded; each call returns fresh copies
     public List<Wallet> getAllWallets() {
-        return walletRepository.findAll();
+        return walletCache.findAll();
+    }
+
+    public Optional<Wallet> getWallet(UUID id) {
+        return walletCache.findById(id);
+    }
+
+    public Optional<Wallet> findWalletByAddress(String address) {
+        return walletCache.findByAddress(address);
+    }
+
+    // Drops wallets whose stored balance was changed elsewhere, e.g. refunded by a rejection
+    public void invalidateWallets(Collection<UUID> walletIds) {
+        for (UUID id : walletIds) {
+            walletCache.invalidate(id);
+        }
+    }
+
+    // Same, by address, e.g. for the destinations credited by a settlement
+    public void invalidateAddresses(Collection<String> addresses) {
+        for (String address : addresses) {
+            walletCache.invalidateAddress(address);
+        }
+    }
+
+    public BalanceEngine getBalanceEngine() {
+        return balanceEngine;
+    }
+
+    public WalletCache getWalletCache() {
+        return walletCache;
     }
 
     private String generateAddress(CryptoType type) {
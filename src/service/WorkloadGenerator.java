@@ -0,0 +1,230 @@
+package service;
+
+import model.Transaction;
+import model.enums.FeeLevel;
+import model.enums.TransactionStatus;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Logger;
+
+/**
+ * Synthetic mock-transaction load for capacity testing. Each worker thread
+ * draws from its own SplittableRandom split off the seed, so a run with the
+ * same seed and thread count produces the same transactions. Transactions
+ * are inserted in batches through the mempool bulk path, paced to an
+ * optional target arrival rate.
+ */
+public class WorkloadGenerator {
+    private static final Logger logger = Logger.getLogger(WorkloadGenerator.class.getName());
+    private static final char[] BASE58 = "123456789ABCDEFGHJKLMNPQRSTUVWXYZabcdefghijkmnopqrstuvwxyz".toCharArray();
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+    private static final FeeLevel[] FEE_LEVELS = FeeLevel.values();
+
+    public enum FeeDistribution {
+        UNIFORM, EXPONENTIAL, LOG_NORMAL
+    }
+
+    // Shape of the generated traffic
+    public static class Profile {
+        private final double ratePerSecond;
+        private final FeeDistribution feeDistribution;
+        private final double minFee;
+        private final double meanFee;
+        private final int addressPoolSize;
+        private final double ethereumShare;
+
+        // ratePerSecond <= 0 means as fast as possible; addressPoolSize <= 0 means a fresh address per transaction
+        public Profile(double ratePerSecond, FeeDistribution feeDistribution, double minFee, double meanFee,
+                       int addressPoolSize, double ethereumShare) {
+            this.ratePerSecond = ratePerSecond;
+            this.feeDistribution = feeDistribution;
+            this.minFee = minFee;
+            this.meanFee = meanFee;
+            this.addressPoolSize = addressPoolSize;
+            this.ethereumShare = ethereumShare;
+        }
+
+        public double getRatePerSecond() { return ratePerSecond; }
+        public FeeDistribution getFeeDistribution() { return feeDistribution; }
+        public double getMinFee() { return minFee; }
+        public double getMeanFee() { return meanFee; }
+        public int getAddressPoolSize() { return addressPoolSize; }
+        public double getEthereumShare() { return ethereumShare; }
+    }
+
+    public static class Result {
+        private final long generated;
+        private final long inserted;
+        private final Duration elapsed;
+
+        Result(long generated, long inserted, Duration elapsed) {
+            this.generated = generated;
+            this.inserted = inserted;
+            this.elapsed = elapsed;
+        }
+
+        public long getGenerated() { return generated; }
+        // Fewer than generated when the mempool floor or limits turned some away
+        public long getInserted() { return inserted; }
+        public Duration getElapsed() { return elapsed; }
+
+        public double getThroughput() {
+            double seconds = elapsed.toNanos() / 1e9;
+            return seconds > 0 ? generated / seconds : 0;
+        }
+    }
+
+    private final MempoolService mempoolService;
+    private final Profile profile;
+    private final long seed;
+    private final int threads;
+    private final int batchSize;
+    private final String[] addressPool;
+
+    public WorkloadGenerator(MempoolService mempoolService, Profile profile, long seed, int threads, int batchSize) {
+        this.mempoolService = mempoolService;
+        this.profile = profile;
+        this.seed = seed;
+        this.threads = Math.max(1, threads);
+        this.batchSize = Math.max(1, batchSize);
+        this.addressPool = buildAddressPool(profile, new SplittableRandom(seed ^ 0x5DEECE66DL));
+    }
+
+    // Generates and inserts total transactions, split across the worker threads; blocks until done
+    public Result run(long total) {
+        SplittableRandom root = new SplittableRandom(seed);
+        AtomicLong inserted = new AtomicLong();
+        List<Thread> workers = new ArrayList<>(threads);
+        long start = System.nanoTime();
+        for (int i = 0; i < threads; i++) {
+            long share = total / threads + (i < total % threads ? 1 : 0);
+            SplittableRandom random = root.split();
+            Thread worker = new Thread(() -> inserted.addAndGet(generate(share, random)), "workload-" + i);
+            workers.add(worker);
+            worker.start();
+        }
+        for (Thread worker : workers) {
+            try {
+                worker.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        Result result = new Result(total, inserted.get(), Duration.ofNanos(System.nanoTime() - start));
+        logger.info(String.format("Workload: %d generated, %d inserted in %d ms (%.0f tx/s)",
+            result.getGenerated(), result.getInserted(), result.getElapsed().toMillis(), result.getThroughput()));
+        return result;
+    }
+
+    private long generate(long count, SplittableRandom random) {
+        double perThreadRate = profile.getRatePerSecond() / threads;
+        long start = System.nanoTime();
+        long inserted = 0;
+        long done = 0;
+        List<Transaction> batch = new ArrayList<>(batchSize);
+        while (done < count) {
+            int size = (int) Math.min(batchSize, count - done);
+            LocalDateTime createdAt = LocalDateTime.now();
+            batch.clear();
+            for (int i = 0; i < size; i++) {
+                batch.add(nextTransaction(random, createdAt));
+            }
+            inserted += mempoolService.addTransactions(batch);
+            done += size;
+            if (perThreadRate > 0) {
+                // Sleep until this thread's share of the target rate catches up
+                long due = start + (long) (done / perThreadRate * 1e9);
+                long wait = due - System.nanoTime();
+                if (wait > 0) {
+                    LockSupport.parkNanos(wait);
+                }
+            }
+        }
+        return inserted;
+    }
+
+    private Transaction nextTransaction(SplittableRandom random, LocalDateTime createdAt) {
+        boolean ethereum = random.nextDouble() < profile.getEthereumShare();
+        String source = address(random, ethereum);
+        String destination = address(random, ethereum);
+        double amount = 0.1 + random.nextDouble() * 9.9;
+        UUID id = new UUID(random.nextLong() & 0xFFFFFFFFFFFF0FFFL | 0x4000L,
+            random.nextLong() & 0x3FFFFFFFFFFFFFFFL | 0x8000000000000000L);
+        Transaction tx = new Transaction(id, null, source, destination, amount, nextFee(random),
+            FEE_LEVELS[random.nextInt(FEE_LEVELS.length)], TransactionStatus.PENDING, createdAt);
+        tx.setMock(true);
+        return tx;
+    }
+
+    private double nextFee(SplittableRandom random) {
+        double min = profile.getMinFee();
+        double mean = profile.getMeanFee();
+        switch (profile.getFeeDistribution()) {
+            case UNIFORM:
+                return min + random.nextDouble() * 2 * Math.max(0, mean - min);
+            case LOG_NORMAL:
+                // sigma = 1, scaled so the distribution mean is `mean`
+                double gaussian = Math.sqrt(-2 * Math.log(1 - random.nextDouble())) * Math.cos(2 * Math.PI * random.nextDouble());
+                return min + Math.max(0, mean - min) * Math.exp(gaussian - 0.5);
+            default:
+                return min - Math.max(0, mean - min) * Math.log(1 - random.nextDouble());
+        }
+    }
+
+    private String address(SplittableRandom random, boolean ethereum) {
+        if (addressPool != null) {
+            // Even indexes hold Bitcoin addresses, odd ones Ethereum
+            int index = random.nextInt(addressPool.length / 2) * 2 + (ethereum ? 1 : 0);
+            return addressPool[index];
+        }
+        return randomAddress(random, ethereum);
+    }
+
+    private static String[] buildAddressPool(Profile profile, SplittableRandom random) {
+        if (profile.getAddressPoolSize() <= 0) {
+            return null;
+        }
+        String[] pool = new String[Math.max(2, profile.getAddressPoolSize() + (profile.getAddressPoolSize() & 1))];
+        for (int i = 0; i < pool.length; i++) {
+            pool[i] = randomAddress(random, (i & 1) == 1);
+        }
+        return pool;
+    }
+
+    // Same shapes as Mempool.generateRandomAddress, filled from 64-bit draws
+    private static String randomAddress(SplittableRandom random, boolean ethereum) {
+        char[] chars;
+        if (ethereum) {
+            chars = new char[42];
+            chars[0] = '0';
+            chars[1] = 'x';
+            fill(random, chars, 2, HEX);
+        } else {
+            chars = new char[27];
+            chars[0] = '1';
+            fill(random, chars, 1, BASE58);
+        }
+        return new String(chars);
+    }
+
+    private static void fill(SplittableRandom random, char[] chars, int from, char[] alphabet) {
+        long bits = 0;
+        int available = 0;
+        for (int i = from; i < chars.length; i++) {
+            if (available < 6) {
+                bits = random.nextLong();
+                available = 64;
+            }
+            chars[i] = alphabet[(int) ((bits & 0x3F) % alphabet.length)];
+            bits >>>= 6;
+            available -= 6;
+        }
+    }
+}
@@ -6,11 +6,17 @@ import java.util.logging.Logger;
 
 import model.Transaction;
 import model.Wallet;
+import model.mempool.BlockStats;
 import model.enums.CryptoType;
+import repository.JdbcStorage;
+import repository.StorageBackend;
+import service.BlockProducer;
+import service.WalletCache;
 import service.WalletService;
 import service.TransactionService;
 import service.MempoolService;
-import utils.DBConnection;
+import service.MempoolSnapshotService;
+import utils.AppConfig;
 
 public class Menu {
     private static final Logger logger = Logger.getLogger(Menu.class.getName());
@@ -18,25 +24,38 @@ public class Menu {
     private final WalletService walletService;
     private final TransactionService transactionService;
     private final MempoolService mempoolService;
+    private final MempoolSnapshotService snapshotService;
+    private final BlockProducer blockProducer;
+    private final StorageBackend storage;
 
-    public Menu(WalletService walletService, TransactionService transactionService, MempoolService mempoolService) {
+    public Menu(WalletService walletService, TransactionService transactionService, MempoolService mempoolService,
+                MempoolSnapshotService snapshotService, BlockProducer blockProducer, StorageBackend storage) {
         this.walletService = walletService;
         this.transactionService = transactionService;
         this.mempoolService = mempoolService;
+        this.snapshotService = snapshotService;
+        this.blockProducer = blockProducer;
+        this.storage = storage;
     }
 
     public void start() {
         try {
-            DBConnection.getInstance();
-            System.out.println("✓ Connexion à la base de données établie");
-            transactionService.loadAllPendingTransactions();
+            storage.open();
+            System.out.println("✓ Stockage ouvert: " + storage.getName());
+            snapshotService.restore(transactionService::loadAllPendingTransactions);
+            snapshotService.start();
+            if (AppConfig.getBoolean("block.producer.autoStart", false)) {
+                blockProducer.start();
+            }
             if (mempoolService.size() < 10) {
                 mempoolService.generateRandomTransactions(10 - mempoolService.size());
             }
         } catch (Exception e) {
-            System.out.println("✗ Erreur de connexion à la base de données: " + e.getMessage());
-            System.out.println("Veuillez vérifier que PostgreSQL est démarré et que la base 'crypto_wallet' existe.");
-            logger.severe("Database connection failed: " + e.getMessage());
+            System.out.println("✗ Erreur d'ouverture du stockage: " + e.getMessage());
+            if (storage instanceof JdbcStorage) {
+                System.out.println("Veuillez vérifier que PostgreSQL est démarré et que la base 'crypto_wallet' existe.");
+            }
+            logger.severe("Storage open failed: " + e.getMessage());
             return;
         }
 
@@ -68,7 +87,12 @@ public class Menu {
                         break;
                     case 5:
                         System.out.println("Au revoir !");
-                        DBConnection.close();
+                        blockProducer.stop();
+                        snapshotService.stop();
+                        WalletCache cache = walletService.getWalletCache();
+                        logger.info(String.format("Wallet cache: %d hits, %d misses, %d evictions",
+                            cache.getHits(), cache.getMisses(), cache.getEvictions()));
+                        storage.close();
                         break;
                     default:
                         System.out.println("Choix invalide.");
@@ -197,7 +221,9 @@ public class Menu {
                 System.out.println("3. Miner plusieurs transactions");
                 System.out.println("4. Rejeter une transaction");
                 System.out.println("5. Statistiques du mempool");
-                System.out.println("6. Retour au menu principal");
+                System.out.println("6. Miner un bloc (meilleurs frais par octet/gas)");
+                System.out.println("7. Production automatique de blocs");
+                System.out.println("8. Retour au menu principal");
                 System.out.print("Choix: ");
 
                 choice = scanner.nextInt();
@@ -220,6 +246,12 @@ public class Menu {
                         showMempoolStats();
                         break;
                     case 6:
+                        transactionService.mineBlock();
+                        break;
+                    case 7:
+                        manageBlockProducer();
+                        break;
+                    case 8:
                         System.out.println("Retour au menu principal.");
                         break;
                     default:
@@ -231,7 +263,7 @@ public class Menu {
                 scanner.nextLine();
                 choice = 0;
             }
-        } while (choice != 6);
+        } while (choice != 8);
     }
 
     private void mineTransaction() {
@@ -269,7 +301,10 @@ public class Menu {
 
             String confirm = scanner.nextLine().toLowerCase().trim();
             if (confirm.equals("o") || confirm.equals("oui")) {
-                transactionService.mineTransaction(txToMine);
+                if (!transactionService.mineTransaction(txToMine)) {
+                    System.out.println("✗ Cette transaction a déjà été minée ou retirée du mempool.");
+                    return;
+                }
                 System.out.printf("\n✓ Transaction minée avec succès!%n");
                 System.out.printf("✓ Frais récoltés: %.6f%n", txToMine.getFee());
                 logger.info("Transaction mined: " + txToMine.getId());
@@ -311,8 +346,9 @@ public class Menu {
 
             System.out.println("\n=== TRANSACTIONS À MINER ===");
             double previewTotalFees = 0;
-            for (int i = 0; i < count; i++) {
-                Transaction tx = pendingTx.get(i);
+            List<Transaction> toMine = transactionService.selectTransactionsToMine(count);
+            for (int i = 0; i < toMine.size(); i++) {
+                Transaction tx = toMine.get(i);
                 previewTotalFees += tx.getFee();
                 System.out.printf("%d. %s... - Frais: %.6f%n", i + 1, tx.getId().toString().substring(0, 8), tx.getFee());
             }
@@ -374,7 +410,10 @@ public class Menu {
             String confirm = scanner.nextLine().toLowerCase().trim();
 
             if (confirm.equals("o") || confirm.equals("oui")) {
-                transactionService.rejectTransaction(txToReject, reason);
+                if (!transactionService.rejectTransaction(txToReject, reason)) {
+                    System.out.println("✗ Cette transaction a déjà été minée ou retirée du mempool.");
+                    return;
+                }
                 System.out.printf("\n✓ Transaction rejetée avec succès.%n");
                 System.out.printf("✓ Raison: %s%n", reason);
             } else {
@@ -389,6 +428,35 @@ public class Menu {
         }
     }
 
+    private void manageBlockProducer() {
+        System.out.println("\n=== PRODUCTION AUTOMATIQUE DE BLOCS ===");
+        System.out.println("État: " + (blockProducer.isRunning() ? "en cours" : "arrêtée"));
+        System.out.printf("Blocs produits: %d | Transactions confirmées: %d | Frais: %.6f%n",
+            blockProducer.getBlocksProduced(), blockProducer.getTotalTransactions(), blockProducer.getTotalFees());
+        System.out.printf("Débit soutenu: %.1f tx/s | Mempool: %d transaction(s)%n",
+            blockProducer.getSustainedThroughput(), mempoolService.size());
+
+        List<BlockStats> recent = blockProducer.getRecentBlocks();
+        for (int i = Math.max(0, recent.size() - 5); i < recent.size(); i++) {
+            BlockStats block = recent.get(i);
+            System.out.printf("  Bloc #%d: %d tx, frais %.6f, latence moy. %d ms (max %d ms), mempool après: %d%n",
+                block.getHeight(), block.getTransactionCount(), block.getTotalFees(),
+                block.getAverageLatency().toMillis(), block.getMaxLatency().toMillis(), block.getMempoolSizeAfter());
+        }
+
+        System.out.print(blockProducer.isRunning() ? "\nArrêter la production ? (o/n): " : "\nDémarrer la production ? (o/n): ");
+        String confirm = scanner.nextLine().toLowerCase().trim();
+        if (confirm.equals("o") || confirm.equals("oui")) {
+            if (blockProducer.isRunning()) {
+                blockProducer.stop();
+                System.out.println("✓ Production arrêtée.");
+            } else {
+                blockProducer.start();
+                System.out.println("✓ Production démarrée.");
+            }
+        }
+    }
+
     private void showMempoolStats() {
         transactionService.displayMempoolStats();
     }
@@ -1,20 +1,130 @@
 package ui;
 
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.logging.Logger;
+
 import model.Mempool;
-import repository.WalletRepository;
-import repository.TransactionRepository;
+import model.mempool.IndexedMempoolStore;
+import model.mempool.MempoolLimits;
+import model.mempool.MempoolStore;
+import model.mempool.OffHeapMempoolStore;
+import model.mempool.StripedMempoolStore;
+import repository.EmbeddedStorage;
+import repository.JdbcStorage;
+import repository.JdbcTransactionRepository;
+import repository.JdbcWalletRepository;
+import repository.MempoolSnapshotRepository;
+import repository.MempoolWriteAheadLog;
+import repository.StorageBackend;
+import repository.WriteBehindQueue;
+import service.BlockProducer;
+import service.BlockTemplateBuilder;
+import service.BalanceEngine;
+import service.WalletCache;
 import service.WalletService;
 import service.TransactionService;
 import service.MempoolService;
+import service.MempoolSnapshotService;
+import utils.AppConfig;
 
 public class MenuFactory {
+    private static final Logger logger = Logger.getLogger(MenuFactory.class.getName());
+
     public static Menu createMenu() {
-        WalletRepository walletRepository = new WalletRepository();
-        TransactionRepository transactionRepository = new TransactionRepository();
-        Mempool mempool = new Mempool();
+        StorageBackend storage = createStorage();
+        Mempool mempool = createMempool();
         MempoolService mempoolService = new MempoolService(mempool);
-        WalletService walletService = new WalletService(walletRepository);
-        TransactionService transactionService = new TransactionService(transactionRepository, mempoolService, walletService);
-        return new Menu(walletService, transactionService, mempoolService);
+        WalletService walletService = new WalletService(storage.getWalletRepository(),
+            new WalletCache(storage.getWalletRepository(), AppConfig.getInt("wallet.cache.maxSize", 10_000)),
+            new BalanceEngine(storage.getWalletRepository(), AppConfig.getInt("wallet.balance.lockStripes", 64)));
+        BlockTemplateBuilder blockTemplateBuilder = createBlockTemplateBuilder();
+        mempoolService.addListener(blockTemplateBuilder);
+        TransactionService transactionService = new TransactionService(storage.getTransactionRepository(), mempoolService,
+            walletService, blockTemplateBuilder);
+        MempoolSnapshotService snapshotService = new MempoolSnapshotService(
+            new MempoolSnapshotRepository(Paths.get(AppConfig.getString("mempool.snapshot.path", "data/mempool.snapshot"))),
+            createWriteAheadLog(),
+            mempoolService,
+            Duration.ofSeconds(AppConfig.getLong("mempool.snapshot.intervalSeconds", 300)),
+            Duration.ofMinutes(AppConfig.getLong("mempool.snapshot.maxAgeMinutes", 60)));
+        BlockProducer blockProducer = new BlockProducer(transactionService, mempoolService,
+            Duration.ofMillis(AppConfig.getLong("block.intervalMillis", 600_000L)));
+        return new Menu(walletService, transactionService, mempoolService, snapshotService, blockProducer, storage);
+    }
+
+    // Mempool with the store and limits selected in config.properties
+    public static Mempool createMempool() {
+        return new Mempool(createMempoolStore(), createMempoolLimits());
+    }
+
+    public static BlockTemplateBuilder createBlockTemplateBuilder() {
+        return new BlockTemplateBuilder(
+            AppConfig.getLong("block.maxBytes", 1_000_000L),
+            AppConfig.getLong("block.maxGas", 30_000_000L));
+    }
+
+    // PostgreSQL unless storage.backend=embedded
+    public static StorageBackend createStorage() {
+        String backend = AppConfig.getString("storage.backend", "postgres");
+        if (backend.equals("embedded")) {
+            if (AppConfig.getBoolean("persistence.writeBehind.enabled", false)) {
+                logger.warning("persistence.writeBehind.enabled only applies to the postgres backend, ignoring it");
+            }
+            return new EmbeddedStorage(
+                Paths.get(AppConfig.getString("storage.embedded.directory", "data/store")),
+                AppConfig.getInt("storage.embedded.segmentMegabytes", 64) * 1024 * 1024,
+                AppConfig.getDouble("storage.embedded.compactionThreshold", 0.5),
+                Duration.ofSeconds(AppConfig.getLong("storage.embedded.compactionIntervalSeconds", 60)),
+                AppConfig.getBoolean("storage.embedded.syncWrites", false));
+        }
+        if (!backend.equals("postgres")) {
+            logger.warning("Unknown storage.backend " + backend + ", using postgres");
+        }
+        return new JdbcStorage(createWriteBehindQueue());
+    }
+
+    // Null unless persistence.writeBehind.enabled: writes then go straight to the database
+    private static WriteBehindQueue createWriteBehindQueue() {
+        if (!AppConfig.getBoolean("persistence.writeBehind.enabled", false)) {
+            return null;
+        }
+        return new WriteBehindQueue(new JdbcTransactionRepository(), new JdbcWalletRepository(),
+            AppConfig.getInt("persistence.writeBehind.capacity", 10_000),
+            AppConfig.getInt("persistence.writeBehind.batchSize", 500),
+            Duration.ofMillis(AppConfig.getLong("persistence.writeBehind.maxDelayMillis", 50)),
+            Duration.ofSeconds(AppConfig.getLong("persistence.writeBehind.shutdownTimeoutSeconds", 30)));
+    }
+
+    private static MempoolWriteAheadLog createWriteAheadLog() {
+        if (!AppConfig.getBoolean("mempool.wal.enabled", true)) {
+            return null;
+        }
+        return new MempoolWriteAheadLog(
+            Paths.get(AppConfig.getString("mempool.wal.directory", "data/wal")),
+            AppConfig.getInt("mempool.wal.syncBatchSize", 64),
+            AppConfig.getLong("mempool.wal.maxSyncDelayMillis", 10),
+            AppConfig.getBoolean("mempool.wal.waitForSync", true));
+    }
+
+    private static MempoolLimits createMempoolLimits() {
+        return new MempoolLimits(
+            AppConfig.getInt("mempool.maxTransactions", 0),
+            AppConfig.getLong("mempool.maxBytes", 300_000_000L),
+            AppConfig.getDouble("mempool.incrementalFee", 0.00001),
+            Duration.ofMinutes(AppConfig.getLong("mempool.minFeeHalfLifeMinutes", 720)));
+    }
+
+    private static MempoolStore createMempoolStore() {
+        String storage = AppConfig.getString("mempool.storage", "indexed");
+        switch (storage) {
+            case "concurrent":
+                return new StripedMempoolStore(AppConfig.getInt("mempool.stripes",
+                    Runtime.getRuntime().availableProcessors() * 4));
+            case "offheap":
+                return new OffHeapMempoolStore(AppConfig.getInt("mempool.offheap.initialCapacity", 1024));
+            default:
+                return new IndexedMempoolStore();
+        }
     }
 }
\ No newline at end of file
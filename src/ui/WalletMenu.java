@@ -2,8 +2,10 @@ package ui;
 
 import java.util.Scanner;
 import java.util.logging.Logger;
+import model.TransactionPage;
 import model.Wallet;
 import model.enums.FeeLevel;
+import model.enums.TransactionStatus;
 import service.WalletService;
 import service.TransactionService;
 
@@ -29,7 +31,8 @@ public class WalletMenu {
                 System.out.println("2. Voir ma position dans le mempool");
                 System.out.println("3. Voir état du mempool");
                 System.out.println("4. Recharger mon wallet");
-                System.out.println("5. Retour");
+                System.out.println("5. Historique des transactions");
+                System.out.println("6. Retour");
                 System.out.print("Choix: ");
                 choice = scanner.nextInt();
                 scanner.nextLine();
@@ -48,6 +51,9 @@ public class WalletMenu {
                         rechargeWallet();
                         break;
                     case 5:
+                        showHistory();
+                        break;
+                    case 6:
                         System.out.println("Retour au menu principal.");
                         break;
                     default:
@@ -58,7 +64,7 @@ public class WalletMenu {
                 scanner.nextLine();
                 choice = 0;
             }
-        } while (choice != 5);
+        } while (choice != 6);
     }
 
     private void createTransaction() {
@@ -104,6 +110,44 @@ public class WalletMenu {
         transactionService.displayMempoolState();
     }
 
+    private void showHistory() {
+        System.out.print("Filtrer par statut (0=TOUS, 1=PENDING, 2=CONFIRMED, 3=REJECTED): ");
+        int filter = scanner.nextInt();
+        scanner.nextLine();
+        TransactionStatus status;
+        switch (filter) {
+            case 1:
+                status = TransactionStatus.PENDING;
+                break;
+            case 2:
+                status = TransactionStatus.CONFIRMED;
+                break;
+            case 3:
+                status = TransactionStatus.REJECTED;
+                break;
+            default:
+                status = null;
+                break;
+        }
+
+        try {
+            TransactionPage page = transactionService.getTransactionHistoryPage(wallet, status, null);
+            int pageNumber = 1;
+            transactionService.displayTransactionPage(page, pageNumber);
+            while (page.hasMore()) {
+                System.out.print("Entrée = page suivante, q = retour: ");
+                if (scanner.nextLine().trim().equalsIgnoreCase("q")) {
+                    break;
+                }
+                page = transactionService.getTransactionHistoryPage(wallet, status, page.getLast());
+                transactionService.displayTransactionPage(page, ++pageNumber);
+            }
+        } catch (Exception e) {
+            System.out.println("Erreur lors du chargement de l'historique: " + e.getMessage());
+            logger.severe("Error loading transaction history: " + e.getMessage());
+        }
+    }
+
     private void rechargeWallet() {
         System.out.print("Montant à déposer: ");
         double deposit = scanner.nextDouble();
@@ -0,0 +1,407 @@
+package utils;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Logger;
+
+/**
+ * Bounded JDBC connection pool. getConnection hands out a proxy whose close()
+ * returns the physical connection to the pool, so callers keep the usual
+ * try-with-resources pattern. Idle connections are reused most recent first,
+ * validated when they have been idle for a while, and closed by a background
+ * task once idle longer than idleTimeout, down to minSize.
+ */
+public class ConnectionPool implements AutoCloseable {
+    private static final Logger logger = Logger.getLogger(ConnectionPool.class.getName());
+    // Connections returned more recently than this are handed out without a validation round trip
+    private static final long VALIDATION_BYPASS_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final String url;
+    private final Properties connectionProperties;
+    private final int minSize;
+    private final int maxSize;
+    private final Duration idleTimeout;
+    private final Duration acquireTimeout;
+    private final int validationTimeoutSeconds;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition available = lock.newCondition();
+    private final ArrayDeque<PooledConnection> idle = new ArrayDeque<>();
+    private int total;
+    private boolean closed;
+    private ScheduledExecutorService evictor;
+
+    private final AtomicLong acquisitions = new AtomicLong();
+    private final AtomicLong acquireWaitNanos = new AtomicLong();
+    private final AtomicLong maxAcquireWaitNanos = new AtomicLong();
+    private final AtomicLong timeouts = new AtomicLong();
+    private final AtomicLong created = new AtomicLong();
+    private final AtomicLong evicted = new AtomicLong();
+    private final AtomicLong invalidated = new AtomicLong();
+
+    // connectionProperties are passed to the driver as is: user, password and any driver options
+    public ConnectionPool(String url, Properties connectionProperties, int minSize, int maxSize,
+                          Duration idleTimeout, Duration acquireTimeout, int validationTimeoutSeconds) {
+        if (maxSize < 1 || minSize < 0 || minSize > maxSize) {
+            throw new IllegalArgumentException("Invalid pool size: min " + minSize + ", max " + maxSize);
+        }
+        this.url = url;
+        this.connectionProperties = connectionProperties;
+        this.minSize = minSize;
+        this.maxSize = maxSize;
+        this.idleTimeout = idleTimeout;
+        this.acquireTimeout = acquireTimeout;
+        this.validationTimeoutSeconds = validationTimeoutSeconds;
+    }
+
+    // Opens minSize connections and schedules idle eviction; fails fast when the database is unreachable
+    public void start() throws SQLException {
+        fill();
+        if (idleTimeout.isZero() || idleTimeout.isNegative()) {
+            return;
+        }
+        lock.lock();
+        try {
+            if (evictor != null || closed) {
+                return;
+            }
+            evictor = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "connection-pool-evictor");
+                thread.setDaemon(true);
+                return thread;
+            });
+        } finally {
+            lock.unlock();
+        }
+        long periodMillis = Math.max(1000, idleTimeout.toMillis() / 2);
+        evictor.scheduleAtFixedRate(() -> {
+            try {
+                evictIdle();
+                fill();
+            } catch (Exception e) {
+                logger.warning("Connection pool maintenance failed: " + e.getMessage());
+            }
+        }, periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Borrows a connection, waiting up to acquireTimeout for one to be returned
+     * when maxSize are already in use. Closing the returned connection gives it
+     * back to the pool.
+     */
+    public Connection getConnection() throws SQLException {
+        long start = System.nanoTime();
+        long deadline = start + acquireTimeout.toNanos();
+        while (true) {
+            PooledConnection pooled = null;
+            boolean create = false;
+            lock.lock();
+            try {
+                while (!closed && idle.isEmpty() && total >= maxSize) {
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        timeouts.incrementAndGet();
+                        throw new SQLTransientConnectionException(String.format(
+                            "Timed out after %d ms waiting for a database connection (%d in use)",
+                            acquireTimeout.toMillis(), total));
+                    }
+                    try {
+                        available.awaitNanos(remaining);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new SQLTransientConnectionException("Interrupted while waiting for a database connection", e);
+                    }
+                }
+                if (closed) {
+                    throw new SQLException("Connection pool is closed");
+                }
+                if (!idle.isEmpty()) {
+                    pooled = idle.pollFirst();
+                } else {
+                    total++;
+                    create = true;
+                }
+            } finally {
+                lock.unlock();
+            }
+
+            if (create) {
+                pooled = open();
+            } else if (!isUsable(pooled)) {
+                invalidated.incrementAndGet();
+                discard(pooled);
+                continue;
+            }
+            recordAcquire(System.nanoTime() - start);
+            return lease(pooled);
+        }
+    }
+
+    public int getTotalConnections() {
+        lock.lock();
+        try {
+            return total;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getIdleConnections() {
+        lock.lock();
+        try {
+            return idle.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getActiveConnections() {
+        lock.lock();
+        try {
+            return total - idle.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getAcquisitions() { return acquisitions.get(); }
+    // Borrow attempts that gave up after acquireTimeout
+    public long getTimeouts() { return timeouts.get(); }
+    public long getConnectionsCreated() { return created.get(); }
+    public long getConnectionsEvicted() { return evicted.get(); }
+    // Idle connections that failed validation when borrowed
+    public long getConnectionsInvalidated() { return invalidated.get(); }
+
+    public Duration getAverageAcquireTime() {
+        long count = acquisitions.get();
+        return Duration.ofNanos(count == 0 ? 0 : acquireWaitNanos.get() / count);
+    }
+
+    public Duration getMaxAcquireTime() {
+        return Duration.ofNanos(maxAcquireWaitNanos.get());
+    }
+
+    // Closes idle connections now and borrowed ones as they are returned
+    @Override
+    public void close() {
+        List<PooledConnection> toClose;
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            if (evictor != null) {
+                evictor.shutdownNow();
+                evictor = null;
+            }
+            toClose = new ArrayList<>(idle);
+            idle.clear();
+            available.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        for (PooledConnection pooled : toClose) {
+            discard(pooled);
+        }
+        logger.info(String.format("Connection pool closed: %d acquisitions (avg %d us, max %d ms), %d timeouts, "
+                + "%d connections created, %d evicted, %d invalidated",
+            acquisitions.get(), TimeUnit.NANOSECONDS.toMicros(getAverageAcquireTime().toNanos()),
+            getMaxAcquireTime().toMillis(), timeouts.get(), created.get(), evicted.get(), invalidated.get()));
+    }
+
+    private PooledConnection open() throws SQLException {
+        try {
+            Connection connection = DriverManager.getConnection(url, connectionProperties);
+            created.incrementAndGet();
+            return new PooledConnection(connection);
+        } catch (SQLException | RuntimeException e) {
+            lock.lock();
+            try {
+                total--;
+                available.signal();
+            } finally {
+                lock.unlock();
+            }
+            throw e;
+        }
+    }
+
+    private void fill() throws SQLException {
+        while (true) {
+            lock.lock();
+            try {
+                if (closed || total >= minSize) {
+                    return;
+                }
+                total++;
+            } finally {
+                lock.unlock();
+            }
+            giveBack(open());
+        }
+    }
+
+    private void evictIdle() {
+        long cutoff = System.nanoTime() - idleTimeout.toNanos();
+        List<PooledConnection> toClose = new ArrayList<>();
+        lock.lock();
+        try {
+            // Oldest returns sit at the tail of the deque
+            Iterator<PooledConnection> it = idle.descendingIterator();
+            while (it.hasNext() && total - toClose.size() > minSize) {
+                PooledConnection pooled = it.next();
+                if (pooled.lastUsedNanos - cutoff > 0) {
+                    break;
+                }
+                it.remove();
+                toClose.add(pooled);
+            }
+        } finally {
+            lock.unlock();
+        }
+        for (PooledConnection pooled : toClose) {
+            evicted.incrementAndGet();
+            discard(pooled);
+        }
+    }
+
+    private boolean isUsable(PooledConnection pooled) {
+        if (System.nanoTime() - pooled.lastUsedNanos < VALIDATION_BYPASS_NANOS) {
+            return true;
+        }
+        try {
+            return pooled.connection.isValid(validationTimeoutSeconds);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private void recordAcquire(long waitNanos) {
+        acquisitions.incrementAndGet();
+        acquireWaitNanos.addAndGet(waitNanos);
+        long max;
+        while (waitNanos > (max = maxAcquireWaitNanos.get()) && !maxAcquireWaitNanos.compareAndSet(max, waitNanos)) {
+            // retry until the larger value is published
+        }
+    }
+
+    private Connection lease(PooledConnection pooled) {
+        return (Connection) Proxy.newProxyInstance(ConnectionPool.class.getClassLoader(),
+            new Class<?>[] {Connection.class}, new Lease(pooled));
+    }
+
+    // Called when a lease is closed: reset the session state the borrower may have changed
+    private void release(PooledConnection pooled) {
+        try {
+            if (!pooled.connection.getAutoCommit()) {
+                pooled.connection.rollback();
+                pooled.connection.setAutoCommit(true);
+            }
+            pooled.connection.clearWarnings();
+        } catch (SQLException e) {
+            logger.warning("Discarding connection that failed to reset: " + e.getMessage());
+            discard(pooled);
+            return;
+        }
+        giveBack(pooled);
+    }
+
+    private void giveBack(PooledConnection pooled) {
+        pooled.lastUsedNanos = System.nanoTime();
+        lock.lock();
+        try {
+            if (!closed) {
+                idle.addFirst(pooled);
+                available.signal();
+                return;
+            }
+        } finally {
+            lock.unlock();
+        }
+        discard(pooled);
+    }
+
+    private void discard(PooledConnection pooled) {
+        try {
+            pooled.connection.close();
+        } catch (SQLException e) {
+            logger.fine("Error closing pooled connection: " + e.getMessage());
+        }
+        lock.lock();
+        try {
+            total--;
+            available.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static class PooledConnection {
+        private final Connection connection;
+        private volatile long lastUsedNanos;
+
+        PooledConnection(Connection connection) {
+            this.connection = connection;
+            this.lastUsedNanos = System.nanoTime();
+        }
+    }
+
+    // One borrow of a pooled connection; unusable once closed, even if the connection is lent again
+    private class Lease implements InvocationHandler {
+        private final PooledConnection pooled;
+        private boolean closed;
+
+        Lease(PooledConnection pooled) {
+            this.pooled = pooled;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (!closed) {
+                        closed = true;
+                        release(pooled);
+                    }
+                    return null;
+                case "isClosed":
+                    return closed || pooled.connection.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "PooledConnection[" + pooled.connection + (closed ? ", returned]" : "]");
+                default:
+                    break;
+            }
+            if (closed) {
+                throw new SQLException("Connection has already been returned to the pool");
+            }
+            try {
+                return method.invoke(pooled.connection, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+}
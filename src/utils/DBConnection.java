@@ -2,14 +2,14 @@ package utils;
 
 import java.io.InputStream;
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.SQLException;
+import java.time.Duration;
 import java.util.Properties;
 import java.util.logging.Logger;
 
 public class DBConnection {
     private static final Logger logger = Logger.getLogger(DBConnection.class.getName());
-    private static Connection connection;
+    private static ConnectionPool pool;
     private static Properties props;
 
     private DBConnection() {}
@@ -20,8 +20,16 @@ public class DBConnection {
         }
     }
 
-    public static Connection getInstance() {
-        if (connection == null || isConnectionClosed()) {
+    /**
+     * Borrows a connection from the shared pool, creating the pool on first use.
+     * Close it to give it back.
+     */
+    public static Connection getConnection() throws SQLException {
+        return getPool().getConnection();
+    }
+
+    public static synchronized ConnectionPool getPool() {
+        if (pool == null) {
             try {
                 if (props == null) {
                     props = new Properties();
@@ -46,8 +54,29 @@ public class DBConnection {
                 }
 
                 Class.forName("org.postgresql.Driver");
-                connection = DriverManager.getConnection(url, user, password);
-                logger.info("Database connection established");
+                Properties connectionProperties = new Properties();
+                connectionProperties.setProperty("user", user);
+                connectionProperties.setProperty("password", password);
+                // Lets the driver turn batched INSERTs into multi-row statements
+                connectionProperties.setProperty("reWriteBatchedInserts",
+                    String.valueOf(AppConfig.getBoolean("db.reWriteBatchedInserts", true)));
+                ConnectionPool created = new ConnectionPool(url, connectionProperties,
+                    AppConfig.getInt("db.pool.minSize", 1),
+                    AppConfig.getInt("db.pool.maxSize", 10),
+                    Duration.ofSeconds(AppConfig.getLong("db.pool.idleTimeoutSeconds", 600)),
+                    Duration.ofMillis(AppConfig.getLong("db.pool.acquireTimeoutMillis", 5000)),
+                    AppConfig.getInt("db.pool.validationTimeoutSeconds", 2));
+                created.start();
+                if (AppConfig.getBoolean("db.migrate.onStartup", true)) {
+                    try {
+                        new SchemaMigrator(created).migrate();
+                    } catch (RuntimeException e) {
+                        created.close();
+                        throw e;
+                    }
+                }
+                pool = created;
+                logger.info("Database connection pool started");
             } catch (SQLException e) {
                 String errorMsg = String.format("Failed to connect to database: %s (SQL State: %s, Error Code: %d)",
                     e.getMessage(), e.getSQLState(), e.getErrorCode());
@@ -57,36 +86,24 @@ public class DBConnection {
                 String errorMsg = "PostgreSQL driver not found";
                 logger.severe(errorMsg);
                 throw new DBConnectionException(errorMsg, e);
+            } catch (DBConnectionException e) {
+                throw e;
+            } catch (SchemaMigrator.MigrationException e) {
+                throw new DBConnectionException(e.getMessage(), e);
             } catch (Exception e) {
                 String errorMsg = "Unexpected error while connecting to database: " + e.getMessage();
                 logger.severe(errorMsg);
                 throw new DBConnectionException(errorMsg, e);
             }
         }
-        return connection;
-    }
-
-    public static void close() {
-        if (connection != null) {
-            try {
-                connection.close();
-                connection = null;
-                logger.info("Database connection closed");
-            } catch (SQLException e) {
-                String errorMsg = String.format("Failed to close database connection: %s (SQL State: %s, Error Code: %d)",
-                    e.getMessage(), e.getSQLState(), e.getErrorCode());
-                logger.severe(errorMsg);
-                throw new DBConnectionException(errorMsg, e);
-            }
-        }
+        return pool;
     }
 
-    private static boolean isConnectionClosed() {
-        try {
-            return connection == null || connection.isClosed();
-        } catch (SQLException e) {
-            logger.warning("Error checking connection status: " + e.getMessage());
-            return true;
+    public static synchronized void close() {
+        if (pool != null) {
+            pool.close();
+            pool = null;
+            logger.info("Database connection pool closed");
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,176 @@
+package utils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+/**
+ * Applies the versioned SQL scripts under db/migration in order, each in its
+ * own database transaction together with its row in schema_migrations. A
+ * script is never run twice, and one that was edited after being applied is
+ * refused. An advisory lock keeps concurrent starts from racing.
+ */
+public class SchemaMigrator {
+    private static final Logger logger = Logger.getLogger(SchemaMigrator.class.getName());
+    private static final String MIGRATION_PATH = "db/migration/";
+    // Append new scripts here; applied ones must never change
+    private static final String[] MIGRATIONS = {
+        "V1__initial_schema.sql",
+        "V2__partition_transactions.sql",
+        "V3__transaction_indexes.sql",
+        "V4__unique_transaction_ids.sql"
+    };
+    private static final long LOCK_KEY = 0x43575353L;
+
+    private static final String CREATE_HISTORY_SQL = "CREATE TABLE IF NOT EXISTS schema_migrations (" +
+            "version INTEGER PRIMARY KEY, " +
+            "script VARCHAR(200) NOT NULL, " +
+            "checksum BIGINT NOT NULL, " +
+            "applied_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP)";
+    private static final String FIND_APPLIED_SQL = "SELECT version, checksum FROM schema_migrations";
+    private static final String RECORD_SQL = "INSERT INTO schema_migrations (version, script, checksum) VALUES (?, ?, ?)";
+    private static final String CREATE_PARTITIONS_SQL =
+            "SELECT create_transaction_partitions(CURRENT_DATE, ?)";
+
+    private final ConnectionPool pool;
+
+    public static class MigrationException extends RuntimeException {
+        public MigrationException(String message, Throwable cause) {
+            super(message, cause);
+        }
+    }
+
+    public SchemaMigrator(ConnectionPool pool) {
+        this.pool = pool;
+    }
+
+    // Applies the pending migrations, then makes sure the coming months have a transactions partition
+    public int migrate() {
+        int applied = 0;
+        try (Connection conn = pool.getConnection()) {
+            try (Statement stmt = conn.createStatement()) {
+                stmt.execute("SELECT pg_advisory_lock(" + LOCK_KEY + ")");
+            }
+            try {
+                try (Statement stmt = conn.createStatement()) {
+                    stmt.execute(CREATE_HISTORY_SQL);
+                }
+                Map<Integer, Long> history = findApplied(conn);
+                for (String script : MIGRATIONS) {
+                    int version = versionOf(script);
+                    String sql = load(script);
+                    long checksum = checksum(sql);
+                    Long recorded = history.get(version);
+                    if (recorded == null) {
+                        apply(conn, version, script, sql, checksum);
+                        applied++;
+                    } else if (recorded != checksum) {
+                        throw new MigrationException("Migration " + script
+                            + " was modified after it was applied (checksum " + recorded + " != " + checksum + ")", null);
+                    }
+                }
+                createPartitions(conn, AppConfig.getInt("db.partitions.monthsAhead", 3));
+            } finally {
+                try (Statement stmt = conn.createStatement()) {
+                    stmt.execute("SELECT pg_advisory_unlock(" + LOCK_KEY + ")");
+                }
+            }
+        } catch (SQLException e) {
+            String errorMsg = String.format("Schema migration failed: %s (SQL State: %s, Error Code: %d)",
+                e.getMessage(), e.getSQLState(), e.getErrorCode());
+            logger.severe(errorMsg);
+            throw new MigrationException(errorMsg, e);
+        }
+        if (applied > 0) {
+            logger.info("Applied " + applied + " schema migration(s), schema is at version " + versionOf(MIGRATIONS[MIGRATIONS.length - 1]));
+        }
+        return applied;
+    }
+
+    private void apply(Connection conn, int version, String script, String sql, long checksum) throws SQLException {
+        long start = System.nanoTime();
+        conn.setAutoCommit(false);
+        try {
+            try (Statement stmt = conn.createStatement()) {
+                stmt.execute(sql);
+            }
+            try (PreparedStatement stmt = conn.prepareStatement(RECORD_SQL)) {
+                stmt.setInt(1, version);
+                stmt.setString(2, script);
+                stmt.setLong(3, checksum);
+                stmt.executeUpdate();
+            }
+            conn.commit();
+        } catch (SQLException | RuntimeException e) {
+            conn.rollback();
+            logger.severe("Migration " + script + " rolled back: " + e.getMessage());
+            throw e;
+        } finally {
+            conn.setAutoCommit(true);
+        }
+        logger.info(String.format("Applied migration %s in %d ms", script,
+            TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)));
+    }
+
+    private static Map<Integer, Long> findApplied(Connection conn) throws SQLException {
+        Map<Integer, Long> history = new HashMap<>();
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(FIND_APPLIED_SQL)) {
+            while (rs.next()) {
+                history.put(rs.getInt("version"), rs.getLong("checksum"));
+            }
+        }
+        return history;
+    }
+
+    // Partitions are created ahead of time: a month without one would fill the default partition
+    private static void createPartitions(Connection conn, int monthsAhead) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(CREATE_PARTITIONS_SQL)) {
+            stmt.setInt(1, monthsAhead + 1);
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (rs.next() && rs.getInt(1) > 0) {
+                    logger.info("Created " + rs.getInt(1) + " transaction partition(s)");
+                }
+            }
+        }
+    }
+
+    private static int versionOf(String script) {
+        return Integer.parseInt(script.substring(1, script.indexOf("__")));
+    }
+
+    private static String load(String script) {
+        try (InputStream input = SchemaMigrator.class.getClassLoader().getResourceAsStream(MIGRATION_PATH + script)) {
+            if (input == null) {
+                throw new MigrationException("Migration script not found on the classpath: " + MIGRATION_PATH + script, null);
+            }
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = input.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+            return new String(out.toByteArray(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new MigrationException("Failed to read migration " + script, e);
+        }
+    }
+
+    // Line endings are normalized so a checkout on another OS does not look like an edit
+    private static long checksum(String sql) {
+        CRC32 crc = new CRC32();
+        crc.update(sql.replace("\r\n", "\n").getBytes(StandardCharsets.UTF_8));
+        return crc.getValue();
+    }
+}
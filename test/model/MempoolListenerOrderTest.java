@@ -0,0 +1,122 @@
+package model;
+
+import model.enums.FeeLevel;
+import model.mempool.MempoolLimits;
+import model.mempool.MempoolListener;
+import model.mempool.StripedMempoolStore;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+
+// A full mempool evicts while other threads add and mine: listeners must see every entry added before it goes
+public class MempoolListenerOrderTest {
+    private static final int THREADS = 8;
+    private static final int PER_THREAD = 20_000;
+
+    @Test
+    public void noEntryIsReportedGoneBeforeItIsReportedAdded() throws Exception {
+        Mempool mempool = new Mempool(new StripedMempoolStore(8), new MempoolLimits(200, 0, 0, Duration.ZERO));
+        Tracker tracker = new Tracker();
+        mempool.addListener(tracker);
+
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS + 1);
+        try {
+            List<Future<?>> workers = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                final boolean bulk = t % 2 == 0;
+                workers.add(pool.submit(() -> {
+                    start.await();
+                    List<Transaction> batch = new ArrayList<>();
+                    for (int i = 0; i < PER_THREAD; i++) {
+                        if (!bulk) {
+                            mempool.addTransactionIfNotExists(transaction());
+                            continue;
+                        }
+                        batch.add(transaction());
+                        if (batch.size() == 50) {
+                            mempool.addTransactions(batch);
+                            batch.clear();
+                        }
+                    }
+                    return null;
+                }));
+            }
+            workers.add(pool.submit(() -> {
+                start.await();
+                for (int i = 0; i < PER_THREAD; i++) {
+                    mempool.pollHighestFee();
+                }
+                return null;
+            }));
+            start.countDown();
+            for (Future<?> worker : workers) {
+                worker.get(2, TimeUnit.MINUTES);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        assertEquals("removals or evictions reported before the addition", 0, tracker.outOfOrder.get());
+        Set<UUID> stored = new HashSet<>();
+        for (Transaction tx : mempool.getActualPendingList()) {
+            stored.add(tx.getId());
+        }
+        assertEquals(stored, tracker.live.keySet());
+    }
+
+    // Replays the events the way BlockTemplateBuilder and the write-ahead log do
+    private static final class Tracker implements MempoolListener {
+        private final Map<UUID, Boolean> live = new ConcurrentHashMap<>();
+        private final Set<UUID> gone = ConcurrentHashMap.newKeySet();
+        private final AtomicInteger outOfOrder = new AtomicInteger();
+
+        @Override
+        public void onAdded(Transaction transaction) {
+            if (gone.contains(transaction.getId())) {
+                outOfOrder.incrementAndGet();
+                return;
+            }
+            live.put(transaction.getId(), Boolean.TRUE);
+        }
+
+        @Override
+        public void onRemoved(Transaction transaction) {
+            gone(transaction);
+        }
+
+        @Override
+        public void onEvicted(Transaction transaction) {
+            gone(transaction);
+        }
+
+        private void gone(Transaction transaction) {
+            gone.add(transaction.getId());
+            if (live.remove(transaction.getId()) == null) {
+                outOfOrder.incrementAndGet();
+            }
+        }
+    }
+
+    private static Transaction transaction() {
+        Transaction tx = new Transaction("source", "destination", 1.0, FeeLevel.STANDARD);
+        tx.setFee(ThreadLocalRandom.current().nextInt(1, 100_000) / 1_000_000.0);
+        return tx;
+    }
+}
@@ -0,0 +1,38 @@
+package model;
+
+import model.enums.FeeLevel;
+import model.mempool.MempoolLimits;
+import model.mempool.StripedMempoolStore;
+import org.junit.Test;
+
+import java.time.Duration;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class MempoolMinimumFeeTest {
+
+    @Test
+    public void paysOneFeeUnitAboveTheCompetitor() {
+        Mempool mempool = mempoolWithFee(0.0000035);
+        assertEquals(0.000004, mempool.minimumFeeForPosition(1, null), 1e-12);
+    }
+
+    // Adding one fee unit no longer changes a fee this large; the old loop never ended
+    @Test(timeout = 5000)
+    public void outbidsAHugeFee() {
+        double huge = 1e10;
+        Mempool mempool = mempoolWithFee(huge);
+        double fee = mempool.minimumFeeForPosition(1, null);
+        assertTrue(fee > huge);
+        assertEquals(Math.nextUp(huge), fee, 0);
+    }
+
+    private static Mempool mempoolWithFee(double fee) {
+        Mempool mempool = new Mempool(new StripedMempoolStore(4), new MempoolLimits(0, 0, 0, Duration.ZERO));
+        Transaction tx = new Transaction("source", "destination", 1.0, FeeLevel.STANDARD);
+        tx.setFee(fee);
+        mempool.addTransactionIfNotExists(tx);
+        return mempool;
+    }
+}
@@ -0,0 +1,158 @@
+package model.mempool;
+
+import model.Transaction;
+import model.enums.FeeLevel;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+// Submitters and miners hammer one store at once; every transaction must come out exactly once
+public class StripedMempoolStoreStressTest {
+    private static final int SUBMITTERS = 8;
+    private static final int MINERS = 8;
+    private static final int PER_SUBMITTER = 20_000;
+    private static final int BATCH = 100;
+    // Ids claimed from one snapshot, like a block template
+    private static final int CLAIM_CHUNK = 500;
+
+    @Test
+    public void concurrentSubmittersAndMinersLoseAndDuplicateNothing() throws Exception {
+        StripedMempoolStore store = new StripedMempoolStore(16);
+        // Submitted id -> how many times a miner took it out
+        Map<UUID, AtomicInteger> taken = new ConcurrentHashMap<>();
+        AtomicBoolean submitting = new AtomicBoolean(true);
+        AtomicInteger rejectedDuplicates = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(SUBMITTERS + MINERS);
+        try {
+            List<Future<?>> submitters = new ArrayList<>();
+            for (int s = 0; s < SUBMITTERS; s++) {
+                final boolean bulk = s % 2 == 0;
+                submitters.add(pool.submit(() -> {
+                    start.await();
+                    List<Transaction> batch = new ArrayList<>(BATCH);
+                    for (int i = 0; i < PER_SUBMITTER; i++) {
+                        Transaction tx = transaction();
+                        taken.put(tx.getId(), new AtomicInteger());
+                        if (!bulk) {
+                            assertTrue(store.add(tx));
+                            // Re-submitting the same id must be refused
+                            if (i % 1000 == 0 && !store.add(tx)) {
+                                rejectedDuplicates.incrementAndGet();
+                            }
+                            continue;
+                        }
+                        batch.add(tx);
+                        if (batch.size() == BATCH) {
+                            addBatch(store, batch);
+                            batch.clear();
+                        }
+                    }
+                    if (!batch.isEmpty()) {
+                        addBatch(store, batch);
+                    }
+                    return null;
+                }));
+            }
+            List<Future<?>> miners = new ArrayList<>();
+            for (int m = 0; m < MINERS; m++) {
+                final int miner = m;
+                miners.add(pool.submit(() -> {
+                    start.await();
+                    while (true) {
+                        List<Transaction> mined = next(store, miner);
+                        if (mined.isEmpty()) {
+                            if (!submitting.get() && store.size() == 0) {
+                                return null;
+                            }
+                            Thread.yield();
+                            continue;
+                        }
+                        for (Transaction tx : mined) {
+                            taken.get(tx.getId()).incrementAndGet();
+                        }
+                    }
+                }));
+            }
+
+            start.countDown();
+            for (Future<?> submitter : submitters) {
+                submitter.get(2, TimeUnit.MINUTES);
+            }
+            submitting.set(false);
+            for (Future<?> miner : miners) {
+                miner.get(2, TimeUnit.MINUTES);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        assertEquals(SUBMITTERS * PER_SUBMITTER, taken.size());
+        for (Map.Entry<UUID, AtomicInteger> entry : taken.entrySet()) {
+            assertEquals("transaction " + entry.getKey() + " taken out", 1, entry.getValue().get());
+        }
+        assertEquals((SUBMITTERS / 2) * (PER_SUBMITTER / 1000), rejectedDuplicates.get());
+        assertEquals(0, store.size());
+        assertTrue(store.snapshot().isEmpty());
+        assertNull(store.pollFirst());
+    }
+
+    // Miners take from both ends of the fee order and by id, as mining, eviction and claims do
+    private static List<Transaction> next(StripedMempoolStore store, int miner) {
+        List<Transaction> mined = new ArrayList<>();
+        Transaction tx;
+        switch (miner % 3) {
+            case 0:
+                tx = store.pollFirst();
+                break;
+            case 1:
+                tx = store.pollLast();
+                break;
+            default:
+                List<Transaction> snapshot = store.snapshot();
+                int from = snapshot.isEmpty() ? 0 : ThreadLocalRandom.current().nextInt(snapshot.size());
+                for (Transaction candidate : snapshot.subList(from, Math.min(snapshot.size(), from + CLAIM_CHUNK))) {
+                    // Another miner may have taken it since the snapshot; that is not a loss
+                    Transaction claimed = store.remove(candidate.getId());
+                    if (claimed != null) {
+                        mined.add(claimed);
+                    }
+                }
+                return mined;
+        }
+        if (tx != null) {
+            mined.add(tx);
+        }
+        return mined;
+    }
+
+    private static void addBatch(StripedMempoolStore store, List<Transaction> batch) {
+        boolean[] added = new boolean[batch.size()];
+        store.addAll(batch, added);
+        for (boolean wasAdded : added) {
+            assertTrue(wasAdded);
+        }
+    }
+
+    private static Transaction transaction() {
+        Transaction tx = new Transaction("source", "destination", 1.0, FeeLevel.STANDARD);
+        tx.setFee(ThreadLocalRandom.current().nextInt(1, 1000) / 100_000.0);
+        return tx;
+    }
+}
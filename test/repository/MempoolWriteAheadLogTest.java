@@ -0,0 +1,172 @@
+package repository;
+
+import model.Transaction;
+import model.enums.FeeLevel;
+import model.enums.TransactionStatus;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class MempoolWriteAheadLogTest {
+    // [length][crc32][type][uuid]
+    private static final int REMOVAL_RECORD_BYTES = 4 + 4 + 1 + 16;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path directory;
+    private MempoolWriteAheadLog log;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = folder.newFolder("wal").toPath();
+        log = new MempoolWriteAheadLog(directory, 64, 1, true);
+        log.open();
+    }
+
+    @After
+    public void tearDown() {
+        log.close();
+    }
+
+    @Test
+    public void replaysEventsInAppendOrder() {
+        Transaction first = transaction("source-1", 1.5, 0.0001);
+        Transaction second = transaction("source-2", 2.5, 0.0002);
+        Transaction third = transaction("source-3", 3.5, 0.0003);
+        log.appendAdd(first);
+        log.appendAdds(Arrays.asList(second, third));
+        log.appendFeeBump(first.getId(), 0.0005);
+        log.sync(log.appendRemoval(MempoolWriteAheadLog.EventType.MINE, second.getId()));
+        log.close();
+
+        List<MempoolWriteAheadLog.Event> events = replay();
+        assertEquals(5, events.size());
+        assertAdd(first, events.get(0));
+        assertAdd(second, events.get(1));
+        assertAdd(third, events.get(2));
+        assertEquals(MempoolWriteAheadLog.EventType.FEE_BUMP, events.get(3).getType());
+        assertEquals(first.getId(), events.get(3).getTransactionId());
+        assertEquals(0.0005, events.get(3).getFee(), 0);
+        assertEquals(MempoolWriteAheadLog.EventType.MINE, events.get(4).getType());
+        assertEquals(second.getId(), events.get(4).getTransactionId());
+        assertNull(events.get(4).getTransaction());
+    }
+
+    @Test
+    public void ignoresATornLastRecord() throws IOException {
+        List<UUID> ids = appendRemovals(3);
+        log.close();
+
+        Path segment = onlySegment();
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 5);
+        }
+
+        List<MempoolWriteAheadLog.Event> events = replay();
+        assertEquals(2, events.size());
+        assertEquals(ids.get(0), events.get(0).getTransactionId());
+        assertEquals(ids.get(1), events.get(1).getTransactionId());
+    }
+
+    @Test
+    public void stopsAtARecordFailingItsChecksum() throws IOException {
+        List<UUID> ids = appendRemovals(3);
+        log.close();
+
+        // Flip a byte of the second record's transaction id
+        Path segment = onlySegment();
+        long offset = REMOVAL_RECORD_BYTES + 4 + 4 + 1 + 3;
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer b = ByteBuffer.allocate(1);
+            channel.read(b, offset);
+            b.flip();
+            b.put(0, (byte) (b.get(0) ^ 0xFF));
+            channel.write(b, offset);
+        }
+
+        List<MempoolWriteAheadLog.Event> events = replay();
+        assertEquals(1, events.size());
+        assertEquals(ids.get(0), events.get(0).getTransactionId());
+    }
+
+    @Test
+    public void deletesOnlySegmentsBeforeTheRotation() {
+        appendRemovals(2);
+        long keepFrom = log.rotate();
+        List<UUID> after = appendRemovals(2);
+        log.deleteSegmentsBefore(keepFrom);
+        log.close();
+
+        List<MempoolWriteAheadLog.Event> events = replay();
+        assertEquals(2, events.size());
+        assertEquals(after.get(0), events.get(0).getTransactionId());
+        assertEquals(after.get(1), events.get(1).getTransactionId());
+    }
+
+    private List<UUID> appendRemovals(int count) {
+        List<UUID> ids = new ArrayList<>();
+        long sequence = 0;
+        for (int i = 0; i < count; i++) {
+            UUID id = UUID.randomUUID();
+            ids.add(id);
+            sequence = log.appendRemoval(MempoolWriteAheadLog.EventType.REMOVE, id);
+        }
+        log.sync(sequence);
+        return ids;
+    }
+
+    private List<MempoolWriteAheadLog.Event> replay() {
+        List<MempoolWriteAheadLog.Event> events = new ArrayList<>();
+        new MempoolWriteAheadLog(directory, 64, 1, true).replay(events::add);
+        return events;
+    }
+
+    private Path onlySegment() throws IOException {
+        List<Path> segments = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "wal-*.log")) {
+            for (Path segment : stream) {
+                segments.add(segment);
+            }
+        }
+        assertEquals(1, segments.size());
+        return segments.get(0);
+    }
+
+    private static void assertAdd(Transaction expected, MempoolWriteAheadLog.Event event) {
+        assertEquals(MempoolWriteAheadLog.EventType.ADD, event.getType());
+        assertEquals(expected.getId(), event.getTransactionId());
+        Transaction actual = event.getTransaction();
+        assertEquals(expected.getWalletId(), actual.getWalletId());
+        assertEquals(expected.getSourceAddress(), actual.getSourceAddress());
+        assertEquals(expected.getDestinationAddress(), actual.getDestinationAddress());
+        assertEquals(expected.getAmount(), actual.getAmount(), 0);
+        assertEquals(expected.getFee(), actual.getFee(), 0);
+        assertEquals(expected.getFeeLevel(), actual.getFeeLevel());
+        assertEquals(expected.getStatus(), actual.getStatus());
+        assertEquals(expected.getCreatedAt(), actual.getCreatedAt());
+    }
+
+    static Transaction transaction(String source, double amount, double fee) {
+        return new Transaction(UUID.randomUUID(), UUID.randomUUID(), source, "destination", amount, fee,
+            FeeLevel.STANDARD, TransactionStatus.PENDING, LocalDateTime.of(2026, 1, 2, 3, 4, 5, 123_456_000));
+    }
+}
@@ -0,0 +1,33 @@
+package repository;
+
+import model.Transaction;
+import model.enums.FeeLevel;
+import model.enums.TransactionStatus;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import static org.junit.Assert.assertEquals;
+
+public class TransactionRecordCodecTest {
+
+    // The JDBC driver rounds to microseconds half-up; the codec must agree or a restored row gets a new key
+    @Test
+    public void roundsCreatedAtToMicrosecondsLikeTheDriver() {
+        LocalDateTime base = LocalDateTime.of(2026, 1, 31, 23, 59, 59);
+        assertEquals(base.withNano(123_456_000), roundTrip(base.withNano(123_456_499)).getCreatedAt());
+        assertEquals(base.withNano(123_457_000), roundTrip(base.withNano(123_456_500)).getCreatedAt());
+        assertEquals(base.plusSeconds(1), roundTrip(base.withNano(999_999_600)).getCreatedAt());
+    }
+
+    private static Transaction roundTrip(LocalDateTime createdAt) {
+        Transaction tx = new Transaction(UUID.randomUUID(), UUID.randomUUID(), "source", "destination", 1.0, 0.0001,
+            FeeLevel.STANDARD, TransactionStatus.PENDING, createdAt);
+        ByteBuffer buffer = ByteBuffer.allocate(TransactionRecordCodec.MAX_BYTES);
+        TransactionRecordCodec.write(buffer, tx);
+        buffer.flip();
+        return TransactionRecordCodec.read(buffer);
+    }
+}
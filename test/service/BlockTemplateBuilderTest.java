@@ -0,0 +1,112 @@
+package service;
+
+import model.Mempool;
+import model.Transaction;
+import model.enums.FeeLevel;
+import model.enums.TransactionStatus;
+import model.mempool.BlockTemplate;
+import org.junit.Test;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.UUID;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+public class BlockTemplateBuilderTest {
+    private static final int SIZE = BitcoinFeeCalculator.DEFAULT_SIZE_BYTES;
+
+    @Test
+    public void takesALowFeeParentWithItsHighFeeChild() {
+        BlockTemplateBuilder builder = blockOf(2);
+        Mempool mempool = mempoolWith(builder);
+        Transaction parent = transaction("alice", 0.00001);
+        Transaction child = transaction("alice", 0.001);
+        Transaction single = transaction("bob", 0.0001);
+        mempool.addTransactionIfNotExists(parent);
+        mempool.addTransactionIfNotExists(child);
+        mempool.addTransactionIfNotExists(single);
+
+        assertEquals(Arrays.asList(parent, child), builder.getTemplate().getTransactions());
+    }
+
+    @Test
+    public void takesThePrefixOfAChainTooLongForTheSpaceLeft() {
+        BlockTemplateBuilder builder = blockOf(2);
+        Mempool mempool = mempoolWith(builder);
+        Transaction first = transaction("alice", 0.001);
+        Transaction second = transaction("alice", 0.001);
+        Transaction third = transaction("alice", 0.001);
+        Transaction single = transaction("bob", 0.00001);
+        mempool.addTransactions(Arrays.asList(first, second, third, single));
+
+        BlockTemplate template = builder.getTemplate();
+        assertEquals(Arrays.asList(first, second), template.getTransactions());
+        assertEquals(2L * SIZE, template.getUsedBytes());
+        assertEquals(0.002, template.getTotalFees(), 1e-12);
+    }
+
+    @Test
+    public void repositionsAFeeBumpedTransaction() {
+        BlockTemplateBuilder builder = blockOf(1);
+        Mempool mempool = mempoolWith(builder);
+        Transaction high = transaction("alice", 0.001);
+        Transaction low = transaction("bob", 0.0001);
+        mempool.addTransactions(Arrays.asList(high, low));
+        assertEquals(Arrays.asList(high), builder.getTemplate().getTransactions());
+
+        mempool.replaceByFee(low.getId(), 0.01);
+        assertEquals(Arrays.asList(low), builder.getTemplate().getTransactions());
+    }
+
+    @Test
+    public void keepsTheTemplateWhenAChangeCannotReachTheFullBlock() {
+        BlockTemplateBuilder builder = blockOf(1);
+        Mempool mempool = mempoolWith(builder);
+        Transaction included = transaction("alice", 0.001);
+        mempool.addTransactionIfNotExists(included);
+        BlockTemplate template = builder.getTemplate();
+
+        Transaction below = transaction("bob", 0.0001);
+        mempool.addTransactionIfNotExists(below);
+        assertSame(template, builder.getTemplate());
+        mempool.removeTransaction(below.getId());
+        assertSame(template, builder.getTemplate());
+
+        Transaction above = transaction("carol", 0.01);
+        mempool.addTransactionIfNotExists(above);
+        BlockTemplate rebuilt = builder.getTemplate();
+        assertNotSame(template, rebuilt);
+        assertEquals(Arrays.asList(above), rebuilt.getTransactions());
+    }
+
+    @Test
+    public void rebuildsWhenASelectedTransactionLeaves() {
+        BlockTemplateBuilder builder = blockOf(1);
+        Mempool mempool = mempoolWith(builder);
+        Transaction included = transaction("alice", 0.001);
+        Transaction waiting = transaction("bob", 0.0001);
+        mempool.addTransactions(Arrays.asList(included, waiting));
+        assertEquals(Arrays.asList(included), builder.getTemplate().getTransactions());
+
+        mempool.removeTransaction(included.getId());
+        assertEquals(Arrays.asList(waiting), builder.getTemplate().getTransactions());
+    }
+
+    private static BlockTemplateBuilder blockOf(int transactions) {
+        return new BlockTemplateBuilder((long) transactions * SIZE, 0);
+    }
+
+    private static Mempool mempoolWith(BlockTemplateBuilder builder) {
+        Mempool mempool = new Mempool();
+        mempool.addListener(builder);
+        return mempool;
+    }
+
+    private static Transaction transaction(String source, double fee) {
+        return new Transaction(UUID.randomUUID(), UUID.randomUUID(), source, "destination", 1.0, fee,
+            FeeLevel.STANDARD, TransactionStatus.PENDING, LocalDateTime.of(2026, 1, 2, 3, 4, 5));
+    }
+}
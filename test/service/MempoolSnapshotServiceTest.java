@@ -0,0 +1,112 @@
+package service;
+
+import model.Mempool;
+import model.Transaction;
+import model.enums.FeeLevel;
+import model.enums.TransactionStatus;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import repository.MempoolSnapshotRepository;
+import repository.MempoolWriteAheadLog;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.UUID;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class MempoolSnapshotServiceTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void restoresTheSnapshotThenReplaysTheLogWrittenAfterIt() throws IOException {
+        Path directory = folder.getRoot().toPath();
+        Transaction bumped = transaction(0.0001);
+        Transaction mined = transaction(0.0002);
+        Transaction kept = transaction(0.0003);
+        Transaction late = transaction(0.0004);
+
+        MempoolService before = new MempoolService(new Mempool());
+        MempoolWriteAheadLog log = writeAheadLog(directory);
+        MempoolSnapshotService snapshots = snapshotService(directory, log, before);
+        snapshots.start();
+        before.addTransactions(Arrays.asList(bumped, mined, kept));
+        snapshots.saveSnapshot();
+        assertEquals(1, countSegments(directory));
+
+        before.replaceByFee(bumped, 0.001);
+        mined.setStatus(TransactionStatus.CONFIRMED);
+        assertTrue(before.claimTransaction(mined));
+        before.addTransactions(Arrays.asList(late));
+        // A crash: the log is on disk but no snapshot is written on the way out
+        log.close();
+
+        Mempool restored = new Mempool();
+        MempoolService after = new MempoolService(restored);
+        snapshotService(directory, writeAheadLog(directory), after).restore(() -> {
+            throw new AssertionError("The snapshot should have been usable");
+        });
+
+        assertEquals(3, after.size());
+        assertEquals(0.001, restored.getTransaction(bumped.getId()).getFee(), 0);
+        assertFalse(restored.contains(mined.getId()));
+        assertTrue(restored.contains(kept.getId()));
+        assertTrue(restored.contains(late.getId()));
+    }
+
+    @Test
+    public void fallsBackWhenTheSnapshotIsCorrupt() throws IOException {
+        Path directory = folder.getRoot().toPath();
+        MempoolService before = new MempoolService(new Mempool());
+        MempoolSnapshotService snapshots = snapshotService(directory, null, before);
+        before.addTransactions(Arrays.asList(transaction(0.0001), transaction(0.0002)));
+        snapshots.saveSnapshot();
+
+        Path file = directory.resolve("mempool.snapshot");
+        byte[] bytes = Files.readAllBytes(file);
+        bytes[bytes.length / 2] ^= 0xFF;
+        Files.write(file, bytes);
+
+        MempoolService after = new MempoolService(new Mempool());
+        boolean[] fellBack = {false};
+        snapshotService(directory, null, after).restore(() -> fellBack[0] = true);
+
+        assertTrue(fellBack[0]);
+        assertEquals(0, after.size());
+    }
+
+    private static MempoolWriteAheadLog writeAheadLog(Path directory) {
+        return new MempoolWriteAheadLog(directory.resolve("wal"), 64, 1, true);
+    }
+
+    private static MempoolSnapshotService snapshotService(Path directory, MempoolWriteAheadLog log,
+                                                          MempoolService mempoolService) {
+        return new MempoolSnapshotService(new MempoolSnapshotRepository(directory.resolve("mempool.snapshot")),
+            log, mempoolService, Duration.ZERO, Duration.ofHours(1));
+    }
+
+    private static int countSegments(Path directory) throws IOException {
+        int segments = 0;
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory.resolve("wal"), "wal-*.log")) {
+            for (Path ignored : stream) {
+                segments++;
+            }
+        }
+        return segments;
+    }
+
+    private static Transaction transaction(double fee) {
+        return new Transaction(UUID.randomUUID(), UUID.randomUUID(), "source", "destination", 1.0, fee,
+            FeeLevel.STANDARD, TransactionStatus.PENDING, LocalDateTime.of(2026, 1, 2, 3, 4, 5));
+    }
+}
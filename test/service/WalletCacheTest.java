@@ -0,0 +1,156 @@
+package service;
+
+import model.Wallet;
+import model.enums.CryptoType;
+import org.junit.Test;
+import repository.WalletRepository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.OptionalDouble;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class WalletCacheTest {
+
+    @Test
+    public void reloadsOnlyTheInvalidatedWallet() {
+        CountingRepository repository = new CountingRepository(3);
+        WalletCache cache = new WalletCache(repository, 10);
+        cache.findAll();
+        UUID changed = repository.ids().get(1);
+        repository.credit(changed, 5.0);
+        cache.invalidate(changed);
+
+        List<Wallet> wallets = cache.findAll();
+        assertEquals(1, repository.findAllCalls.get());
+        assertEquals(1, repository.findByIdCalls.get());
+        assertEquals(3, wallets.size());
+        assertEquals(5.0, wallets.get(1).getBalance(), 0);
+
+        cache.findAll();
+        assertEquals(1, repository.findAllCalls.get());
+        assertEquals(1, repository.findByIdCalls.get());
+    }
+
+    @Test(timeout = 10_000)
+    public void servesLookupsWhileTheListLoadsAndDropsALoadThatRacedAChange() throws Exception {
+        CountingRepository repository = new CountingRepository(3);
+        WalletCache cache = new WalletCache(repository, 10);
+        UUID id = repository.ids().get(0);
+        cache.findById(id);
+        repository.blockFindAll = new CountDownLatch(1);
+        repository.findAllStarted = new CountDownLatch(1);
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<List<Wallet>> loading = executor.submit(cache::findAll);
+            assertTrue(repository.findAllStarted.await(5, TimeUnit.SECONDS));
+            // Neither call may wait for the load
+            assertTrue(cache.findById(id).isPresent());
+            cache.invalidate(id);
+            repository.blockFindAll.countDown();
+            assertEquals(3, loading.get().size());
+        } finally {
+            executor.shutdownNow();
+        }
+
+        repository.blockFindAll = null;
+        cache.findAll();
+        assertEquals(2, repository.findAllCalls.get());
+        cache.findAll();
+        assertEquals(2, repository.findAllCalls.get());
+    }
+
+    private static class CountingRepository implements WalletRepository {
+        private final Map<UUID, Wallet> wallets = new TreeMap<>();
+        final AtomicInteger findAllCalls = new AtomicInteger();
+        final AtomicInteger findByIdCalls = new AtomicInteger();
+        volatile CountDownLatch findAllStarted;
+        volatile CountDownLatch blockFindAll;
+
+        CountingRepository(int count) {
+            // Ids with increasing high bits sort the same way as UUID.compareTo and PostgreSQL
+            for (int i = 0; i < count; i++) {
+                UUID id = new UUID(i + 1, 0);
+                wallets.put(id, new Wallet(id, "address-" + i, "password", CryptoType.BITCOIN, 0));
+            }
+        }
+
+        synchronized List<UUID> ids() {
+            return new ArrayList<>(wallets.keySet());
+        }
+
+        @Override
+        public synchronized void save(Wallet wallet) {
+            wallets.put(wallet.getId(), wallet);
+        }
+
+        @Override
+        public synchronized OptionalDouble credit(UUID id, double amount) {
+            Wallet wallet = wallets.get(id);
+            double balance = wallet.getBalance() + amount;
+            wallets.put(id, new Wallet(id, wallet.getAddress(), wallet.getPassword(), wallet.getType(), balance));
+            return OptionalDouble.of(balance);
+        }
+
+        @Override
+        public OptionalDouble debit(UUID id, double amount) {
+            return credit(id, -amount);
+        }
+
+        @Override
+        public synchronized Optional<Wallet> findById(UUID id) {
+            findByIdCalls.incrementAndGet();
+            return Optional.ofNullable(wallets.get(id)).map(WalletCacheTest::copy);
+        }
+
+        @Override
+        public synchronized Optional<Wallet> findByAddress(String address) {
+            for (Wallet wallet : wallets.values()) {
+                if (wallet.getAddress().equals(address)) {
+                    return Optional.of(copy(wallet));
+                }
+            }
+            return Optional.empty();
+        }
+
+        @Override
+        public List<Wallet> findAll() {
+            findAllCalls.incrementAndGet();
+            if (findAllStarted != null) {
+                findAllStarted.countDown();
+            }
+            CountDownLatch block = blockFindAll;
+            if (block != null) {
+                try {
+                    block.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            synchronized (this) {
+                List<Wallet> result = new ArrayList<>();
+                for (Wallet wallet : wallets.values()) {
+                    result.add(copy(wallet));
+                }
+                return result;
+            }
+        }
+    }
+
+    private static Wallet copy(Wallet wallet) {
+        return new Wallet(wallet.getId(), wallet.getAddress(), wallet.getPassword(), wallet.getType(), wallet.getBalance());
+    }
+}